@@ -0,0 +1,405 @@
+/*
+ * Benchmarks
+ * Операції, час виконання яких вимірюють тести JMH з пакету smp3d.bench: генерація фігур, обертання та проекція
+ * вершин, освітлення і сортування граней, формування ребер, читання і спрощення сіток та малювання повного кадру
+ * без вікна. Тести знаходяться в іменованому пакеті, бо JMH не приймає тести в пакеті за замовчуванням,
+ * і отримують операції від цього класу через інтерфейс Workload.Factory
+ *
+ * Запуск усіх тестів з профілюванням виділення пам'яті (gc.alloc.rate) та збереженням результатів у
+ * build/reports/jmh/results.json:
+ *   gradle jmh
+ * Запуск лише частини тестів (регулярний вираз JMH) та з довільними параметрами JMH:
+ *   gradle jmh -Pjmh.include=FrameBenchmark -Pjmh.args="-f 2 -wi 5"
+ */
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import smp3d.bench.Workload;
+
+public class Benchmarks implements Workload.Factory {
+    private static final int FRAME_WIDTH = 800, FRAME_HEIGHT = 600;
+    private static final Matrix3x3 ROTATION = Matrix3x3.rotationX(-Math.PI / 2)
+            .multiply(Matrix3x3.rotationY(-Math.PI / 4)).multiply(Matrix3x3.rotationZ(0.3));
+    private static final double[] LIGHT = { 0.5, 0.5, -1 };
+
+    // Метод будує операцію з назвою name; params - значення параметрів тесту JMH у порядку їх оголошення
+    @Override
+    public Workload create(String name, String... params) throws IOException {
+        return switch (name) {
+            case "generate" -> {
+                Supplier<ShapeFactory.ShapeData> gen = generator(type(params[0]), Integer.parseInt(params[1]));
+                yield bh -> bh.consume(gen.get());
+            }
+
+            // Операції з матрицями, кватерніонами та точками
+            case "matrix.multiply" -> {
+                Matrix3x3 step = Matrix3x3.rotationY(Math.toRadians(3));
+                yield bh -> bh.consume(step.multiply(ROTATION));
+            }
+            case "matrix.premultiplyInPlace" -> {
+                Matrix3x3 step = Matrix3x3.rotationY(Math.toRadians(3));
+                Matrix3x3 accumulated = new Matrix3x3().set(ROTATION);
+                yield bh -> bh.consume(accumulated.premultiplyInPlace(step));
+            }
+            case "matrix.applyTo" -> {
+                Point3D point = new Point3D(0.3, -0.7, 1.1);
+                yield bh -> bh.consume(ROTATION.applyTo(point));
+            }
+            case "point.project" -> {
+                Point3D point = new Point3D(0.3, -0.7, 1.1);
+                yield bh -> bh.consume(point.project(FRAME_WIDTH, FRAME_HEIGHT, 250, true));
+            }
+            case "quaternion.premultiplyInPlace" -> {
+                Quaternion orientation = Quaternion.rotation(1, 0, 0, 0.3);
+                Quaternion step = Quaternion.rotation(0, 1, 0, Math.toRadians(3));
+                yield bh -> bh.consume(orientation.premultiplyInPlace(step));
+            }
+            case "quaternion.toMatrix" -> {
+                Quaternion orientation = Quaternion.rotation(1, 0, 0, 0.3);
+                Matrix3x3 converted = new Matrix3x3();
+                yield bh -> bh.consume(orientation.toMatrix(converted));
+            }
+
+            // Обертання і проекція вершин, відсікання та освітлення граней
+            case "geometry.transform" -> {
+                ShapeFactory.ShapeData shape = shape(params);
+                FrameGeometry geometry = new FrameGeometry();
+                yield bh -> {
+                    geometry.transform(shape, ROTATION, FRAME_WIDTH, FRAME_HEIGHT, 100, true);
+                    bh.consume(geometry.screenX);
+                };
+            }
+            case "geometry.cullAndShade" -> {
+                ShapeFactory.ShapeData shape = shape(params);
+                FrameGeometry geometry = new FrameGeometry();
+                geometry.transform(shape, ROTATION, FRAME_WIDTH, FRAME_HEIGHT, 100, true);
+                yield bh -> {
+                    geometry.cull(true);
+                    geometry.shade(shape, 0.4, 0.4, -0.8);
+                    bh.consume(geometry.visibleCount);
+                };
+            }
+
+            // Сортування граней за глибиною: з нуля, з використанням порядку попереднього кадру
+            // та попередній варіант - сортування списку об'єктів граней компаратором
+            case "depthSort.radix", "depthSort.incremental" -> {
+                FrameGeometry geometry = shadedGeometry(shape(params));
+                DepthSorter sorter = new DepthSorter();
+                sorter.incremental = name.equals("depthSort.incremental");
+                yield bh -> bh.consume(sorter.sort(geometry.depth, geometry.visible, geometry.visibleCount));
+            }
+            case "depthSort.list" -> {
+                FrameGeometry geometry = shadedGeometry(shape(params));
+                yield bh -> bh.consume(listSort(geometry.depth, geometry.visible, geometry.visibleCount));
+            }
+
+            // Те саме на синтетичних глибинах: params - кількість граней, вид послідовності кадрів
+            // (DepthFrames) та спосіб сортування: list, radix або incremental
+            case "depthSort.synthetic" -> {
+                DepthFrames frames = new DepthFrames(Integer.parseInt(params[0]), params[1].equals("nearlySorted"));
+                int[] faces = new int[frames.count];
+                Arrays.setAll(faces, i -> i);
+                if (params[2].equals("list")) {
+                    yield bh -> bh.consume(listSort(frames.next(), faces, faces.length));
+                }
+                DepthSorter sorter = new DepthSorter();
+                sorter.incremental = params[2].equals("incremental");
+                yield bh -> bh.consume(sorter.sort(frames.next(), faces, faces.length));
+            }
+
+            // Формування ребер: хеш-таблиця ключів long (послідовно та паралельно) і попередній варіант з рядками
+            case "edges.long", "edges.longParallel" -> {
+                ShapeFactory.ShapeData shape = shape(params);
+                EdgeExtractor extractor = new EdgeExtractor();
+                extractor.parallelThreshold = name.equals("edges.long") ? Integer.MAX_VALUE : 0;
+                yield bh -> {
+                    extractor.extract(shape.faceOffsets, shape.faceIndices);
+                    bh.consume(extractor.edges);
+                };
+            }
+            case "edges.string" -> {
+                ShapeFactory.ShapeData shape = shape(params);
+                yield bh -> bh.consume(stringEdges(shape.faceOffsets, shape.faceIndices));
+            }
+
+            // Читання фігур з файлу дискового кешу
+            case "meshCache.read" -> {
+                Path file = Files.createTempFile("smp3d", ".mesh");
+                file.toFile().deleteOnExit();
+                MeshCache.write(shape(params), file);
+                yield bh -> bh.consume(read(() -> MeshCache.read(file)));
+            }
+
+            // Спрощення сфери за квадрикою похибки до чверті трикутників
+            case "mesh.simplify" -> {
+                ShapeFactory.ShapeData shape = generator(ShapeFactory.ShapeType.SPHERE, Integer.parseInt(params[0])).get();
+                int triangles = MeshSimplifier.triangleCount(shape);
+                MeshSimplifier simplifier = new MeshSimplifier();
+                yield bh -> bh.consume(simplifier.simplify(shape, triangles / 4));
+            }
+
+            // Ієрархія граней: побудова, вибір грані під точкою екрану та відсікання з її використанням
+            case "bvh.build" -> {
+                ShapeFactory.ShapeData shape = sphere(params[0]);
+                yield bh -> bh.consume(new FaceBvh(shape));
+            }
+            case "bvh.pick" -> {
+                FaceBvh bvh = new FaceBvh(sphere(params[0]));
+                int[] pickIndex = { 0 };
+                yield bh -> {
+                    // Точки перебираються сіткою з кроком 7 пікселів, щоб частина променів влучала в фігуру, а частина ні
+                    int i = pickIndex[0]++;
+                    bh.consume(bvh.pick(ROTATION, i * 7 % FRAME_WIDTH, i * 7 / FRAME_WIDTH * 7 % FRAME_HEIGHT,
+                            FRAME_WIDTH, FRAME_HEIGHT, 250, true));
+                };
+            }
+            case "geometry.cull", "geometry.cullBvh" -> {
+                ShapeFactory.ShapeData shape = sphere(params[0]);
+                FaceBvh bvh = name.equals("geometry.cullBvh") ? new FaceBvh(shape) : null;
+                FrameGeometry geometry = new FrameGeometry();
+                geometry.transform(shape, ROTATION, FRAME_WIDTH, FRAME_HEIGHT, 2500, true);
+                yield bh -> {
+                    if (bvh != null) geometry.cull(true, bvh); else geometry.cull(true);
+                    bh.consume(geometry.visibleCount);
+                };
+            }
+
+            // Повторний запит фігури, що вже є в кеші фігур у пам'яті
+            case "shapeCache.hit" -> {
+                ShapeFactory.ShapeType type = type(params[0]);
+                ShapeFactory.generate(type);
+                yield bh -> bh.consume(ShapeFactory.generate(type));
+            }
+
+            // Завантаження сіток з файлів, записаних з тесельованої сфери
+            case "mesh.loadStl", "mesh.loadObj" -> {
+                ShapeFactory.ShapeData sphere = ShapeFactory.generateSphere(240, 240, 1.8);
+                boolean stl = name.equals("mesh.loadStl");
+                Path file = Files.createTempFile("smp3d", stl ? ".stl" : ".obj");
+                file.toFile().deleteOnExit();
+                if (stl) {
+                    writeStl(sphere, file);
+                    yield bh -> bh.consume(read(() -> MeshLoader.loadStl(file)));
+                }
+                writeObj(sphere, file);
+                yield bh -> bh.consume(read(() -> MeshLoader.loadObj(file)));
+            }
+
+            // Повний кадр; mode має вигляд BACKEND:VIEW або BACKEND:VIEW:unbatched
+            case "frame" -> {
+                ShapeFactory.ShapeData shape = ShapeFactory.generate(type(params[0]));
+                String[] mode = params[1].split(":");
+                Renderer renderer = new Renderer();
+                renderer.backend = Renderer.RenderBackend.valueOf(mode[0]);
+                renderer.batched = mode.length < 3;
+                Renderer.ShapeView view = Renderer.ShapeView.valueOf(mode[1]);
+                BufferedImage image = new BufferedImage(FRAME_WIDTH, FRAME_HEIGHT, BufferedImage.TYPE_INT_RGB);
+                yield bh -> {
+                    renderer.render(image, shape, ROTATION, Renderer.ProjectionType.ORTHOGONAL, view, LIGHT);
+                    bh.consume(image);
+                };
+            }
+            default -> throw new IllegalArgumentException("Невідомий тест: " + name);
+        };
+    }
+
+    // Методи перетворюють параметри тесту на тип фігури та саму фігуру
+    private static ShapeFactory.ShapeType type(String name) {
+        return ShapeFactory.ShapeType.valueOf(name);
+    }
+
+    private static ShapeFactory.ShapeData shape(String[] params) {
+        return generator(type(params[0]), Integer.parseInt(params[1])).get();
+    }
+
+    // Метод генерує сферу з divisions x divisions поділами
+    private static ShapeFactory.ShapeData sphere(String divisions) {
+        int d = Integer.parseInt(divisions);
+        return ShapeFactory.generateSphere(d, d, 1.8);
+    }
+
+    // Метод повертає геометрію кадру фігури з обчисленими глибинами та списком видимих граней
+    private static FrameGeometry shadedGeometry(ShapeFactory.ShapeData shape) {
+        FrameGeometry geometry = new FrameGeometry();
+        geometry.transform(shape, ROTATION, FRAME_WIDTH, FRAME_HEIGHT, 100, true);
+        geometry.shade(shape, 0.4, 0.4, -0.8);
+        return geometry;
+    }
+
+    // Дані грані для попереднього варіанту сортування, як у колишньому класі FaceInfo
+    private static final class FaceInfo {
+        final int face;
+        final double depth;
+        final double brightness;
+        final int index;
+
+        FaceInfo(int face, double depth, double brightness, int index) {
+            this.face = face;
+            this.depth = depth;
+            this.brightness = brightness;
+            this.index = index;
+        }
+    }
+
+    // Попередній варіант сортування граней: на кожному кадрі для граней створюються об'єкти FaceInfo,
+    // список яких сортується компаратором за спаданням глибини
+    static List<FaceInfo> listSort(double[] depth, int[] faces, int count) {
+        List<FaceInfo> faceList = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            faceList.add(new FaceInfo(faces[i], depth[faces[i]], 1, faceList.size()));
+        }
+        faceList.sort((f1, f2) -> Double.compare(f2.depth, f1.depth));
+        return faceList;
+    }
+
+    // Послідовність глибин граней для кадрів, що перебираються по колу
+    // Глибина грані - координата z випадкової точки в кулі після повороту навколо осі Y. При nearlySorted
+    // кожен наступний кадр повернуто на FRAME_STEP відносно попереднього (туди й назад), тому порядок граней
+    // майже збігається з порядком попереднього кадру; інакше точки кожного кадру нові, і порядок випадковий
+    private static final class DepthFrames {
+        private static final int FRAMES = 8;
+        private static final double FRAME_STEP = Math.toRadians(0.5);
+        final int count;
+        private final double[][] depths = new double[FRAMES][];
+        private final int[] sequence;
+        private int next;
+
+        DepthFrames(int count, boolean nearlySorted) {
+            this.count = count;
+            Random random = new Random(42);
+            double[] x = new double[count], z = new double[count];
+            for (int f = 0; f < FRAMES; f++) {
+                if (f == 0 || !nearlySorted) {
+                    for (int i = 0; i < count; i++) {
+                        x[i] = random.nextDouble() * 2 - 1;
+                        z[i] = random.nextDouble() * 2 - 1;
+                    }
+                }
+                double angle = nearlySorted ? f * FRAME_STEP : 0;
+                double sin = Math.sin(angle), cos = Math.cos(angle);
+                depths[f] = new double[count];
+                for (int i = 0; i < count; i++) {
+                    depths[f][i] = z[i] * cos - x[i] * sin;
+                }
+            }
+            // Кадри 0, 1, ..., FRAMES - 1, FRAMES - 2, ..., 1: сусідні кадри завжди відрізняються на один крок
+            sequence = new int[FRAMES * 2 - 2];
+            for (int i = 0; i < sequence.length; i++) {
+                sequence[i] = i < FRAMES ? i : sequence.length - i;
+            }
+        }
+
+        // Метод повертає глибини наступного кадру
+        double[] next() {
+            double[] d = depths[sequence[next]];
+            next = (next + 1) % sequence.length;
+            return d;
+        }
+    }
+
+    // Попередній варіант формування ребер з ключами-рядками, збережений для порівняння
+    static int[] stringEdges(int[] faceOffsets, int[] faceIndices) {
+        Map<String, Integer> edgeIds = new HashMap<>();
+        int[] edges = new int[faceIndices.length * 2];
+        int edgeCount = 0;
+        for (int f = 0; f < faceOffsets.length - 1; f++) {
+            int start = faceOffsets[f];
+            int size = faceOffsets[f + 1] - start;
+            for (int i = 0; i < size; i++) {
+                int a = faceIndices[start + i];
+                int b = faceIndices[start + (i + 1) % size];
+                int min = Math.min(a, b);
+                int max = Math.max(a, b);
+                if (edgeIds.putIfAbsent(min + ":" + max, edgeCount) == null) {
+                    edges[edgeCount * 2] = min;
+                    edges[edgeCount * 2 + 1] = max;
+                    edgeCount++;
+                }
+            }
+        }
+        return Arrays.copyOf(edges, edgeCount * 2);
+    }
+
+    // Операція читання фігури з файлу
+    private interface ShapeReader {
+        ShapeFactory.ShapeData read() throws IOException;
+    }
+
+    // Метод читає фігуру з файлу, помилки читання перетворюються на неперевірені винятки
+    private static ShapeFactory.ShapeData read(ShapeReader reader) {
+        try {
+            return reader.read();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Метод записує фігуру у бінарний STL, чотирикутні грані розбиваються на два трикутники
+    private static void writeStl(ShapeFactory.ShapeData shape, Path path) throws IOException {
+        int triangles = 0;
+        for (int f = 0; f < shape.faceCount(); f++) {
+            triangles += shape.faceOffsets[f + 1] - shape.faceOffsets[f] - 2;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(84 + triangles * 50).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(80);
+        buffer.putInt(triangles);
+        for (int f = 0; f < shape.faceCount(); f++) {
+            int start = shape.faceOffsets[f];
+            for (int i = start + 1; i + 1 < shape.faceOffsets[f + 1]; i++) {
+                buffer.position(buffer.position() + 12);
+                for (int v : new int[] { shape.faceIndices[start], shape.faceIndices[i], shape.faceIndices[i + 1] }) {
+                    buffer.putFloat((float) shape.vertices[v * 3]);
+                    buffer.putFloat((float) shape.vertices[v * 3 + 1]);
+                    buffer.putFloat((float) shape.vertices[v * 3 + 2]);
+                }
+                buffer.putShort((short) 0);
+            }
+        }
+        Files.write(path, buffer.array());
+    }
+
+    // Метод записує фігуру у Wavefront OBJ
+    private static void writeObj(ShapeFactory.ShapeData shape, Path path) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int v = 0; v < shape.vertexCount(); v++) {
+            sb.append("v ").append(shape.vertices[v * 3]).append(' ').append(shape.vertices[v * 3 + 1]).append(' ')
+                    .append(shape.vertices[v * 3 + 2]).append('\n');
+        }
+        for (int f = 0; f < shape.faceCount(); f++) {
+            sb.append('f');
+            for (int i = shape.faceOffsets[f]; i < shape.faceOffsets[f + 1]; i++) {
+                sb.append(' ').append(shape.faceIndices[i] + 1).append("//1");
+            }
+            sb.append('\n');
+        }
+        Files.writeString(path, sb, StandardCharsets.US_ASCII);
+    }
+
+    // Метод повертає генератор фігури вказаного типу з кількістю поділів, збільшеною в level разів
+    static Supplier<ShapeFactory.ShapeData> generator(ShapeFactory.ShapeType type, int level) {
+        return switch (type) {
+            case CUBE -> ShapeFactory::generateCube;
+            case PYRAMID -> ShapeFactory::generatePyramid;
+            case TETRAHEDRON -> ShapeFactory::generateTetrahedron;
+            case OCTAHEDRON -> ShapeFactory::generateOctahedron;
+            case SPHERE -> () -> ShapeFactory.generateSphere(30 * level, 30 * level, 1.8);
+            case TORUS -> () -> ShapeFactory.generateTorus(24 * level, 12 * level, 1.5, 0.5);
+            case SURFACE -> () -> ShapeFactory.generateSurface(100 * level, 100 * level, 0.05 / level, 1.0);
+            case MESH -> throw new IllegalArgumentException("Сітки не генеруються");
+        };
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * OrientationDriftCheck
+ * Перевірка того, що орієнтація фігури не накопичує похибку за тривалу роботу програми
+ * Повторює кроки DrawPanel.advance: кожен крок додає до цільової орієнтації обертання автообертання
+ * змінної тривалості (як при нерівних інтервалах між кадрами), іноді - крок обертання з клавіатури, і наближає
+ * показану орієнтацію до цільової сферичною інтерполяцією. Кожні SAMPLE_STEPS кроків орієнтація перетворюється
+ * на матрицю, і перевіряється її відхилення від ортонормованої (Matrix3x3.orthonormalityError)
+ * Для порівняння той самий ланцюжок обертань накопичується множенням матриць, як до переходу на кватерніони
+ * Перевірка завершується з кодом 1, якщо похибка кватерніонної орієнтації перевищила MAX_ERROR
+ *
+ * Запуск (виконується також у складі gradle check):
+ *   gradle orientationCheck [-PorientationCheck.steps=20000000]
+ */
+
+import java.util.Locale;
+import java.util.Random;
+
+public class OrientationDriftCheck {
+    static final long DEFAULT_STEPS = 10_000_000L; // Кількість кроків за замовчуванням (понад 46 годин при 60 кадрах/с)
+    static final double MAX_ERROR = 1e-12; // Найбільша допустима похибка ортонормованості
+    private static final int SAMPLE_STEPS = 1000; // Період перевірки матриці, кроків
+    private static final double ROTATION_SPEED = Math.toRadians(60); // Швидкість автообертання, рад/с
+    private static final double SMOOTHING = 1 - Math.exp(-(1.0 / 60) / 0.05); // Частка повороту за кадр 60 Гц
+
+    // Точка входу; необов'язковий аргумент - кількість кроків
+    public static void main(String[] args) {
+        long steps = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_STEPS;
+        Random random = new Random(1);
+        Quaternion orientation = new Quaternion();
+        Quaternion target = new Quaternion();
+        Quaternion step = new Quaternion();
+        Quaternion keyStep = Quaternion.rotation(1, 0, 0, Math.toRadians(3));
+        Matrix3x3 matrix = new Matrix3x3();
+        Matrix3x3 accumulated = new Matrix3x3(); // Орієнтація, накопичена множенням матриць
+        Matrix3x3 stepMatrix = new Matrix3x3();
+        double maxError = 0;
+        long start = System.nanoTime();
+        for (long i = 1; i <= steps; i++) {
+            double seconds = (10 + random.nextInt(20)) / 1000.0; // Інтервал між кадрами 10..30 мс
+            step.setRotation(0, 1, 0, ROTATION_SPEED * seconds);
+            if (i % 97 == 0) {
+                step.premultiplyInPlace(keyStep);
+            }
+            orientation.premultiplyInPlace(step);
+            target.premultiplyInPlace(step);
+            accumulated.premultiplyInPlace(step.toMatrix(stepMatrix));
+            if (i % 89 == 0) {
+                target.premultiplyInPlace(keyStep); // Поворот з клавіатури, до якого орієнтація наближається плавно
+            }
+            orientation.setSlerp(orientation, target, SMOOTHING);
+            if (i % SAMPLE_STEPS == 0) {
+                maxError = Math.max(maxError, orientation.toMatrix(matrix).orthonormalityError());
+            }
+        }
+        maxError = Math.max(maxError, orientation.toMatrix(matrix).orthonormalityError());
+        System.out.printf(Locale.ROOT, "%d кроків за %.1f с: похибка кватерніона %.3e (межа %.0e), "
+                        + "похибка накопиченої матриці %.3e%n",
+                steps, (System.nanoTime() - start) / 1e9, maxError, MAX_ERROR, accumulated.orthonormalityError());
+        if (!(maxError <= MAX_ERROR)) {
+            System.err.println("Похибка ортонормованості перевищила допустиму");
+            System.exit(1);
+        }
+    }
+}
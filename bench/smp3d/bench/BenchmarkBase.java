@@ -0,0 +1,25 @@
+/*
+ * BenchmarkBase
+ * Спільні налаштування тестів JMH: середній час операції в наносекундах, одна окрема JVM без вікна,
+ * 3 ітерації розігріву та 5 вимірювальних ітерацій по 1 с
+ * Налаштування можна змінити параметрами командного рядка JMH (-f, -wi, -i, -w, -r)
+ */
+
+package smp3d.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public abstract class BenchmarkBase {
+}
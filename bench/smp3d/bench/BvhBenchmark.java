@@ -0,0 +1,53 @@
+/*
+ * BvhBenchmark
+ * Ієрархія граней сфери з divisions x divisions поділами: побудова, вибір грані під точкою екрану
+ * та відсікання з її використанням при великому наближенні, коли більша частина граней лежить поза екраном
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class BvhBenchmark extends BenchmarkBase {
+    @Param({ "30", "60", "120", "1000" })
+    public int divisions;
+
+    private Workload build;
+    private Workload pick;
+    private Workload cull;
+    private Workload cullBvh;
+
+    @Setup
+    public void setup() throws Exception {
+        build = Workload.create("bvh.build", String.valueOf(divisions));
+        pick = Workload.create("bvh.pick", String.valueOf(divisions));
+        cull = Workload.create("geometry.cull", String.valueOf(divisions));
+        cullBvh = Workload.create("geometry.cullBvh", String.valueOf(divisions));
+    }
+
+    @Benchmark
+    public void build(Blackhole bh) {
+        build.run(bh);
+    }
+
+    @Benchmark
+    public void pick(Blackhole bh) {
+        pick.run(bh);
+    }
+
+    @Benchmark
+    public void cull(Blackhole bh) {
+        cull.run(bh);
+    }
+
+    @Benchmark
+    public void cullBvh(Blackhole bh) {
+        cullBvh.run(bh);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * DepthOrderBenchmark
+ * Сортування за глибиною синтетичних наборів з faces граней трьома способами: попередній варіант
+ * (список об'єктів граней і компаратор), порозрядне сортування та доупорядкування порядку попереднього кадру
+ * order: random - глибини кожного кадру випадкові, nearlySorted - фігура між кадрами повертається на 0.5°
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class DepthOrderBenchmark extends BenchmarkBase {
+    @Param({ "10000", "100000", "1000000" })
+    public int faces;
+    @Param({ "random", "nearlySorted" })
+    public String order;
+
+    private Workload listSort;
+    private Workload radix;
+    private Workload incremental;
+
+    @Setup
+    public void setup() throws Exception {
+        listSort = Workload.create("depthSort.synthetic", String.valueOf(faces), order, "list");
+        radix = Workload.create("depthSort.synthetic", String.valueOf(faces), order, "radix");
+        incremental = Workload.create("depthSort.synthetic", String.valueOf(faces), order, "incremental");
+    }
+
+    @Benchmark
+    public void listSort(Blackhole bh) {
+        listSort.run(bh);
+    }
+
+    @Benchmark
+    public void radix(Blackhole bh) {
+        radix.run(bh);
+    }
+
+    @Benchmark
+    public void incremental(Blackhole bh) {
+        incremental.run(bh);
+    }
+}
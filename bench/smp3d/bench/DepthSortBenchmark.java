@@ -0,0 +1,48 @@
+/*
+ * DepthSortBenchmark
+ * Сортування граней фігур за глибиною: з нуля, з використанням порядку попереднього кадру та попередній
+ * варіант - список об'єктів граней і компаратор (синтетичні набори до 1 млн граней - DepthOrderBenchmark)
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class DepthSortBenchmark extends BenchmarkBase {
+    @Param({ "SPHERE", "SURFACE" })
+    public String shape;
+    @Param({ "1", "2", "4" })
+    public int level;
+
+    private Workload listSort;
+    private Workload radix;
+    private Workload incremental;
+
+    @Setup
+    public void setup() throws Exception {
+        listSort = Workload.create("depthSort.list", shape, String.valueOf(level));
+        radix = Workload.create("depthSort.radix", shape, String.valueOf(level));
+        incremental = Workload.create("depthSort.incremental", shape, String.valueOf(level));
+    }
+
+    @Benchmark
+    public void listSort(Blackhole bh) {
+        listSort.run(bh);
+    }
+
+    @Benchmark
+    public void radix(Blackhole bh) {
+        radix.run(bh);
+    }
+
+    @Benchmark
+    public void incremental(Blackhole bh) {
+        incremental.run(bh);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * EdgesBenchmark
+ * Формування ребер: хеш-таблиця ключів long (послідовно та паралельно) і попередній варіант з рядками
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class EdgesBenchmark extends BenchmarkBase {
+    @Param({ "SPHERE", "SURFACE" })
+    public String shape;
+    @Param({ "1", "2", "4" })
+    public int level;
+
+    private Workload packedLong;
+    private Workload packedLongParallel;
+    private Workload string;
+
+    @Setup
+    public void setup() throws Exception {
+        packedLong = Workload.create("edges.long", shape, String.valueOf(level));
+        packedLongParallel = Workload.create("edges.longParallel", shape, String.valueOf(level));
+        string = Workload.create("edges.string", shape, String.valueOf(level));
+    }
+
+    @Benchmark
+    public void packedLong(Blackhole bh) {
+        packedLong.run(bh);
+    }
+
+    @Benchmark
+    public void packedLongParallel(Blackhole bh) {
+        packedLongParallel.run(bh);
+    }
+
+    @Benchmark
+    public void string(Blackhole bh) {
+        string.run(bh);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * FrameBenchmark
+ * Повний кадр, намальований без вікна в BufferedImage 800 x 600
+ * mode - спосіб малювання граней і тип відображення; засобами Graphics2D кадр малюється як пакетно,
+ * так і окремими викликами для кожної грані (unbatched)
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class FrameBenchmark extends BenchmarkBase {
+    @Param({ "CUBE", "PYRAMID", "TETRAHEDRON", "OCTAHEDRON", "SPHERE", "TORUS", "SURFACE" })
+    public String shape;
+    @Param({ "GRAPHICS2D:WIREFRAME", "GRAPHICS2D:WIREFRAME:unbatched", "GRAPHICS2D:POLYGONS",
+            "GRAPHICS2D:POLYGONS:unbatched", "GRAPHICS2D:ILLUMINATED", "GRAPHICS2D:ILLUMINATED:unbatched",
+            "ZBUFFER:POLYGONS", "ZBUFFER:ILLUMINATED", "ZBUFFER:SMOOTH" })
+    public String mode;
+
+    private Workload render;
+
+    @Setup
+    public void setup() throws Exception {
+        render = Workload.create("frame", shape, mode);
+    }
+
+    @Benchmark
+    public void render(Blackhole bh) {
+        render.run(bh);
+    }
+}
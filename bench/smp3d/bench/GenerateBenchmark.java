@@ -0,0 +1,34 @@
+/*
+ * GenerateBenchmark
+ * Генерація фігур з параметрами тесселяції: кількість поділів збільшена в level разів відносно
+ * значень за замовчуванням
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class GenerateBenchmark extends BenchmarkBase {
+    @Param({ "SPHERE", "TORUS", "SURFACE" })
+    public String shape;
+    @Param({ "1", "2", "4" })
+    public int level;
+
+    private Workload generate;
+
+    @Setup
+    public void setup() throws Exception {
+        generate = Workload.create("generate", shape, String.valueOf(level));
+    }
+
+    @Benchmark
+    public void generate(Blackhole bh) {
+        generate.run(bh);
+    }
+}
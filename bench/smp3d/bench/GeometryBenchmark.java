@@ -0,0 +1,40 @@
+/*
+ * GeometryBenchmark
+ * Обертання і проекція вершин, відсікання та освітлення граней
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class GeometryBenchmark extends BenchmarkBase {
+    @Param({ "SPHERE", "SURFACE" })
+    public String shape;
+    @Param({ "1", "2", "4" })
+    public int level;
+
+    private Workload transform;
+    private Workload cullAndShade;
+
+    @Setup
+    public void setup() throws Exception {
+        transform = Workload.create("geometry.transform", shape, String.valueOf(level));
+        cullAndShade = Workload.create("geometry.cullAndShade", shape, String.valueOf(level));
+    }
+
+    @Benchmark
+    public void transform(Blackhole bh) {
+        transform.run(bh);
+    }
+
+    @Benchmark
+    public void cullAndShade(Blackhole bh) {
+        cullAndShade.run(bh);
+    }
+}
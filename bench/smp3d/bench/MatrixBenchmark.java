@@ -0,0 +1,62 @@
+/*
+ * MatrixBenchmark
+ * Операції з матрицями, кватерніонами та точками для одного кроку обертання
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class MatrixBenchmark extends BenchmarkBase {
+    private Workload multiply;
+    private Workload premultiplyInPlace;
+    private Workload applyTo;
+    private Workload project;
+    private Workload quaternionPremultiplyInPlace;
+    private Workload quaternionToMatrix;
+
+    @Setup
+    public void setup() throws Exception {
+        multiply = Workload.create("matrix.multiply");
+        premultiplyInPlace = Workload.create("matrix.premultiplyInPlace");
+        applyTo = Workload.create("matrix.applyTo");
+        project = Workload.create("point.project");
+        quaternionPremultiplyInPlace = Workload.create("quaternion.premultiplyInPlace");
+        quaternionToMatrix = Workload.create("quaternion.toMatrix");
+    }
+
+    @Benchmark
+    public void multiply(Blackhole bh) {
+        multiply.run(bh);
+    }
+
+    @Benchmark
+    public void premultiplyInPlace(Blackhole bh) {
+        premultiplyInPlace.run(bh);
+    }
+
+    @Benchmark
+    public void applyTo(Blackhole bh) {
+        applyTo.run(bh);
+    }
+
+    @Benchmark
+    public void project(Blackhole bh) {
+        project.run(bh);
+    }
+
+    @Benchmark
+    public void quaternionPremultiplyInPlace(Blackhole bh) {
+        quaternionPremultiplyInPlace.run(bh);
+    }
+
+    @Benchmark
+    public void quaternionToMatrix(Blackhole bh) {
+        quaternionToMatrix.run(bh);
+    }
+}
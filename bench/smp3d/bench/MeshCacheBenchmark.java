@@ -0,0 +1,33 @@
+/*
+ * MeshCacheBenchmark
+ * Читання фігур з файлу дискового кешу, для порівняння з їх генерацією (GenerateBenchmark)
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class MeshCacheBenchmark extends BenchmarkBase {
+    @Param({ "SPHERE", "TORUS", "SURFACE" })
+    public String shape;
+    @Param({ "1", "2", "4" })
+    public int level;
+
+    private Workload read;
+
+    @Setup
+    public void setup() throws Exception {
+        read = Workload.create("meshCache.read", shape, String.valueOf(level));
+    }
+
+    @Benchmark
+    public void read(Blackhole bh) {
+        read.run(bh);
+    }
+}
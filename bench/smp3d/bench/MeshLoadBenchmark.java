@@ -0,0 +1,34 @@
+/*
+ * MeshLoadBenchmark
+ * Завантаження сітки з файлів STL та OBJ, записаних з тесельованої сфери 240 x 240
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class MeshLoadBenchmark extends BenchmarkBase {
+    private Workload loadStl;
+    private Workload loadObj;
+
+    @Setup
+    public void setup() throws Exception {
+        loadStl = Workload.create("mesh.loadStl");
+        loadObj = Workload.create("mesh.loadObj");
+    }
+
+    @Benchmark
+    public void loadStl(Blackhole bh) {
+        loadStl.run(bh);
+    }
+
+    @Benchmark
+    public void loadObj(Blackhole bh) {
+        loadObj.run(bh);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * PolyhedronBenchmark
+ * Генерація многогранників, що не мають параметрів тесселяції
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class PolyhedronBenchmark extends BenchmarkBase {
+    @Param({ "CUBE", "PYRAMID", "TETRAHEDRON", "OCTAHEDRON" })
+    public String shape;
+
+    private Workload generate;
+
+    @Setup
+    public void setup() throws Exception {
+        generate = Workload.create("generate", shape, "1");
+    }
+
+    @Benchmark
+    public void generate(Blackhole bh) {
+        generate.run(bh);
+    }
+}
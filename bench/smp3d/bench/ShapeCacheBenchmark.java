@@ -0,0 +1,31 @@
+/*
+ * ShapeCacheBenchmark
+ * Повторний запит фігури, що вже є в кеші фігур у пам'яті
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class ShapeCacheBenchmark extends BenchmarkBase {
+    @Param({ "SPHERE", "TORUS", "SURFACE" })
+    public String shape;
+
+    private Workload hit;
+
+    @Setup
+    public void setup() throws Exception {
+        hit = Workload.create("shapeCache.hit", shape);
+    }
+
+    @Benchmark
+    public void hit(Blackhole bh) {
+        hit.run(bh);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * SimplifyBenchmark
+ * Спрощення сфери за квадрикою похибки до чверті трикутників
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class SimplifyBenchmark extends BenchmarkBase {
+    @Param({ "1", "2", "4" })
+    public int level;
+
+    private Workload simplify;
+
+    @Setup
+    public void setup() throws Exception {
+        simplify = Workload.create("mesh.simplify", String.valueOf(level));
+    }
+
+    @Benchmark
+    public void simplify(Blackhole bh) {
+        simplify.run(bh);
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Workload
+ * Операція, час виконання якої вимірюють тести JMH цього пакету
+ * JMH не приймає тести в пакеті за замовчуванням, а класи програми знаходяться саме там і не можуть бути
+ * імпортовані з іменованого пакету. Тому тести лише задають параметри і викликають операцію, а саму операцію
+ * будує клас Benchmarks з пакету за замовчуванням (він може імпортувати цей інтерфейс)
+ * Кожен тест виконується в окремій JVM, тому виклик операції в ній завжди мономорфний і вбудовується JIT
+ */
+
+package smp3d.bench;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+public interface Workload {
+    // Метод виконує операцію один раз, її результат передається в bh, щоб JIT не видалив обчислення
+    void run(Blackhole bh);
+
+    // Фабрика операцій, яку реалізує клас Benchmarks з пакету за замовчуванням
+    interface Factory {
+        // Метод будує операцію з назвою name для тесту з параметрами params
+        Workload create(String name, String... params) throws Exception;
+    }
+
+    // Метод будує операцію фабрикою Benchmarks; клас з пакету за замовчуванням доступний лише через відображення
+    static Workload create(String name, String... params) throws Exception {
+        Factory factory = (Factory) Class.forName("Benchmarks").getDeclaredConstructor().newInstance();
+        return factory.create(name, params);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * BatchRenderer
+ * Програма для малювання послідовності кадрів обертання фігури у файли PNG без вікна
+ * Кадри малюються паралельно пулом потоків, кожен з яких має власний Renderer і власне зображення
+ *
+ * Запуск:
+ *   java -cp out BatchRenderer [--shape SPHERE] [--frames 36] [--size 800x600] [--view ILLUMINATED]
+ *        [--projection ORTHOGONAL] [--backend GRAPHICS2D] [--threads N] [--out frames]
+ */
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BatchRenderer {
+    private static final double PERSPECTIVE_SCALE = 250; // Коефіцієнт наближення для перспективної проекції
+    private static final double ORTHOGRAPHIC_SCALE = 100; // Коефіцієнт наближення для ортогональної проекції
+
+    // Точка входу
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        ShapeFactory.ShapeType shapeType = ShapeFactory.ShapeType.SPHERE;
+        int frames = 36;
+        int width = 800, height = 600;
+        Renderer.ShapeView view = Renderer.ShapeView.ILLUMINATED;
+        Renderer.ProjectionType projection = Renderer.ProjectionType.ORTHOGONAL;
+        Renderer.RenderBackend backend = Renderer.RenderBackend.GRAPHICS2D;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File outDir = new File("frames");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--shape" -> shapeType = ShapeFactory.ShapeType.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                case "--frames" -> frames = Integer.parseInt(args[++i]);
+                case "--size" -> {
+                    String[] size = args[++i].split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                }
+                case "--view" -> view = Renderer.ShapeView.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                case "--projection" -> projection = Renderer.ProjectionType.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                case "--backend" -> backend = Renderer.RenderBackend.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--out" -> outDir = new File(args[++i]);
+                default -> throw new IllegalArgumentException("Невідомий параметр: " + args[i]);
+            }
+        }
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IOException("Не вдалося створити каталог " + outDir);
+        }
+
+        ShapeFactory.ShapeData shape = ShapeFactory.generate(shapeType);
+        render(shape, frames, width, height, view, projection, backend, threads, outDir);
+    }
+
+    // Метод малює frames кадрів повного оберту фігури навколо осі Y і зберігає їх у каталог outDir
+    static void render(ShapeFactory.ShapeData shape, int frames, int width, int height, Renderer.ShapeView view,
+                       Renderer.ProjectionType projection, Renderer.RenderBackend backend, int threads, File outDir)
+            throws Exception {
+        Matrix3x3 initial = Matrix3x3.rotationX(-Math.PI / 2).multiply(Matrix3x3.rotationY(-Math.PI / 4));
+        double[] lightDir = { 0.5, 0.5, -1 };
+        double scale = projection == Renderer.ProjectionType.PERSPECTIVE ? PERSPECTIVE_SCALE : ORTHOGRAPHIC_SCALE;
+
+        // Кожен потік пулу повторно використовує власний Renderer та зображення
+        ThreadLocal<Renderer> renderers = ThreadLocal.withInitial(() -> {
+            Renderer r = new Renderer();
+            r.backend = backend;
+            r.scale = scale;
+            return r;
+        });
+        ThreadLocal<BufferedImage> images = ThreadLocal.withInitial(
+                () -> new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+        AtomicLong renderNanos = new AtomicLong(); // Сумарний час малювання кадрів усіма потоками
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> results = new ArrayList<>(frames);
+            for (int i = 0; i < frames; i++) {
+                int frame = i;
+                results.add(pool.submit(() -> {
+                    Matrix3x3 orientation = Matrix3x3.rotationY(2 * Math.PI * frame / frames).multiply(initial);
+                    BufferedImage image = images.get();
+                    long t0 = System.nanoTime();
+                    renderers.get().render(image, shape, orientation, projection, view, lightDir);
+                    renderNanos.addAndGet(System.nanoTime() - t0);
+                    ImageIO.write(image, "png", new File(outDir, String.format("frame_%04d.png", frame)));
+                    return null;
+                }));
+            }
+            for (Future<?> f : results) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(Locale.ROOT, "Кадрів: %d, потоків: %d, час: %.2f с, %.1f кадрів/с (з записом PNG)%n",
+                frames, threads, seconds, frames / seconds);
+        System.out.printf(Locale.ROOT, "Середній час малювання кадру: %.2f мс%n", renderNanos.get() / 1e6 / frames);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+/*
+ * DepthSorter
+ * Клас для сортування граней від найбільш віддалених до найбільш наближених
+ * Сортує масив індексів граней за їх глибиною без створення об'єктів на кожному кадрі
+ * Глибини перетворюються на цілі 64-бітні ключі, порядок яких збігається з порядком Double.compare,
+ * і сортуються порозрядно (LSD radix sort). Якщо між кадрами фігура повернулась незначно,
+ * порядок попереднього кадру майже правильний і його достатньо доупорядкувати сортуванням вставками
+ */
+
+class DepthSorter {
+    private static final int INSERTION_THRESHOLD = 64; // Кількість граней, до якої завжди використовується сортування вставками
+    private static final int INCREMENTAL_MOVES_PER_FACE = 4; // Допустима середня кількість зсувів на грань при доупорядкуванні
+    private static final int INCREMENTAL_BACKOFF = 8; // Кількість кадрів без спроб доупорядкування після невдалої спроби
+
+    // Спосіб, яким було відсортовано грані в останньому кадрі
+    enum Mode { INSERTION, RADIX, INCREMENTAL }
+
+    boolean incremental = true; // Ознака використання порядку попереднього кадру
+    Mode lastMode = Mode.INSERTION; // Спосіб сортування в останньому кадрі
+
+    private int[] order = new int[0]; // Індекси граней у порядку малювання
+    private int[] buffer = new int[0]; // Допоміжний масив для порозрядного сортування
+    private long[] keys = new long[0]; // Ключі сортування граней, що відповідають елементам order
+    private long[] keyBuffer = new long[0];
+    private final int[] counts = new int[8 * 256]; // Кількість ключів з кожним значенням кожного байта
+
+    // Дані попереднього кадру для доупорядкування
+    private int[] previous = new int[0]; // Порядок граней попереднього кадру
+    private int previousCount;
+    private int[] visibleStamp = new int[0]; // Номер кадру, в якому грань була видимою
+    private int[] placedStamp = new int[0]; // Номер кадру, в якому грань вже додано до порядку
+    private int frame;
+    private int backoff; // Кількість кадрів, що залишились до наступної спроби доупорядкування
+
+    // Метод повертає масив з перших count індексів граней списку faces, відсортований за спаданням глибини
+    // Грані з однаковою глибиною йдуть у порядку зростання індексу, тому для списку faces у зростаючому порядку
+    // результат збігається з List.sort((f1, f2) -> Double.compare(f2.depth, f1.depth))
+    int[] sort(double[] depth, int[] faces, int count) {
+        if (order.length < count) {
+            order = new int[count];
+            buffer = new int[count];
+            keys = new long[count];
+            keyBuffer = new long[count];
+        }
+
+        if (count <= INSERTION_THRESHOLD) {
+            System.arraycopy(faces, 0, order, 0, count);
+            for (int i = 0; i < count; i++) {
+                keys[i] = key(depth[order[i]]);
+            }
+            insertionSort(count, Long.MAX_VALUE);
+            lastMode = Mode.INSERTION;
+        } else if (!incremental || backoff > 0 || !sortIncremental(depth, faces, count)) {
+            if (backoff > 0) {
+                backoff--;
+            } else if (incremental) {
+                backoff = INCREMENTAL_BACKOFF; // порядок змінюється швидко, тому деякий час не пробуємо його використати
+            }
+            System.arraycopy(faces, 0, order, 0, count);
+            for (int i = 0; i < count; i++) {
+                keys[i] = key(depth[order[i]]);
+            }
+            radixSort(count);
+            lastMode = Mode.RADIX;
+        } else {
+            lastMode = Mode.INCREMENTAL;
+        }
+
+        if (incremental) {
+            if (previous.length < count) {
+                previous = new int[order.length];
+            }
+            System.arraycopy(order, 0, previous, 0, count);
+            previousCount = count;
+        }
+        return order;
+    }
+
+    // Метод перетворює глибину на ключ: більша глибина дає менший ключ (при порівнянні без знаку),
+    // а порядок ключів збігається з порядком Double.compare, включно з -0.0 < 0.0 та NaN
+    static long key(double depth) {
+        long bits = Double.doubleToLongBits(depth);
+        return ~(bits ^ ((bits >> 63) | Long.MIN_VALUE));
+    }
+
+    // Метод будує порядок з порядку попереднього кадру: залишає в ньому видимі зараз грані,
+    // додає в кінець грані, що стали видимими, і доупорядковує результат вставками
+    // Повертає false, якщо порядок змінився занадто сильно і вигідніше порозрядне сортування
+    private boolean sortIncremental(double[] depth, int[] faces, int count) {
+        if (previousCount == 0) return false;
+        int faceLimit = 0;
+        for (int i = 0; i < count; i++) {
+            faceLimit = Math.max(faceLimit, faces[i] + 1);
+        }
+        if (visibleStamp.length < faceLimit) {
+            visibleStamp = new int[faceLimit];
+            placedStamp = new int[faceLimit];
+            frame = 0;
+        }
+        frame++;
+        for (int i = 0; i < count; i++) {
+            visibleStamp[faces[i]] = frame;
+        }
+
+        int n = 0;
+        for (int i = 0; i < previousCount; i++) {
+            int f = previous[i];
+            if (f < faceLimit && visibleStamp[f] == frame) {
+                order[n++] = f;
+                placedStamp[f] = frame;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (placedStamp[faces[i]] != frame) {
+                order[n++] = faces[i];
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            keys[i] = key(depth[order[i]]);
+        }
+        return insertionSort(count, (long) count * INCREMENTAL_MOVES_PER_FACE);
+    }
+
+    // Сортування вставками за ключем, а для однакових ключів - за індексом грані
+    // Припиняється і повертає false, якщо кількість зсувів перевищила maxMoves
+    private boolean insertionSort(int count, long maxMoves) {
+        long moves = 0;
+        for (int i = 1; i < count; i++) {
+            long k = keys[i];
+            int f = order[i];
+            int j = i - 1;
+            while (j >= 0 && (Long.compareUnsigned(keys[j], k) > 0 || (keys[j] == k && order[j] > f))) {
+                keys[j + 1] = keys[j];
+                order[j + 1] = order[j];
+                j--;
+            }
+            moves += i - 1 - j;
+            if (moves > maxMoves) return false;
+            keys[j + 1] = k;
+            order[j + 1] = f;
+        }
+        return true;
+    }
+
+    // Порозрядне сортування за зростанням ключів без знаку, по одному байту за прохід
+    // Кожен прохід стабільний, тому грані з однаковою глибиною зберігають вхідний порядок
+    // Проходи, в яких відповідний байт однаковий у всіх ключів, пропускаються
+    private void radixSort(int count) {
+        java.util.Arrays.fill(counts, 0);
+        for (int i = 0; i < count; i++) {
+            long k = keys[i];
+            for (int b = 0; b < 8; b++) {
+                counts[b * 256 + (int) ((k >>> (b * 8)) & 0xFF)]++;
+            }
+        }
+
+        long[] srcKeys = keys, dstKeys = keyBuffer;
+        int[] src = order, dst = buffer;
+        for (int b = 0; b < 8; b++) {
+            int base = b * 256;
+            int shift = b * 8;
+            if (counts[base + (int) ((srcKeys[0] >>> shift) & 0xFF)] == count) continue;
+
+            // Перетворюємо кількості на початкові позиції
+            int sum = 0;
+            for (int d = 0; d < 256; d++) {
+                int c = counts[base + d];
+                counts[base + d] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < count; i++) {
+                long k = srcKeys[i];
+                int pos = counts[base + (int) ((k >>> shift) & 0xFF)]++;
+                dstKeys[pos] = k;
+                dst[pos] = src[i];
+            }
+            long[] tk = srcKeys; srcKeys = dstKeys; dstKeys = tk;
+            int[] t = src; src = dst; dst = t;
+        }
+        keys = srcKeys;
+        keyBuffer = dstKeys;
+        order = src;
+        buffer = dst;
+    }
+}
\ No newline at end of file
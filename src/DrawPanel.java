@@ -1,230 +1,736 @@
 /*
  * DrawPanel
  * Клас що відповідає за візуалізацію та процес керування фігурою
+ * Саме малювання фігури виконує клас Renderer
+ *
+ * Кадри малюються одним з двох способів:
+ *  - за таймером javax.swing.Timer через repaint() (за замовчуванням); таймер працює лише поки фігура
+ *    обертається або плавно повертається до цільової орієнтації, інакше кадр планують зміни стану;
+ *  - в активному режимі - окремим потоком малювання у Canvas через BufferStrategy з заданою частотою кадрів
+ *    або без обмеження. Стан фігури в цьому режимі змінює лише потік малювання: обробники клавіш
+ *    передають йому команди через чергу
+ * В обох режимах автообертання залежить від часу, що минув між кадрами, а не від кількості кадрів
+ *
+ * Кадр малюється заново лише тоді, коли з часу попереднього кадру змінився стан, що на нього впливає
+ * (орієнтація, масштаб, світло, фігура, режими відображення, розмір вікна). Кілька змін між кадрами
+ * дають один кадр, а в решті випадків на екран копіюється збережене зображення попереднього кадру
  */
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.List;
-import java.util.ArrayList;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
 class DrawPanel extends JPanel implements KeyListener, ActionListener {
-    public enum ShapeView { WIREFRAME, POLYGONS, ILLUMINATED } // Тип відображення фігури
-    public enum ProjectionType { ORTHOGONAL, PERSPECTIVE } // Тип проекції
-
     private final double rotationStep = Math.toRadians(3); // Крок обертання фігури (3 градуси на крок)
+    // Кватерніони обертання на один крок навколо кожної осі, обчислені один раз
+    private final Quaternion stepXPos = Quaternion.rotation(1, 0, 0, rotationStep);
+    private final Quaternion stepXNeg = Quaternion.rotation(1, 0, 0, -rotationStep);
+    private final Quaternion stepYPos = Quaternion.rotation(0, 1, 0, rotationStep);
+    private final Quaternion stepYNeg = Quaternion.rotation(0, 1, 0, -rotationStep);
+    private final Quaternion stepZPos = Quaternion.rotation(0, 0, 1, rotationStep);
+    private final Quaternion stepZNeg = Quaternion.rotation(0, 0, 1, -rotationStep);
+    private final Quaternion autoStep = new Quaternion(); // Обертання автообертання на поточному кроці
+    private static final double SMOOTHING_SECONDS = 0.05; // Стала часу плавного повороту до orientationTarget
+    private static final double SNAP_ANGLE = 1e-6; // Кут, менше якого поворот до orientationTarget завершується
+    private final double rotationSpeed = Math.toRadians(90); // Швидкість автообертання, радіан за секунду
+    private static final double MAX_FRAME_SECONDS = 0.1; // Найбільший крок часу автообертання після затримки кадру
+    private static final long SPIN_NANOS = 1_000_000; // Останню мілісекунду очікування кадру потік не засинає
+    private static final int STATS_FRAMES = 600; // Кількість останніх кадрів для обчислення процентилів
+    private static final long IDLE_REFRESH_NANOS = 250_000_000; // Період відновлення зображення в активному режимі без змін
     private final double perspectiveScale = 250; // Початковий коефіцієнт наближення для перспективної проекції
     private final double orthographicScale = 100; // Початковий коефіцієнт наближення для ортогональної проекції
-    private final Color vertexColor = new Color(255, 255, 0); // Колір вершин
-    private final Color edgeColor = new Color(255, 204, 0); // Колір ребер
-    private final Color faceColor = new Color(255, 255, 204); // Колір граней
     private final double[] lightDir = {0.5, 0.5, -1}; // Початкові координати джерела світла
 
-    ShapeFactory.ShapeData currentShape; // Дані поточної фігури
+    LodChain currentShape; // Рівні деталізації поточної фігури
+    private int lodLevel; // Рівень деталізації, намальований на останньому кадрі
+    private LodChain lodShape; // Фігура, до якої належить lodLevel
+    // Плавний перехід між рівнями деталізації: протягом LodChain.FADE_NANOS після перемикання попередній рівень
+    // малюється окремим об'єктом fadeRenderer, а поверх нього з прозорістю, що зменшується, - новий рівень
+    private final Renderer fadeRenderer = new Renderer();
+    private LodChain fadeShape; // Фігура, для якої триває перехід (null, якщо переходу немає)
+    private int fadeLevel; // Рівень, від якого триває перехід
+    private long fadeStart; // Час початку переходу, нс
+    private BufferedImage fadeImage; // Прозоре зображення, в яке малюється новий рівень під час переходу
+    private LodChain loadedMesh; // Сітка, завантажена з файлу (null, якщо файл не вказано)
+    private final TerrainStreamer terrain; // Ландшафт, що читається з файлу частинами (null, якщо файл не вказано)
+    private LodChain terrainShape; // Сітка ландшафту для поточного поля зору
+    private double terrainX, terrainY; // Центр поля зору на ландшафті
     private double scale; // Поточний коефіцієнт наближення
-    ShapeView shapeView = ShapeView.WIREFRAME; // Поточний тип відображення фігури
-    ProjectionType projectionType = ProjectionType.ORTHOGONAL; // Поточний тип проекції
+    Renderer.ShapeView shapeView = Renderer.ShapeView.WIREFRAME; // Поточний тип відображення фігури
+    Renderer.ProjectionType projectionType = Renderer.ProjectionType.ORTHOGONAL; // Поточний тип проекції
     private boolean autoRotating = true; // Ознака автообертання фігури
     private boolean showDebug = false; // Ознака виводу налагоджувальної інформації
-    private Timer timer; // Таймер для автообертання
-    private Matrix3x3 rotationMatrix; // Поточна матриця обертання фігури
+    // Фігури з такою кількістю граней і більше отримують ієрархію граней для відсікання, побудовану у фоновому потоці
+    private static final int BVH_MIN_FACES = 10_000;
+    private int mouseX = -1, mouseY = -1; // Положення миші на панелі (-1, якщо миша поза панеллю)
+    private FaceBvh.Hit pickedHit; // Грань і вершина під мишею на останньому кадрі (null, якщо немає)
+    private long pickNanos = -1; // Тривалість останнього вибору грані під мишею, нс (-1, якщо вибір не виконувався)
+    private Timer timer; // Таймер для автообертання і плавного повороту (null в активному режимі), стоїть у спокої
+    private long lastTick; // Час попереднього кроку автообертання, нс
+    // Орієнтація фігури зберігається кватерніоном: показана на екрані та та, до якої вона плавно повертається
+    // після натискання клавіш; матриця обертання обчислюється з показаної орієнтації один раз на кадр
+    private final Quaternion orientation = new Quaternion();
+    private final Quaternion orientationTarget = new Quaternion();
+    private final Matrix3x3 rotationMatrix = new Matrix3x3(); // Поточна матриця обертання фігури
+    private String statusText; // Рядок з поточним станом програми
+    final Renderer renderer = new Renderer(); // Об'єкт, що малює фігуру
+
+    // Активний режим малювання
+    private final int targetFps; // Бажана частота кадрів (0 - без обмеження)
+    private final Canvas canvas; // Полотно, в яке малює потік малювання (null у режимі таймера)
+    private Thread renderThread; // Потік малювання
+    private volatile boolean running; // Ознака роботи потоку малювання
+    private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>(); // Команди для потоку малювання
+
+    // Статистика кадрів
+    final FrameStats frameIntervals = new FrameStats(STATS_FRAMES); // Інтервали між початками кадрів
+    final FrameStats renderTimes = new FrameStats(STATS_FRAMES); // Тривалості малювання кадрів
+    private long lastFrameStart; // Час початку попереднього кадру, нс (0, якщо попередній кадр було пропущено)
+    long framesRendered; // Кількість намальованих кадрів
+    long framesSkipped; // Кількість кадрів, замість яких показано збережене зображення
+
+    // Збережене зображення останнього кадру та стан, з яким його намальовано
+    private Image frameImage; // VolatileImage, якщо прискорені зображення доступні, інакше BufferedImage
+    private boolean frameRequested; // Ознака того, що перемальовування вже заплановано (режим таймера)
+    private final Matrix3x3 drawnRotation = new Matrix3x3();
+    private double drawnScale;
+    private final double[] drawnLight = new double[3];
+    private Renderer.ShapeView drawnView;
+    private Renderer.ProjectionType drawnProjection;
+    private LodChain drawnShape;
+    private Renderer.RenderBackend drawnBackend;
+    private boolean drawnCulling, drawnBatched, drawnDebug, drawnProfiling;
+    private Renderer.RenderQuality drawnQuality;
+    private int drawnWidth, drawnHeight;
+    private int drawnMouseX, drawnMouseY;
+    private FaceBvh drawnBvh;
 
     // Конструктор
     public DrawPanel() {
+        this(null, null, false, 0);
+    }
+
+    // Конструктор з сіткою, завантаженою з файлу, яка показується першою і входить до переліку фігур
+    // Поки сітка показується повністю, її рівні деталізації будуються у фоновому потоці
+    // Якщо задано ландшафт terrain, першим показується він, а його плитки читаються в міру переміщення поля зору
+    // activeRendering вмикає активний режим малювання з частотою targetFps кадрів за секунду (0 - без обмеження)
+    public DrawPanel(ShapeFactory.ShapeData mesh, TerrainStreamer terrain, boolean activeRendering, int targetFps) {
         setBackground(Color.BLACK);
         setFocusable(true);
         addKeyListener(this);
+        this.targetFps = targetFps;
+        if (activeRendering) {
+            canvas = new Canvas();
+            canvas.setIgnoreRepaint(true);
+            canvas.setBackground(Color.BLACK);
+            canvas.setFocusable(true);
+            canvas.addKeyListener(this);
+            setLayout(new BorderLayout());
+            add(canvas, BorderLayout.CENTER);
+        } else {
+            canvas = null;
+        }
+
+        // Положення миші потрібне для виділення грані під нею при налагодженні
+        // Стан фігури змінює той самий потік, що й обробники клавіш, тому положення передається через post
+        MouseAdapter mouseTracker = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                int x = e.getX(), y = e.getY();
+                post(() -> { mouseX = x; mouseY = y; });
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                mouseMoved(e);
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                post(() -> { mouseX = -1; mouseY = -1; });
+            }
+        };
+        Component mouseSource = canvas != null ? canvas : this;
+        mouseSource.addMouseListener(mouseTracker);
+        mouseSource.addMouseMotionListener(mouseTracker);
 
         // Задаємо початкове обертання фігури
-        rotationMatrix = Matrix3x3.rotationX(-Math.PI / 2).multiply(Matrix3x3.rotationY(-Math.PI / 4));
+        orientation.set(Quaternion.rotation(0, 1, 0, -Math.PI / 4))
+                .premultiplyInPlace(Quaternion.rotation(1, 0, 0, -Math.PI / 2));
+        orientationTarget.set(orientation);
+        orientation.toMatrix(rotationMatrix);
 
         // Генеруємо початкову фігуру
-        currentShape = ShapeFactory.generate(ShapeFactory.ShapeType.CUBE);
+        loadedMesh = mesh != null ? new LodChain(mesh) : null;
+        currentShape = mesh != null ? loadedMesh : ShapeFactory.generateLods(ShapeFactory.ShapeType.CUBE);
+        if (mesh != null) {
+            LodChain.simplifyAsync(mesh).thenAccept(
+                    chain -> SwingUtilities.invokeLater(() -> post(() -> setMeshLods(chain))));
+        }
+        this.terrain = terrain;
+        if (terrain != null) {
+            terrainX = terrain.sizeX() / 2;
+            terrainY = terrain.sizeY() / 2;
+            terrain.update(terrainX, terrainY, 1, 1); // Поки розмір вікна невідомий, достатньо найгрубішої плитки
+            terrainShape = new LodChain(terrain.shape());
+            currentShape = terrainShape;
+            // Ландшафт спершу видно згори під кутом і без автообертання, яке повертало б його ребром до глядача
+            orientation.set(Quaternion.rotation(1, 0, 0, Math.PI * 3 / 4));
+            orientationTarget.set(orientation);
+            orientation.toMatrix(rotationMatrix);
+            autoRotating = false;
+            // Після читання плиток сітка складається заново потоком, що змінює стан фігури
+            terrain.setOnLoad(() -> SwingUtilities.invokeLater(() -> post(this::refreshTerrain)));
+        }
+        updateStatusText();
 
         // В становлюємо коеф.наближення в залежності від типу проекції
-        scale = projectionType == ProjectionType.PERSPECTIVE ? perspectiveScale : orthographicScale;
+        scale = projectionType == Renderer.ProjectionType.PERSPECTIVE ? perspectiveScale : orthographicScale;
 
-        // Запускаємо таймер автообертання фігури
-        timer = new Timer(33, this); // ~30 FPS
-        timer.start();
+        // Запускаємо таймер автообертання фігури (в активному режимі обертання виконує потік малювання)
+        lastTick = System.nanoTime();
+        if (canvas == null) {
+            timer = new Timer(33, this); // ~30 FPS
+            timer.start();
+        }
     }
 
-    // Метод для обчислення нормалі до площини (грані), заданої трьома точками у 3D-просторі
-    // Використовується для обчислення яскравості освітленої грані
-    private double[] computeNormal(double[] a, double[] b, double[] c) {
-        double[] u = { b[0] - a[0], b[1] - a[1], b[2] - a[2] };
-        double[] v = { c[0] - a[0], c[1] - a[1], c[2] - a[2] };
-        return normalize(new double[] {
-            u[1]*v[2] - u[2]*v[1],
-            u[2]*v[0] - u[0]*v[2],
-            u[0]*v[1] - u[1]*v[0]
-        });
+    // Метод запускає потік малювання, щойно полотно активного режиму з'являється на екрані
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (canvas != null && renderThread == null) {
+            canvas.createBufferStrategy(2);
+            running = true;
+            renderThread = new Thread(this::renderLoop, "render");
+            renderThread.setDaemon(true);
+            renderThread.start();
+            canvas.requestFocus();
+        }
     }
 
-    // Метод приводить вектор до одиничної довжини, зберігаючи його напрямок.
-    // Використовується для стабільних обчислень напрямку світла та нормалей.
-    private double[] normalize(double[] v) {
-        double len = Math.sqrt(dotProduct(v, v));
-        if (len == 0) return new double[] {0, 0, 0};
-        return new double[] { v[0]/len, v[1]/len, v[2]/len };
+    // Метод зупиняє потік малювання перед тим, як полотно буде прибрано з екрану
+    @Override
+    public void removeNotify() {
+        if (renderThread != null) {
+            running = false;
+            try {
+                renderThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            renderThread = null;
+        }
+        super.removeNotify();
     }
 
-    // Метод обчислює скалярний добуток (dot product) двох векторів
-    private double dotProduct(double[] a, double[] b) {
-        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
-    }    
-
-    // Метод візуалізації фігури
+    // Метод візуалізації фігури в режимі таймера
+    // Якщо стан не змінився (вікно перемальовується, наприклад, після перекриття іншим вікном),
+    // показується збережене зображення попереднього кадру
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        var g2 = (Graphics2D)g; // Отримуємо посилання на клас для малювання в 2D просторі
-
-        List<Point3D> rotated = new ArrayList<>(); // Список вершин після обертання
-        List<Point> projected = new ArrayList<>(); // Список вершин після проекції з 3D в 2D
-
-        // Цикл обертання і 2D проеції  всіх вершин
-        for (Point3D p : currentShape.vertices) {
-            // Обертання чергової точки
-            Point3D r = rotationMatrix.applyTo(p);
-            // Додавання точки до списку повернутих
-            rotated.add(r);
-            // Виконання проекції кординат з 3D в 2D
-            projected.add(r.project(getWidth(), getHeight(), scale,
-                    projectionType == ProjectionType.PERSPECTIVE));
-        }
-
-        // Малювання граней для режимів POLYGONS та ILLUMINATED
-        if ((shapeView != ShapeView.WIREFRAME) && (currentShape.faces != null)) {
-            g2.setStroke(new BasicStroke(1));
-            List<FaceInfo> faceList = new ArrayList<>();
-
-            // Нормалізація вектору освітлення
-            Point3D lightVec = new Point3D(lightDir[0], lightDir[1], lightDir[2]);
-            double[] light = normalize(lightVec.toArray());
-
-            // Цикл обробки граней
-            for (int[] face : currentShape.faces) {
-                // Отримання координат вже повернутих трьох вершин грані
-                Point3D p0 = rotated.get(face[0]);
-                Point3D p1 = rotated.get(face[1]);
-                Point3D p2 = rotated.get(face[2]);
-                // Обчислення нормалі для поточної грні
-                double[] normal = computeNormal(p0.toArray(), p1.toArray(), p2.toArray());
-                // Обчислення яскравості освітлення на основі векторів світля і нормалі
-                double brightness = dotProduct(normalize(normal), light);
-
-                // Приведення яскравості в межі 0.0 - 1.0
-                brightness = Math.max(0, Math.min(1, brightness));
-
-                // Обчислення середньої глибини по Z
-                double avgZ = 0;
-                for (int idx : face) {
-                    avgZ += rotated.get(idx).z;
-                }
-                avgZ /= face.length;
+        if (canvas == null && getWidth() > 0 && getHeight() > 0) {
+            frameRequested = false;
+            // Поки таймер стоїть, поле зору ландшафту після зміни розміру вікна оновлюється тут
+            if (!timer.isRunning()) refreshTerrain();
+            if (prepareFrameImage(this, getWidth(), getHeight()) || stateChanged(getWidth(), getHeight())) {
+                renderFrame(getWidth(), getHeight());
+            } else {
+                skipFrame();
+            }
+            g.drawImage(frameImage, 0, 0, null);
+        }
+    }
+
+    // Цикл потоку малювання активного режиму
+    // Кадр малюється в збережене зображення і цілком показується через задній буфер; наступний кадр починається
+    // за розкладом, а якщо кадр затягнувся більше ніж на період, розклад зсувається замість спроб
+    // наздогнати пропущені кадри. Якщо стан не змінився, потік засинає до надходження команди, лише зрідка
+    // повторно показуючи збережене зображення на випадок, якщо вміст вікна було втрачено
+    private void renderLoop() {
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        long period = targetFps > 0 ? 1_000_000_000L / targetFps : 0;
+        long next = System.nanoTime();
+        long lastShown = 0;
+        lastTick = next;
+        while (running) {
+            // Застосовуємо команди, отримані від обробників клавіш
+            for (Runnable command = commands.poll(); command != null; command = commands.poll()) {
+                command.run();
+            }
+            advance(System.nanoTime());
 
-                // Додавання даних про грань у список
-                faceList.add(new FaceInfo(face, avgZ, brightness, faceList.size()));
+            int width = canvas.getWidth(), height = canvas.getHeight();
+            if (width <= 0 || height <= 0) {
+                LockSupport.parkNanos(IDLE_REFRESH_NANOS);
+                continue;
+            }
+            boolean redraw = prepareFrameImage(canvas, width, height) || stateChanged(width, height);
+            if (redraw) {
+                renderFrame(width, height);
+            } else {
+                skipFrame();
+            }
+            if (redraw || System.nanoTime() - lastShown >= IDLE_REFRESH_NANOS) {
+                do {
+                    do {
+                        Graphics2D g2 = (Graphics2D) strategy.getDrawGraphics();
+                        try {
+                            g2.drawImage(frameImage, 0, 0, null);
+                        } finally {
+                            g2.dispose();
+                        }
+                    } while (strategy.contentsRestored());
+                    strategy.show();
+                } while (strategy.contentsLost());
+                Toolkit.getDefaultToolkit().sync();
+                lastShown = System.nanoTime();
             }
-        
-            // Сортування граней від найбільш віддалених до найбільш наближених
-            faceList.sort((f1, f2) -> Double.compare(f2.depth, f1.depth));
-        
-            // Малювання граней на основі відсортованого по глибині списку
-            for (FaceInfo f : faceList) {
-                if (shapeView == ShapeView.ILLUMINATED) {
-                    // Для режиму ILLUMINATED змінюємо колір в залежності від яскравості освітлення
-                    int shadeR = (int) (f.brightness * faceColor.getRed());
-                    int shadeG = (int) (f.brightness * faceColor.getGreen());
-                    int shadeB = (int) (f.brightness * faceColor.getBlue());
-                    g2.setColor(new Color(shadeR, shadeG, shadeB));
+            if (!redraw) {
+                // Чекаємо на команду від обробника клавіш (post будить потік) або на час відновлення зображення
+                LockSupport.parkNanos(IDLE_REFRESH_NANOS);
+                next = System.nanoTime();
+                continue;
+            }
+
+            // Очікування наступного кадру: потік засинає, а останню мілісекунду чекає активно,
+            // бо точність засинання на деяких системах гірша за мілісекунду
+            if (period > 0) {
+                next += period;
+                long wait;
+                while ((wait = next - System.nanoTime()) > 0) {
+                    if (wait > SPIN_NANOS) {
+                        LockSupport.parkNanos(wait - SPIN_NANOS);
+                    } else {
+                        Thread.onSpinWait();
+                    }
                 }
-                else {
-                    // Для режиму POLYGONS малюємо грані одним кольором
-                    g2.setColor(faceColor);
+                if (-wait > period) {
+                    next = System.nanoTime();
                 }
+            }
+        }
+    }
 
-                // Заповнюємо структуру для малювання заповненого полігону
-                // також обчислюємо координати середини грані для виводу її номера при наолагодженні
-                Polygon poly = new Polygon();
-                Point center = new Point(0, 0);
-                for (int idx : f.indices) {
-                    Point p = projected.get(idx);
-                    poly.addPoint(p.x, p.y);
-                    center.x += p.x;
-                    center.y += p.y;
-                }
+    // Метод виконує зміну стану фігури: в активному режимі передає її потоку малювання,
+    // в режимі таймера виконує одразу (обробники подій і малювання працюють в одному потоці) і оновлює вікно
+    private void post(Runnable command) {
+        if (canvas != null) {
+            commands.add(command);
+            Thread thread = renderThread;
+            if (thread != null) LockSupport.unpark(thread);
+        } else {
+            command.run();
+            requestFrame();
+        }
+    }
 
-                // Малюємо отриманий полігон
-                g2.fillPolygon(poly);
+    // Метод у режимі таймера планує перемальовування, якщо змінився стан фігури,
+    // і запускає зупинений таймер, якщо зміна почала обертання або поворот до цільової орієнтації
+    // Поки заплановане перемальовування не виконано, повторні запити нічого не роблять
+    private void requestFrame() {
+        if (!timer.isRunning() && (autoRotating || orientation.angleTo(orientationTarget) >= SNAP_ANGLE)) {
+            lastTick = System.nanoTime(); // Час простою не повинен перетворитися на поворот
+            timer.start();
+        }
+        if (!frameRequested && stateChanged(getWidth(), getHeight())) {
+            frameRequested = true;
+            repaint(); // Сигналізуємо про необхідність оновлення вікна
+        }
+    }
 
-                // Виводимо номер грані при налагодженні
-                if (showDebug) {
-                    center.x /= f.indices.length;
-                    center.y /= f.indices.length;
-                    g2.setColor(Color.WHITE);
-                    g2.drawString(String.valueOf(f.index), center.x, center.y);
-                }
+    // Метод перевіряє, чи змінився з часу останнього намальованого кадру стан, що впливає на зображення
+    private boolean stateChanged(int width, int height) {
+        return !rotationMatrix.equals(drawnRotation) || scale != drawnScale
+                || lightDir[0] != drawnLight[0] || lightDir[1] != drawnLight[1] || lightDir[2] != drawnLight[2]
+                || shapeView != drawnView || projectionType != drawnProjection || currentShape != drawnShape
+                || renderer.backend != drawnBackend || renderer.culling != drawnCulling || showDebug != drawnDebug
+                || renderer.batched != drawnBatched || renderer.quality != drawnQuality || fadeShape != null
+                || renderer.profiler.enabled != drawnProfiling
+                || width != drawnWidth || height != drawnHeight
+                || showDebug && (mouseX != drawnMouseX || mouseY != drawnMouseY
+                        || drawnLevel().builtBvh() != drawnBvh);
+    }
 
-                // Для режиму POLYGONS додатково малюємо грані (контури полігона)
-                if (shapeView != ShapeView.ILLUMINATED) {
-                    g2.setColor(edgeColor);
-                    g2.drawPolygon(poly);
-                }
-            }
+    // Метод малює кадр переходу між рівнями деталізації: попередній рівень fadeLevel, а поверх нього рівень level,
+    // намальований у прозоре зображення і змішаний з непрозорістю alpha
+    private void renderFade(Graphics2D g2, int width, int height, ShapeFactory.ShapeData level, float alpha) {
+        fadeRenderer.background = renderer.background;
+        fadeRenderer.scale = renderer.scale;
+        fadeRenderer.backend = renderer.backend;
+        fadeRenderer.culling = renderer.culling;
+        fadeRenderer.batched = renderer.batched;
+        fadeRenderer.quality = renderer.quality;
+        fadeRenderer.render(g2, width, height, fadeShape.levels[fadeLevel], rotationMatrix, projectionType,
+                shapeView, lightDir);
+
+        if (fadeImage == null || fadeImage.getWidth() != width || fadeImage.getHeight() != height) {
+            fadeImage = new BufferedImage(Math.max(width, 1), Math.max(height, 1), BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        Graphics2D fg = fadeImage.createGraphics();
+        try {
+            fg.setComposite(AlphaComposite.Clear);
+            fg.fillRect(0, 0, width, height);
+            fg.setComposite(AlphaComposite.SrcOver);
+            renderer.render(fg, width, height, level, rotationMatrix, projectionType, shapeView, lightDir);
+        } finally {
+            fg.dispose();
+        }
+        Composite composite = g2.getComposite();
+        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+        g2.drawImage(fadeImage, 0, 0, null);
+        g2.setComposite(composite);
+    }
+
+    // Метод запам'ятовує стан, з яким намальовано кадр
+    private void rememberDrawnState(int width, int height) {
+        drawnRotation.set(rotationMatrix);
+        drawnScale = scale;
+        System.arraycopy(lightDir, 0, drawnLight, 0, 3);
+        drawnView = shapeView;
+        drawnProjection = projectionType;
+        drawnShape = currentShape;
+        drawnBackend = renderer.backend;
+        drawnCulling = renderer.culling;
+        drawnBatched = renderer.batched;
+        drawnQuality = renderer.quality;
+        drawnDebug = showDebug;
+        drawnProfiling = renderer.profiler.enabled;
+        drawnWidth = width;
+        drawnHeight = height;
+        drawnMouseX = mouseX;
+        drawnMouseY = mouseY;
+        drawnBvh = drawnLevel().builtBvh();
+    }
 
-            // Для режиму ILLUMINATED малюємо джерело світла
-            if (shapeView == ShapeView.ILLUMINATED) {
-                // Трохи 'наближаємо' джерело світла до нас
-                Point3D lightPos = lightVec.scale(3);
-                // Обчислюємо проекцію з 3d в 2D координати
-                Point projectedLight = lightPos.project(getWidth(), getHeight(), scale,
-                        projectionType == ProjectionType.PERSPECTIVE);
-                // Малюємо круг за отриманими коорлинатами
-                g2.setColor(Color.YELLOW);
-                g2.fillOval(projectedLight.x - 5, projectedLight.y - 5, 10, 10);
+    // Рівень поточної фігури, намальований на останньому кадрі
+    // Після зміни фігури lodLevel ще відноситься до попередньої, тому береться найближчий наявний рівень
+    private ShapeFactory.ShapeData drawnLevel() {
+        return currentShape.levels[Math.min(lodLevel, currentShape.levels.length - 1)];
+    }
+
+    // Метод готує зображення для збереження кадру розміром width x height
+    // Повертає true, якщо зображення створено заново або його вміст втрачено, тобто кадр треба намалювати
+    private boolean prepareFrameImage(Component target, int width, int height) {
+        if (frameImage == null || frameImage.getWidth(null) != width || frameImage.getHeight(null) != height) {
+            frameImage = target.createVolatileImage(width, height);
+            if (frameImage == null) {
+                frameImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
             }
+            return true;
         }
-        
-        // Для режиму WIREFRAME малюємо ребра
-        if (shapeView == ShapeView.WIREFRAME) {
-            // Втсановлюємо ширину лінії та колір
-            g2.setStroke(new BasicStroke(2));
-            g2.setColor(edgeColor);
-
-            // Малюємо грані
-            for (Edge e : currentShape.edges) {
-                Point p1 = projected.get(e.a);
-                Point p2 = projected.get(e.b);
-                g2.drawLine(p1.x, p1.y, p2.x, p2.y);
+        if (frameImage instanceof VolatileImage volatileImage) {
+            int status = volatileImage.validate(target.getGraphicsConfiguration());
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                frameImage = null;
+                return prepareFrameImage(target, width, height);
             }
+            return status == VolatileImage.IMAGE_RESTORED;
+        }
+        return false;
+    }
 
-            // Малюємо вершини
-            g2.setColor(vertexColor);
-            for (Point p : projected) {
-                g2.fillOval(p.x - 3, p.y - 3, 6, 6);
-            }
+    // Метод малює кадр у збережене зображення
+    private void renderFrame(int width, int height) {
+        Graphics2D g2 = (Graphics2D) frameImage.getGraphics();
+        try {
+            g2.setColor(getBackground());
+            g2.fillRect(0, 0, width, height);
+            drawFrame(g2, width, height);
+        } finally {
+            g2.dispose();
+        }
+        framesRendered++;
+        // Якщо вміст прискореного зображення втрачено під час малювання, наступний кадр буде намальовано заново
+        if (frameImage instanceof VolatileImage volatileImage && volatileImage.contentsLost()) {
+            drawnWidth = -1;
+        } else {
+            rememberDrawnState(width, height);
+        }
+    }
+
+    // Метод враховує кадр, замість якого показано збережене зображення
+    private void skipFrame() {
+        framesSkipped++;
+        lastFrameStart = 0; // Інтервал після пропуску не характеризує плавність малювання
+    }
+
+    // Метод обертає фігуру на кут, пропорційний часу, що минув з попереднього кроку,
+    // і наближає показану орієнтацію до orientationTarget сферичною інтерполяцією
+    // Частка залишку повороту, що виконується за крок, залежить лише від часу: 1 - exp(-seconds / SMOOTHING_SECONDS)
+    // Після довгої затримки (наприклад, згортання вікна) фігура повертається не більше ніж на MAX_FRAME_SECONDS
+    // Повертає false, якщо автообертання вимкнено і орієнтація вже досягла цільової
+    private boolean advance(long now) {
+        double seconds = Math.min(MAX_FRAME_SECONDS, (now - lastTick) / 1e9);
+        lastTick = now;
+        if (autoRotating) {
+            autoStep.setRotation(0, 1, 0, rotationSpeed * seconds);
+            orientation.premultiplyInPlace(autoStep);
+            orientationTarget.premultiplyInPlace(autoStep);
+        }
+        boolean settled = orientation.angleTo(orientationTarget) < SNAP_ANGLE;
+        if (settled) {
+            orientation.set(orientationTarget);
+        } else {
+            orientation.setSlerp(orientation, orientationTarget, 1 - Math.exp(-seconds / SMOOTHING_SECONDS));
+        }
+        orientation.toMatrix(rotationMatrix);
+        refreshTerrain();
+        return autoRotating || !settled;
+    }
 
-            // Виводимо номер вершин при налагодженні
-            if (showDebug) {
-                g2.setColor(Color.WHITE);
-                for (int i = 0; i < projected.size(); i++) {
-                    Point p = projected.get(i);
-                    g2.drawString(String.valueOf(i), p.x + 5, p.y - 5);
-                }            
+    // Метод оновлює набір плиток ландшафту для поточного поля зору, якщо ландшафт показується
+    // Поле зору - коло, описане навколо вікна, тому воно не залежить від повороту ландшафту навколо осі Z
+    private void refreshTerrain() {
+        if (terrain == null || currentShape != terrainShape) return;
+        Component target = canvas != null ? canvas : this;
+        int width = Math.max(1, target.getWidth()), height = Math.max(1, target.getHeight());
+        double pixelsPerUnit = scale * Point3D.perspectiveFactor(0, projectionType == Renderer.ProjectionType.PERSPECTIVE);
+        if (terrain.update(terrainX, terrainY, Math.hypot(width, height) / 2 / pixelsPerUnit, pixelsPerUnit)) {
+            terrainShape = new LodChain(terrain.shape());
+            currentShape = terrainShape;
+        }
+    }
+
+    // Метод малює кадр: фігуру, рядки стану та налагоджувальну інформацію
+    private void drawFrame(Graphics2D g2, int width, int height) {
+        long frameStart = System.nanoTime();
+        if (lastFrameStart != 0) {
+            frameIntervals.record(frameStart - lastFrameStart);
+        }
+        lastFrameStart = frameStart;
+        FrameProfiler profiler = renderer.profiler;
+        long allocStart = profiler.enabled ? Renderer.allocatedBytes() : -1;
+        profiler.beginFrame();
+
+        // Обираємо рівень деталізації за розміром фігури на екрані
+        double projectedRadius = LodChain.projectedRadius(currentShape.radius, scale,
+                projectionType == Renderer.ProjectionType.PERSPECTIVE);
+        int previousLevel = lodShape == currentShape ? lodLevel : -1;
+        lodLevel = currentShape.select(lodLevel, projectedRadius);
+        lodShape = currentShape;
+        ShapeFactory.ShapeData level = currentShape.levels[lodLevel];
+
+        // При перемиканні рівня починаємо перехід від попереднього; перехід іншої фігури чи завершений припиняємо
+        if (previousLevel >= 0 && previousLevel != lodLevel) {
+            fadeShape = currentShape;
+            fadeLevel = previousLevel;
+            fadeStart = frameStart;
+        }
+        double fade = (frameStart - fadeStart) / (double) LodChain.FADE_NANOS;
+        if (fadeShape != currentShape || fade >= 1) {
+            fadeShape = null;
+        }
+
+        // Для великих фігур будуємо ієрархію граней у фоновому потоці: щойно вона готова, відсікання нею користується
+        // Сітка ландшафту складається заново при кожному переміщенні, тому для неї ієрархія будується лише для вибору
+        if (level.faceCount() >= BVH_MIN_FACES && currentShape != terrainShape) {
+            level.bvhAsync();
+        }
+
+        // При налагодженні знаходимо грань і вершину під мишею; поки ієрархія будується, вибір не виконується,
+        // а після завершення побудови кадр малюється заново (див. stateChanged)
+        pickedHit = null;
+        pickNanos = -1;
+        if (showDebug && mouseX >= 0 && mouseY >= 0) {
+            FaceBvh bvh = level.builtBvh();
+            if (bvh != null) {
+                long pickStart = System.nanoTime();
+                pickedHit = bvh.pick(rotationMatrix, mouseX, mouseY, width, height, scale,
+                        projectionType == Renderer.ProjectionType.PERSPECTIVE);
+                pickNanos = System.nanoTime() - pickStart;
+            } else {
+                level.bvhAsync().thenRun(() -> SwingUtilities.invokeLater(() -> post(() -> { })));
             }
         }
 
+        // Малюємо фігуру з поточними налаштуваннями
+        renderer.background = getBackground();
+        renderer.scale = scale;
+        renderer.showDebug = showDebug;
+        renderer.pickedFace = pickedHit != null ? pickedHit.face : -1;
+        renderer.pickedVertex = pickedHit != null ? pickedHit.vertex : -1;
+        if (fadeShape == null) {
+            renderer.render(g2, width, height, level, rotationMatrix, projectionType, shapeView, lightDir);
+        } else {
+            renderFade(g2, width, height, level, (float) fade);
+        }
+        profiler.skip();
+
         // Виводимо текст зпоточним станом програми та підказаками по керуванню
         g2.setColor(Color.WHITE);
-        g2.drawString("Фігура: " + currentShape.type.name()
-                        + ", тип відображення: " + shapeView.name()
-                        + ", проекція:" + projectionType.name(), 10, 20);
-        g2.drawString("Змінити фігуру — 'пробіл', тип відображення — V, проекція — P", 10, 40);
+        g2.drawString(statusText, 10, 20);
+        g2.drawString("Змінити фігуру — 'пробіл', тип відображення — V, проекція — P"
+                        + ", малювання граней — B, відсікання — C, пакетне малювання — K, якість — J", 10, 40);
         g2.drawString("Автообертання — R, ручне обертання — A/D/W/S/Q/E"
-                        + ", керування світлом — стрілки, масштаб — +/-", 10, 60);
+                        + ", керування світлом — стрілки, масштаб — +/-"
+                        + ", профілювання — I, експорт профілю — X"
+                        + (terrain != null ? ", переміщення ландшафтом — F/H/T/G" : ""), 10, 60);
+        if (showDebug) {
+            g2.drawString(renderer.frameAllocatedBytes >= 0
+                    ? "Виділено пам'яті за кадр: геометрія " + renderer.geometryAllocatedBytes
+                            + " байт, усього " + renderer.frameAllocatedBytes + " байт"
+                    : "Виділено пам'яті за кадр: н/д", 10, 80);
+            ShapeCache cache = ShapeCache.SHARED;
+            g2.drawString("Кеш фігур: " + cache.size() + " фігур, " + (cache.bytes() >> 10) + " з "
+                    + (cache.budgetBytes() >> 10) + " КБ, влучань " + cache.hits() + ", промахів " + cache.misses()
+                    + ", витіснено " + cache.evictions(), 10, 100);
+            StringBuilder lods = new StringBuilder("Рівні деталізації (граней):");
+            for (int i = 0; i < currentShape.levels.length; i++) {
+                int faces = currentShape.levels[i].faceCount();
+                lods.append(' ').append(i == lodLevel ? "[" + faces + "]" : String.valueOf(faces));
+            }
+            lods.append(", радіус на екрані ").append((int) projectedRadius).append(" пікс.");
+            if (currentShape.errors[lodLevel] > 0) {
+                lods.append(String.format(Locale.ROOT, ", похибка спрощення %.4f", currentShape.errors[lodLevel]));
+            }
+            g2.drawString(lods.toString(), 10, 120);
+            if (shapeView != Renderer.ShapeView.WIREFRAME) {
+                FrameGeometry geometry = renderer.geometry;
+                g2.drawString("Грані: передано " + geometry.faceCount
+                        + ", відкинуто зворотних " + geometry.backCulled
+                        + ", відкинуто поза екраном " + geometry.screenCulled
+                        + ", намальовано " + geometry.visibleCount
+                        + (renderer.backend == Renderer.RenderBackend.GRAPHICS2D && shapeView != Renderer.ShapeView.SMOOTH
+                                ? ", сортування " + renderer.depthSorter.lastMode.name() : "")
+                        + ", викликів малювання " + renderer.drawCalls,
+                        10, 140);
+                if (renderer.backend == Renderer.RenderBackend.ZBUFFER || shapeView == Renderer.ShapeView.SMOOTH) {
+                    g2.drawString("Записано пікселів у z-буфер: " + renderer.rasterizer.pixelsDrawn, 10, 160);
+                }
+            } else {
+                g2.drawString("Викликів малювання: " + renderer.drawCalls, 10, 140);
+            }
+            g2.drawString(String.format(Locale.ROOT,
+                    "%s: інтервал кадрів p50/p95/p99 %.1f/%.1f/%.1f мс (%.0f к/с), малювання %.1f/%.1f/%.1f мс",
+                    canvas == null ? "Таймер" : targetFps > 0 ? "Активний режим, " + targetFps + " к/с" : "Активний режим",
+                    frameIntervals.percentileMs(50), frameIntervals.percentileMs(95), frameIntervals.percentileMs(99),
+                    1000 / Math.max(frameIntervals.meanMs(), 1e-3),
+                    renderTimes.percentileMs(50), renderTimes.percentileMs(95), renderTimes.percentileMs(99)),
+                    10, 180);
+            g2.drawString(String.format(Locale.ROOT,
+                    "Кадрів намальовано %d, показано збережених %d, відхилення матриці обертання від ортонормованої %.1e",
+                    framesRendered, framesSkipped, rotationMatrix.orthonormalityError()), 10, 200);
+            if (terrain != null) {
+                g2.drawString(String.format(Locale.ROOT,
+                        "Ландшафт: плиток показано %d (найдетальніший рівень %d), у пам'яті %d (%d з %d КБ), у черзі %d"
+                                + ", прочитано %d, влучань %d, промахів %d, витіснено %d"
+                                + ", затримка p50/p95/p99 %.1f/%.1f/%.1f мс, читання p50 %.2f мс",
+                        terrain.drawnTiles(), terrain.finestLevel(), terrain.residentTiles(),
+                        terrain.residentBytes() >> 10, terrain.budgetBytes() >> 10, terrain.queuedTiles(),
+                        terrain.loads(), terrain.hits(), terrain.misses(), terrain.evictions(),
+                        terrain.loadLatency.percentileMs(50), terrain.loadLatency.percentileMs(95),
+                        terrain.loadLatency.percentileMs(99), terrain.readTimes.percentileMs(50)), 10, 220);
+            }
+            FaceBvh bvh = level.builtBvh();
+            g2.drawString(mouseX < 0 ? "Під мишею: миша поза вікном"
+                    : bvh == null ? "Під мишею: ієрархія граней будується"
+                    : pickedHit == null ? String.format(Locale.ROOT, "Під мишею: нічого (%.1f мкс)", pickNanos / 1e3)
+                    : String.format(Locale.ROOT, "Під мишею: грань %d, вершина %d (%.1f мкс)",
+                            pickedHit.face, pickedHit.vertex, pickNanos / 1e3), 10, 240);
+        }
+        profiler.mark(FrameProfiler.Stage.TEXT);
+        profiler.endFrame(allocStart >= 0 ? Renderer.allocatedBytes() - allocStart : -1);
+        renderTimes.record(System.nanoTime() - frameStart);
+
+        // Результати вимірювання виводяться після завершення кадру і до його тривалості не входять
+        if (profiler.enabled) {
+            g2.setColor(Color.WHITE);
+            profiler.drawStages(g2, 10, showDebug ? 270 : 90);
+            profiler.drawGraph(g2, width - 310, height - 130, 300, 120);
+        }
+    }
+
+    // Метод записує виміряні кадри у файли CSV та JSON у поточному каталозі
+    private void exportProfile() {
+        FrameProfiler profiler = renderer.profiler;
+        if (profiler.frameCount() == 0) {
+            System.out.println("Немає виміряних кадрів: увімкніть профілювання клавішею I");
+            return;
+        }
+        String name = "smp3d-profile-" + System.currentTimeMillis();
+        Path csv = Path.of(name + ".csv"), json = Path.of(name + ".json");
+        try (Writer out = Files.newBufferedWriter(csv)) {
+            profiler.writeCsv(out);
+        } catch (IOException e) {
+            System.err.println("Не вдалося записати " + csv + ": " + e.getMessage());
+            return;
+        }
+        try (Writer out = Files.newBufferedWriter(json)) {
+            profiler.writeJson(out);
+        } catch (IOException e) {
+            System.err.println("Не вдалося записати " + json + ": " + e.getMessage());
+            return;
+        }
+        System.out.println("Профіль " + profiler.frameCount() + " кадрів записано у " + csv.toAbsolutePath()
+                + " та " + json.toAbsolutePath());
+    }
+
+    // Метод замінює завантажену сітку ланцюжком її рівнів деталізації
+    private void setMeshLods(LodChain chain) {
+        System.out.printf(Locale.ROOT, "Рівні деталізації сітки: %s граней, похибка %s, %.0f трикутників/с%n",
+                Arrays.toString(chain.faceCounts()),
+                Arrays.stream(chain.errors).mapToObj(e -> String.format(Locale.ROOT, "%.4f", e)).toList(),
+                chain.simplifyRate);
+        int missed = chain.missedTarget();
+        if (missed >= 0) {
+            System.out.printf(Locale.ROOT, "Рівень %d має %d граней замість %d: решту ребер не вдалося стягнути%n",
+                    missed, chain.levels[missed].faceCount(), chain.targets[missed]);
+        }
+        if (currentShape == loadedMesh) {
+            currentShape = chain;
+        }
+        loadedMesh = chain;
+    }
+
+    // Метод оновлює рядок з поточним станом програми
+    // Рядок формується лише при зміні стану, а не на кожному кадрі
+    private void updateStatusText() {
+        statusText = "Фігура: " + currentShape.levels[0].type.name()
+                        + ", тип відображення: " + shapeView.name()
+                        + ", проекція:" + projectionType.name()
+                        + ", малювання граней: " + renderer.backend.name()
+                        + (renderer.culling ? ", з відсіканням" : "")
+                + (renderer.batched ? ", пакетне малювання" : "")
+                + ", якість: " + renderer.quality.name();
+    }
+
+    // Метод повертає наступну фігуру переліку
+    // Завантажена сітка і ландшафт показуються після останньої згенерованої фігури
+    private LodChain nextShape() {
+        ShapeFactory.ShapeType type = currentShape.levels[0].type;
+        if (currentShape == terrainShape) {
+            return ShapeFactory.generateLods(ShapeFactory.ShapeType.CUBE);
+        }
+        // Ландшафт іде після завантаженої сітки, а якщо її немає - після останньої згенерованої фігури
+        if (type == ShapeFactory.ShapeType.MESH || type == ShapeFactory.ShapeType.SURFACE && loadedMesh == null) {
+            return terrainShape != null ? terrainShape : ShapeFactory.generateLods(ShapeFactory.nextType(type));
+        }
+        if (type == ShapeFactory.ShapeType.SURFACE) {
+            return loadedMesh;
+        }
+        return ShapeFactory.generateLods(ShapeFactory.nextType(type));
+    }
+
+    // Метод зміщує центр поля зору на ландшафті на частки ширини вікна dx, dy
+    private void moveTerrain(double dx, double dy) {
+        if (terrain == null || currentShape != terrainShape) return;
+        double step = (canvas != null ? canvas : this).getWidth() / scale;
+        terrainX = Math.max(0, Math.min(terrain.sizeX(), terrainX + dx * step));
+        terrainY = Math.max(0, Math.min(terrain.sizeY(), terrainY + dy * step));
+        refreshTerrain();
     }
 
     @Override public void keyTyped(KeyEvent e) {}
@@ -232,15 +738,22 @@ class DrawPanel extends JPanel implements KeyListener, ActionListener {
     @Override public void keyReleased(KeyEvent e) {}
 
     // Метод обробки реакції на керування
+    // Обробка клавіші передається туди, де змінюється стан фігури
     @Override public void keyPressed(KeyEvent e) {
-        switch (e.getKeyCode()) {
-            // Обертання поточної матриці у потрібному напрямку
-            case KeyEvent.VK_S -> rotationMatrix = Matrix3x3.rotationX(-rotationStep).multiply(rotationMatrix);
-            case KeyEvent.VK_W -> rotationMatrix = Matrix3x3.rotationX(rotationStep).multiply(rotationMatrix);
-            case KeyEvent.VK_D -> rotationMatrix = Matrix3x3.rotationY(-rotationStep).multiply(rotationMatrix);
-            case KeyEvent.VK_A -> rotationMatrix = Matrix3x3.rotationY(rotationStep).multiply(rotationMatrix);
-            case KeyEvent.VK_E -> rotationMatrix = Matrix3x3.rotationZ(-rotationStep).multiply(rotationMatrix);
-            case KeyEvent.VK_Q -> rotationMatrix = Matrix3x3.rotationZ(rotationStep).multiply(rotationMatrix);
+        int keyCode = e.getKeyCode();
+        post(() -> handleKey(keyCode));
+    }
+
+    // Метод змінює стан фігури відповідно до натиснутої клавіші
+    private void handleKey(int keyCode) {
+        switch (keyCode) {
+            // Поворот цільової орієнтації у потрібному напрямку (показана орієнтація плавно наблизиться до неї)
+            case KeyEvent.VK_S -> orientationTarget.premultiplyInPlace(stepXNeg);
+            case KeyEvent.VK_W -> orientationTarget.premultiplyInPlace(stepXPos);
+            case KeyEvent.VK_D -> orientationTarget.premultiplyInPlace(stepYNeg);
+            case KeyEvent.VK_A -> orientationTarget.premultiplyInPlace(stepYPos);
+            case KeyEvent.VK_E -> orientationTarget.premultiplyInPlace(stepZNeg);
+            case KeyEvent.VK_Q -> orientationTarget.premultiplyInPlace(stepZPos);
 
             // Наближення/віддалення фігури
             case KeyEvent.VK_PLUS, KeyEvent.VK_EQUALS -> scale *= 1.1;
@@ -253,30 +766,55 @@ class DrawPanel extends JPanel implements KeyListener, ActionListener {
             case KeyEvent.VK_DOWN -> lightDir[1] = Math.max(-1, Math.min(1, lightDir[1] - 0.1));
 
             // Генерація наступної фігури
-            case KeyEvent.VK_SPACE -> currentShape = ShapeFactory.generate(null);
+            case KeyEvent.VK_SPACE -> currentShape = nextShape();
+
+            // Переміщення поля зору по ландшафту на десяту частину ширини вікна
+            case KeyEvent.VK_F -> moveTerrain(-0.1, 0);
+            case KeyEvent.VK_H -> moveTerrain(0.1, 0);
+            case KeyEvent.VK_T -> moveTerrain(0, 0.1);
+            case KeyEvent.VK_G -> moveTerrain(0, -0.1);
 
             // Вмикання/вимикання автоматичного обертання фігури
             case KeyEvent.VK_R -> autoRotating = !autoRotating;
             // Вмикання/вимикання налагоджувальної інформації
             case KeyEvent.VK_BACK_QUOTE -> showDebug = !showDebug;
+            // Вмикання/вимикання вимірювання етапів малювання та запис результатів у файли
+            case KeyEvent.VK_I -> {
+                renderer.profiler.enabled = !renderer.profiler.enabled;
+                renderer.profiler.clear();
+            }
+            case KeyEvent.VK_X -> exportProfile();
             // Зміна режиму відображення фігури
-            case KeyEvent.VK_V -> shapeView = ShapeView.values()[(shapeView.ordinal() + 1) % ShapeView.values().length];
+            case KeyEvent.VK_V -> shapeView = Renderer.ShapeView.values()[
+                    (shapeView.ordinal() + 1) % Renderer.ShapeView.values().length];
+            // Зміна способу малювання граней
+            case KeyEvent.VK_B -> renderer.backend = Renderer.RenderBackend.values()[
+                    (renderer.backend.ordinal() + 1) % Renderer.RenderBackend.values().length];
+            // Вмикання/вимикання відсікання невидимих граней
+            case KeyEvent.VK_C -> renderer.culling = !renderer.culling;
+            // Вмикання/вимикання пакетного малювання засобами Graphics2D
+            case KeyEvent.VK_K -> renderer.batched = !renderer.batched;
+            // Зміна підказок малювання Graphics2D
+            case KeyEvent.VK_J -> renderer.quality = Renderer.RenderQuality.values()[
+                    (renderer.quality.ordinal() + 1) % Renderer.RenderQuality.values().length];
             // Зміна режиму проекції
             case KeyEvent.VK_P -> {
-                projectionType = ProjectionType.values()[(projectionType.ordinal() + 1) % ProjectionType.values().length];
-                scale = projectionType == ProjectionType.PERSPECTIVE ? perspectiveScale : orthographicScale;
+                projectionType = Renderer.ProjectionType.values()[
+                        (projectionType.ordinal() + 1) % Renderer.ProjectionType.values().length];
+                scale = projectionType == Renderer.ProjectionType.PERSPECTIVE ? perspectiveScale : orthographicScale;
             }
         }
-        repaint(); // Сигналізуємо про необхідність оновлення вікна
+        updateStatusText();
     }
 
     // Метод що викликається таймером для автообертання фігури
+    // Коли обертати більше нічого, таймер зупиняється до наступної зміни стану (requestFrame запустить його знову)
     @Override
     public void actionPerformed(ActionEvent e) {
         // Якщо автообертання дозволено, обертаємо фігуру відносно осі Y
-        if (autoRotating) {
-            rotationMatrix = Matrix3x3.rotationY(rotationStep).multiply(rotationMatrix);
-            repaint(); // Сигналізуємо про необхідність оновлення вікна
+        if (!advance(System.nanoTime())) {
+            timer.stop();
         }
-    }  
+        requestFrame();
+    }
 } 
@@ -1,12 +0,0 @@
-/*
- * Edge
- * Клас для зберігання інформації про ребро фігури
- * Зберігає індекси двох вершин
-*/
-
-public class Edge {
-    int a, b; // Індекси вершин ребра
-
-    // Конструктор
-    public Edge(int a, int b) { this.a = a; this.b = b; }
-}
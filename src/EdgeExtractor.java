@@ -0,0 +1,177 @@
+/*
+ * EdgeExtractor
+ * Клас для формування списку унікальних ребер фігури з її граней
+ * Ребро кодується одним числом long (менший індекс вершини у старших 32 бітах, більший - у молодших),
+ * а повтори відкидаються хеш-таблицею з відкритою адресацією на масивах примітивів,
+ * тому на кожну сторону грані не створюється жодного об'єкта
+ * Ребра записуються в порядку їх першої появи у гранях, а ознака замкненості поверхні
+ * встановлюється, якщо кожне ребро належить рівно двом граням
+ * Для великих фігур ключі розподіляються за хешем на незалежні частини, які обробляються паралельно
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+class EdgeExtractor {
+    int[] edges = new int[0]; // Індекси вершин ребер, упаковані парами: a0, b0, a1, b1, ...
+    boolean closed; // Ознака замкненої поверхні
+
+    // Мінімальна кількість сторін граней, починаючи з якої обчислення розподіляються між ядрами процесора
+    // На одноядерних системах ребра завжди формуються в поточному потоці
+    int parallelThreshold = Runtime.getRuntime().availableProcessors() > 1
+            ? Integer.getInteger("smp3d.edgeParallelThreshold", 200_000) : Integer.MAX_VALUE;
+    private static final int CHUNK_SIZE = 8192; // Кількість граней, для яких ключі обчислює одна задача
+    // Етапи обробки, що виконуються задачами паралельної обробки
+    private static final int STAGE_KEYS = 0, STAGE_PARTITIONS = 1;
+
+    // Дані, що використовуються задачами паралельної обробки
+    private int[] faceOffsets, faceIndices;
+    private long[] keys; // Ключ ребра для кожної сторони кожної грані
+    private boolean[] first; // Ознака першої появи ребра для кожної сторони
+    private int partitionBits; // Кількість старших біт хешу, що визначають частину
+    private boolean[] partitionClosed; // Ознака того, що кожне ребро частини належить рівно двом граням
+
+    // Метод формує ребра для граней, заданих зміщеннями faceOffsets у масиві індексів faceIndices
+    void extract(int[] faceOffsets, int[] faceIndices) {
+        this.faceOffsets = faceOffsets;
+        this.faceIndices = faceIndices;
+        int sides = faceIndices.length; // Кожна вершина грані починає одну її сторону
+        int faceCount = faceOffsets.length - 1;
+        keys = new long[sides];
+        first = new boolean[sides];
+
+        if (sides >= parallelThreshold) {
+            // Кількість частин - степінь двійки, не менша за кількість потоків пулу
+            int workers = ForkJoinPool.getCommonPoolParallelism();
+            partitionBits = Math.min(6, 32 - Integer.numberOfLeadingZeros(Math.max(workers, 1) - 1));
+            partitionClosed = new boolean[1 << partitionBits];
+            ForkJoinPool.commonPool().invoke(new RangeTask(STAGE_KEYS, 0, faceCount));
+            ForkJoinPool.commonPool().invoke(new RangeTask(STAGE_PARTITIONS, 0, 1 << partitionBits));
+        } else {
+            partitionBits = 0;
+            partitionClosed = new boolean[1];
+            computeKeys(0, faceCount);
+            dedupPartition(0);
+        }
+
+        // Збираємо ребра в порядку їх першої появи
+        int edgeCount = 0;
+        for (boolean f : first) {
+            if (f) edgeCount++;
+        }
+        edges = new int[edgeCount * 2];
+        for (int i = 0, e = 0; i < sides; i++) {
+            if (first[i]) {
+                edges[e++] = (int) (keys[i] >>> 32);
+                edges[e++] = (int) keys[i];
+            }
+        }
+        closed = edgeCount > 0;
+        for (boolean c : partitionClosed) {
+            closed &= c;
+        }
+
+        this.faceOffsets = null;
+        this.faceIndices = null;
+        keys = null;
+        first = null;
+    }
+
+    // Метод обчислює ключі ребер для сторін граней з номерами [from, to)
+    private void computeKeys(int from, int to) {
+        for (int f = from; f < to; f++) {
+            int start = faceOffsets[f];
+            int end = faceOffsets[f + 1];
+            for (int i = start; i < end; i++) {
+                int a = faceIndices[i];
+                int b = faceIndices[i + 1 < end ? i + 1 : start];
+                keys[i] = a < b ? ((long) a << 32) | (b & 0xFFFFFFFFL) : ((long) b << 32) | (a & 0xFFFFFFFFL);
+            }
+        }
+    }
+
+    // Метод відкидає повтори ключів, що належать вказаній частині, і позначає першу появу кожного ребра
+    // Ключі переглядаються в порядку сторін, тому першою позначається та ж сторона, що й при послідовній обробці
+    private void dedupPartition(int partition) {
+        int shift = 64 - partitionBits;
+        // Очікувана кількість ребер частини - половина її сторін, таблиця заповнюється не більше ніж наполовину
+        int capacity = Integer.highestOneBit(Math.max(16, (keys.length >> partitionBits) | 1)) << 1;
+        long[] table = new long[capacity];
+        byte[] uses = new byte[capacity]; // Кількість граней ребра (0 - вільна комірка), не більше 3
+        int mask = capacity - 1;
+        int size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            long h = hash(key);
+            if (partitionBits > 0 && (int) (h >>> shift) != partition) continue;
+            int slot = (int) h & mask;
+            while (uses[slot] != 0 && table[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (uses[slot] == 0) {
+                table[slot] = key;
+                uses[slot] = 1;
+                first[i] = true;
+                if (++size * 2 > capacity) {
+                    // Таблицю заповнено наполовину: подвоюємо її і переносимо ключі
+                    long[] oldTable = table;
+                    byte[] oldUses = uses;
+                    capacity *= 2;
+                    mask = capacity - 1;
+                    table = new long[capacity];
+                    uses = new byte[capacity];
+                    for (int s = 0; s < oldTable.length; s++) {
+                        if (oldUses[s] == 0) continue;
+                        int n = (int) hash(oldTable[s]) & mask;
+                        while (uses[n] != 0) {
+                            n = (n + 1) & mask;
+                        }
+                        table[n] = oldTable[s];
+                        uses[n] = oldUses[s];
+                    }
+                }
+            } else if (uses[slot] < 3) {
+                uses[slot]++;
+            }
+        }
+
+        boolean partClosed = true;
+        for (int s = 0; s < capacity && partClosed; s++) {
+            partClosed = uses[s] == 0 || uses[s] == 2;
+        }
+        partitionClosed[partition] = partClosed;
+    }
+
+    // Хеш ключа ребра: старші біти визначають частину, молодші - комірку таблиці
+    private static long hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    // Задача паралельної обробки діапазону граней або частин ключів
+    @SuppressWarnings("serial")
+    private final class RangeTask extends RecursiveAction {
+        private final int stage; // Етап обробки (STAGE_...)
+        private final int from, to;
+
+        RangeTask(int stage, int from, int to) {
+            this.stage = stage;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (stage == STAGE_KEYS ? to - from <= CHUNK_SIZE : to - from == 1) {
+                if (stage == STAGE_KEYS) {
+                    computeKeys(from, to);
+                } else {
+                    dedupPartition(from);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(stage, from, mid), new RangeTask(stage, mid, to));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,410 @@
+/*
+ * FaceBvh
+ * Ієрархія обмежувальних об'ємів (BVH) граней фігури в її системі координат
+ * Кожен вузол зберігає паралелепіпед, вирівняний за осями, що містить усі грані його піддерева
+ * Вузол ділиться навпіл за медіаною центрів граней уздовж найдовшої осі, доки в ньому більше LEAF_SIZE граней
+ * Грані переставляються так, що грані кожного піддерева займають суцільний проміжок масиву faces
+ *
+ * Ієрархія використовується для:
+ *  - вибору грані та вершини під курсором: промінь з точки екрану переводиться в систему координат фігури
+ *    оберненою (транспонованою) матрицею обертання і перевіряється лише з вузлами, які він перетинає;
+ *  - відсікання граней поза екраном: грані вузла, проекція паралелепіпеда якого лежить поза екраном,
+ *    відкидаються без перевірки кожної грані (FrameGeometry.cull)
+ *
+ * Оскільки ділення йде за медіаною, форма дерева залежить лише від кількості граней: номер правого дочірнього
+ * вузла відомий до побудови лівого піддерева, тому піддерева будуються паралельно без спільного змінного стану
+ * Після побудови екземпляр не змінюється і може одночасно використовуватись з кількох потоків
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+class FaceBvh {
+    static final int LEAF_SIZE = 8; // Найбільша кількість граней у листі
+    // Мінімальна кількість граней піддерева, починаючи з якої його половини будуються паралельно
+    static final int PARALLEL_THRESHOLD = Integer.getInteger("smp3d.bvhParallelThreshold", 50_000);
+    private static final int CHUNK_SIZE = 8192; // Розмір частини граней, центри яких обчислює одна задача
+
+    // Результат вибору: грань, найближча до неї вершина і точка перетину в системі координат фігури
+    static final class Hit {
+        final int face, vertex;
+        final double x, y, z;
+
+        Hit(int face, int vertex, double x, double y, double z) {
+            this.face = face;
+            this.vertex = vertex;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+    final ShapeFactory.ShapeData shape;
+    final int[] faces; // Номери граней у порядку вузлів
+    final double[] bounds; // Межі вузлів: minX, minY, minZ, maxX, maxY, maxZ
+    final int[] first, count; // Проміжок масиву faces, який займає піддерево вузла
+    final int[] right; // Номер правого дочірнього вузла (лівий - наступний за вузлом), 0 для листа
+    private double[] centers; // Центри граней, потрібні лише під час побудови
+
+    // Конструктор будує ієрархію для фігури shape
+    FaceBvh(ShapeFactory.ShapeData shape) {
+        this.shape = shape;
+        int faceCount = shape.faceCount();
+        faces = new int[faceCount];
+        int nodes = Math.max(1, 2 * leafCount(faceCount) - 1);
+        bounds = new double[nodes * 6];
+        first = new int[nodes];
+        count = new int[nodes];
+        right = new int[nodes];
+        centers = new double[faceCount * 3];
+        if (faceCount >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new CenterTask(0, faceCount));
+            ForkJoinPool.commonPool().invoke(new BuildTask(0, 0, faceCount));
+        } else {
+            computeCenters(0, faceCount);
+            build(0, 0, faceCount);
+        }
+        centers = null;
+    }
+
+    // Кількість вузлів ієрархії
+    int nodeCount() {
+        return first.length;
+    }
+
+    // Метод оцінює обсяг пам'яті, який займають масиви ієрархії
+    long estimateBytes() {
+        return (long) faces.length * 4 + (long) bounds.length * 8 + (first.length + count.length + right.length) * 4L;
+    }
+
+    // Метод обчислює центри граней з номерами [from, to) і заповнює для них масив faces
+    private void computeCenters(int from, int to) {
+        int[] offsets = shape.faceOffsets, indices = shape.faceIndices;
+        double[] v = shape.vertices;
+        for (int f = from; f < to; f++) {
+            faces[f] = f;
+            int start = offsets[f], end = offsets[f + 1];
+            double x = 0, y = 0, z = 0;
+            for (int i = start; i < end; i++) {
+                int k = indices[i] * 3;
+                x += v[k];
+                y += v[k + 1];
+                z += v[k + 2];
+            }
+            int n = Math.max(1, end - start);
+            centers[f * 3] = x / n;
+            centers[f * 3 + 1] = y / n;
+            centers[f * 3 + 2] = z / n;
+        }
+    }
+
+    // Метод заповнює вузол node над гранями faces[from, to): лист - повністю, а для внутрішнього вузла
+    // переставляє грані так, що ліве піддерево займає [from, mid), праве - [mid, to), де mid = (from + to) / 2
+    // Повертає true, якщо вузол - лист
+    private boolean split(int node, int from, int to) {
+        first[node] = from;
+        count[node] = to - from;
+        if (to - from <= LEAF_SIZE) {
+            leafBounds(node, from, to);
+            return true;
+        }
+
+        // Вісь з найбільшим розкидом центрів граней
+        double minX = Double.POSITIVE_INFINITY, minY = minX, minZ = minX;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+        for (int i = from; i < to; i++) {
+            int k = faces[i] * 3;
+            minX = Math.min(minX, centers[k]); maxX = Math.max(maxX, centers[k]);
+            minY = Math.min(minY, centers[k + 1]); maxY = Math.max(maxY, centers[k + 1]);
+            minZ = Math.min(minZ, centers[k + 2]); maxZ = Math.max(maxZ, centers[k + 2]);
+        }
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        int axis = dx >= dy && dx >= dz ? 0 : dy >= dz ? 1 : 2;
+
+        int mid = (from + to) >>> 1;
+        select(from, to, mid, axis);
+        right[node] = node + 2 * leafCount(mid - from);
+        return false;
+    }
+
+    // Метод послідовно будує піддерево з коренем node над гранями faces[from, to)
+    private void build(int node, int from, int to) {
+        if (split(node, from, to)) return;
+        int mid = (from + to) >>> 1;
+        build(node + 1, from, mid);
+        build(right[node], mid, to);
+        unionBounds(node, node + 1, right[node]);
+    }
+
+    // Метод обчислює межі листа як межі вершин його граней
+    private void leafBounds(int node, int from, int to) {
+        int[] offsets = shape.faceOffsets, indices = shape.faceIndices;
+        double[] v = shape.vertices;
+        double minX = Double.POSITIVE_INFINITY, minY = minX, minZ = minX;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+        for (int i = from; i < to; i++) {
+            int f = faces[i];
+            for (int j = offsets[f]; j < offsets[f + 1]; j++) {
+                int k = indices[j] * 3;
+                minX = Math.min(minX, v[k]); maxX = Math.max(maxX, v[k]);
+                minY = Math.min(minY, v[k + 1]); maxY = Math.max(maxY, v[k + 1]);
+                minZ = Math.min(minZ, v[k + 2]); maxZ = Math.max(maxZ, v[k + 2]);
+            }
+        }
+        int b = node * 6;
+        bounds[b] = minX; bounds[b + 1] = minY; bounds[b + 2] = minZ;
+        bounds[b + 3] = maxX; bounds[b + 4] = maxY; bounds[b + 5] = maxZ;
+    }
+
+    // Метод обчислює межі вузла як об'єднання меж двох дочірніх вузлів
+    private void unionBounds(int node, int left, int rightChild) {
+        int b = node * 6, l = left * 6, r = rightChild * 6;
+        for (int i = 0; i < 3; i++) {
+            bounds[b + i] = Math.min(bounds[l + i], bounds[r + i]);
+            bounds[b + 3 + i] = Math.max(bounds[l + 3 + i], bounds[r + 3 + i]);
+        }
+    }
+
+    // Метод переставляє грані faces[from, to) так, що на позиції k стоїть грань з k-м за величиною центром
+    // по осі axis, ліворуч - грані з не більшими центрами, праворуч - з не меншими (вибір Хоара)
+    private void select(int from, int to, int k, int axis) {
+        int lo = from, hi = to - 1;
+        while (lo < hi) {
+            double pivot = centers[faces[(lo + hi) >>> 1] * 3 + axis];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (centers[faces[i] * 3 + axis] < pivot) i++;
+                while (centers[faces[j] * 3 + axis] > pivot) j--;
+                if (i <= j) {
+                    int t = faces[i];
+                    faces[i] = faces[j];
+                    faces[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // Кількість листів дерева над n гранями
+    // При діленні навпіл усі вузли глибини d мають floor(n / 2^d) або ceil(n / 2^d) граней, тому листи
+    // лежать не більше ніж на двох сусідніх глибинах і їх кількість обчислюється без побудови дерева
+    static int leafCount(int n) {
+        if (n <= LEAF_SIZE) return 1;
+        int parts = 1; // Кількість вузлів на глибині, вузли якої ще діляться
+        while ((n + 2L * parts - 1) / (2L * parts) > LEAF_SIZE) {
+            parts *= 2;
+        }
+        int size = n / parts, larger = n % parts; // Вузли мають size або size + 1 граней
+        return size <= LEAF_SIZE ? parts + larger : 2 * parts;
+    }
+
+    // Метод знаходить грань під точкою екрану (x, y) та найближчу до точки перетину вершину цієї грані
+    // Параметри проекції ті самі, що використовуються для малювання (див. Point3D)
+    // Повертає null, якщо промінь не перетинає жодної грані
+    Hit pick(Matrix3x3 rotation, int x, int y, int width, int height, double scale, boolean perspective) {
+        // Точка екрану в системі координат глядача до застосування коефіцієнта перспективи (центр пікселя)
+        double px = (x + 0.5 - width / 2.0) / scale;
+        double py = -(y + 0.5 - height / 2.0) / scale;
+        double[] ray = new double[6];
+        double[] t = { Double.POSITIVE_INFINITY };
+        int face;
+        if (!perspective) {
+            // Промінь, паралельний осі Z
+            toObject(rotation, px, py, 0, 0, 0, 1, ray);
+            face = intersect(ray, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, t);
+        } else {
+            // Ближче за площину z = NEAR_Z коефіцієнт перспективи сталий, тож там промінь паралельний осі Z,
+            // а далі розходиться з точки глядача (0, 0, -EYE_DISTANCE)
+            double near = Point3D.perspectiveFactor(Point3D.NEAR_Z, true);
+            double ox = px / near, oy = py / near;
+            toObject(rotation, ox, oy, Point3D.NEAR_Z, 0, 0, 1, ray);
+            face = intersect(ray, Double.NEGATIVE_INFINITY, 0, t);
+            if (face < 0) {
+                toObject(rotation, ox, oy, Point3D.NEAR_Z, px / Point3D.FOCAL_LENGTH, py / Point3D.FOCAL_LENGTH, 1, ray);
+                face = intersect(ray, 0, Double.POSITIVE_INFINITY, t);
+            }
+        }
+        if (face < 0) return null;
+
+        double hx = ray[0] + ray[3] * t[0], hy = ray[1] + ray[4] * t[0], hz = ray[2] + ray[5] * t[0];
+        int vertex = -1;
+        double best = Double.POSITIVE_INFINITY;
+        double[] v = shape.vertices;
+        for (int i = shape.faceOffsets[face]; i < shape.faceOffsets[face + 1]; i++) {
+            int k = shape.faceIndices[i] * 3;
+            double dx = v[k] - hx, dy = v[k + 1] - hy, dz = v[k + 2] - hz;
+            double d = dx * dx + dy * dy + dz * dz;
+            if (d < best) {
+                best = d;
+                vertex = shape.faceIndices[i];
+            }
+        }
+        return new Hit(face, vertex, hx, hy, hz);
+    }
+
+    // Метод переводить промінь з початком (ox, oy, oz) і напрямком (dx, dy, dz) із системи координат глядача
+    // в систему координат фігури: (R^T o, R^T d)
+    private static void toObject(Matrix3x3 r, double ox, double oy, double oz, double dx, double dy, double dz,
+                                 double[] ray) {
+        for (int i = 0; i < 3; i++) {
+            ray[i] = r.get(0, i) * ox + r.get(1, i) * oy + r.get(2, i) * oz;
+            ray[3 + i] = r.get(0, i) * dx + r.get(1, i) * dy + r.get(2, i) * dz;
+        }
+    }
+
+    // Метод знаходить найближчу грань, яку перетинає відрізок променя ray (початок і напрямок) з параметром
+    // з проміжку [tMin, tMax]. Записує параметр перетину в t[0] і повертає номер грані або -1
+    // Вузли обходяться від ближчого до дальшого, а вузли, що починаються далі за знайдений перетин, пропускаються
+    int intersect(double[] ray, double tMin, double tMax, double[] t) {
+        double ox = ray[0], oy = ray[1], oz = ray[2];
+        double ix = 1 / ray[3], iy = 1 / ray[4], iz = 1 / ray[5];
+        int[] stack = new int[64];
+        double[] entry = new double[64];
+        int top = 0;
+        stack[top] = 0;
+        entry[top++] = tMin;
+        int hitFace = -1;
+        double nearest = tMax;
+        while (top > 0) {
+            top--;
+            if (entry[top] > nearest) continue;
+            int node = stack[top];
+            if (right[node] == 0) {
+                for (int i = first[node], end = i + count[node]; i < end; i++) {
+                    double d = intersectFace(faces[i], ray, tMin, nearest);
+                    if (d < nearest) {
+                        nearest = d;
+                        hitFace = faces[i];
+                    }
+                }
+                continue;
+            }
+            int a = node + 1, b = right[node];
+            double ta = enter(a, ox, oy, oz, ix, iy, iz, tMin, nearest);
+            double tb = enter(b, ox, oy, oz, ix, iy, iz, tMin, nearest);
+            // Дальший вузол кладеться в стек першим, щоб ближчий був перевірений раніше
+            if (ta > tb) {
+                int n = a; a = b; b = n;
+                double d = ta; ta = tb; tb = d;
+            }
+            if (tb != Double.POSITIVE_INFINITY) {
+                stack[top] = b;
+                entry[top++] = tb;
+            }
+            if (ta != Double.POSITIVE_INFINITY) {
+                stack[top] = a;
+                entry[top++] = ta;
+            }
+        }
+        t[0] = nearest;
+        return hitFace;
+    }
+
+    // Метод повертає параметр входу відрізка [tMin, tMax] променя у паралелепіпед вузла
+    // або нескінченність, якщо відрізок його не перетинає
+    // Порівняння записано так, що значення NaN (промінь уздовж грані паралелепіпеда) не звужують проміжок
+    private double enter(int node, double ox, double oy, double oz, double ix, double iy, double iz,
+                         double tMin, double tMax) {
+        int b = node * 6;
+        double near = tMin, far = tMax;
+        double t0 = (bounds[b] - ox) * ix, t1 = (bounds[b + 3] - ox) * ix;
+        if (t0 > t1) { double t = t0; t0 = t1; t1 = t; }
+        if (t0 > near) near = t0;
+        if (t1 < far) far = t1;
+        t0 = (bounds[b + 1] - oy) * iy;
+        t1 = (bounds[b + 4] - oy) * iy;
+        if (t0 > t1) { double t = t0; t0 = t1; t1 = t; }
+        if (t0 > near) near = t0;
+        if (t1 < far) far = t1;
+        t0 = (bounds[b + 2] - oz) * iz;
+        t1 = (bounds[b + 5] - oz) * iz;
+        if (t0 > t1) { double t = t0; t0 = t1; t1 = t; }
+        if (t0 > near) near = t0;
+        if (t1 < far) far = t1;
+        return near <= far ? near : Double.POSITIVE_INFINITY;
+    }
+
+    // Метод повертає параметр перетину променя з гранню f на проміжку [tMin, tMax] або нескінченність
+    // Грань ділиться на трикутники віялом з першої вершини; кожен перевіряється алгоритмом Меллера-Трумбора
+    // з обох боків, бо незамкнені поверхні видно і зі зворотного боку
+    private double intersectFace(int f, double[] ray, double tMin, double tMax) {
+        int[] indices = shape.faceIndices;
+        double[] v = shape.vertices;
+        int start = shape.faceOffsets[f], end = shape.faceOffsets[f + 1];
+        double dx = ray[3], dy = ray[4], dz = ray[5];
+        int a = indices[start] * 3;
+        double ax = v[a], ay = v[a + 1], az = v[a + 2];
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = start + 1; i + 1 < end; i++) {
+            int b = indices[i] * 3, c = indices[i + 1] * 3;
+            double e1x = v[b] - ax, e1y = v[b + 1] - ay, e1z = v[b + 2] - az;
+            double e2x = v[c] - ax, e2y = v[c + 1] - ay, e2z = v[c + 2] - az;
+            double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+            double det = e1x * px + e1y * py + e1z * pz;
+            if (det == 0) continue;
+            double inv = 1 / det;
+            double sx = ray[0] - ax, sy = ray[1] - ay, sz = ray[2] - az;
+            double u = (sx * px + sy * py + sz * pz) * inv;
+            if (u < 0 || u > 1) continue;
+            double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+            double w = (dx * qx + dy * qy + dz * qz) * inv;
+            if (w < 0 || u + w > 1) continue;
+            double t = (e2x * qx + e2y * qy + e2z * qz) * inv;
+            if (t >= tMin && t <= tMax && t < best) best = t;
+        }
+        return best;
+    }
+
+    // Задача пулу ForkJoin, що обчислює центри граней, ділячи діапазон навпіл до CHUNK_SIZE
+    @SuppressWarnings("serial")
+    private final class CenterTask extends RecursiveAction {
+        private final int from, to;
+
+        CenterTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                computeCenters(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new CenterTask(from, mid), new CenterTask(mid, to));
+        }
+    }
+
+    // Задача пулу ForkJoin, що будує піддерево; великі піддерева ділить на два, що будуються паралельно
+    @SuppressWarnings("serial")
+    private final class BuildTask extends RecursiveAction {
+        private final int node, from, to;
+
+        BuildTask(int node, int from, int to) {
+            this.node = node;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < PARALLEL_THRESHOLD) {
+                build(node, from, to);
+                return;
+            }
+            split(node, from, to);
+            int mid = (from + to) >>> 1;
+            invokeAll(new BuildTask(node + 1, from, mid), new BuildTask(right[node], mid, to));
+            unionBounds(node, node + 1, right[node]);
+        }
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * FrameGeometry
+ * Клас для зберігання проміжних даних одного кадру: повернутих координат вершин,
+ * їх екранних проекцій, переліку видимих граней, їх глибин та яскравостей
+ * Масиви виділяються лише при збільшенні розміру фігури і повторно використовуються в наступних кадрах
+ * Освітлення використовує нормалі, обчислені при створенні фігури (ShapeData.faceNormals, vertexNormals):
+ * замість обертання кожної нормалі вектор освітлення один раз на кадр повертається у систему координат фігури
+ * оберненою (транспонованою) матрицею, що дає той самий скалярний добуток
+ * Для великих фігур обчислення розподіляються між ядрами процесора через ForkJoinPool
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+class FrameGeometry {
+    double[] rotated = new double[0]; // Координати вершин після обертання (x, y, z)
+    int[] screenX = new int[0]; // Екранні координати вершин після проекції з 3D в 2D
+    int[] screenY = new int[0];
+    double[] depth = new double[0]; // Середня глибина кожної грані по осі Z
+    double[] brightness = new double[0]; // Яскравість кожної грані з врахуванням освітлення
+    double[] vertexBrightness = new double[0]; // Яскравість кожної вершини для плавного освітлення
+    int[] visible = new int[0]; // Індекси граней, що залишились після відсікання, у зростаючому порядку
+    int vertexCount; // Кількість вершин у поточному кадрі
+    int faceCount; // Кількість граней у поточному кадрі
+    int visibleCount; // Кількість граней, що залишились після відсікання
+    int backCulled; // Кількість граней, відкинутих як повернуті від глядача
+    int screenCulled; // Кількість граней, відкинутих як такі, що повністю лежать поза екраном
+    private byte[] cullFlags = new byte[0]; // Результат перевірки кожної грані (CULL_...)
+    int nodesOutside; // Кількість вузлів ієрархії граней, відкинутих цілком під час останнього відсікання
+
+    // Результати перевірки грані на етапі відсікання
+    private static final byte CULL_NONE = 0, CULL_BACK = 1, CULL_SCREEN = 2;
+    // Етапи обробки, що виконуються задачами паралельної обробки
+    private static final int STAGE_TRANSFORM = 0, STAGE_CULL = 1, STAGE_SHADE = 2, STAGE_ROTATE = 3, STAGE_PROJECT = 4,
+            STAGE_SHADE_VERTICES = 5;
+
+    // Мінімальна кількість вершин чи граней, починаючи з якої обчислення розподіляються між ядрами процесора
+    // Менші фігури обробляються в поточному потоці, бо накладні витрати перевищують виграш
+    // Значення за замовчуванням можна змінити властивістю -Dsmp3d.parallelThreshold=...
+    static final int DEFAULT_PARALLEL_THRESHOLD = Integer.getInteger("smp3d.parallelThreshold", 50_000);
+    int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private static final int CHUNK_SIZE = 8192; // Розмір частини, що обробляється однією задачею
+
+    // Параметри поточного кадру, що використовуються задачами паралельної обробки
+    private ShapeFactory.ShapeData shape;
+    private Matrix3x3 rotation;
+    private int width, height;
+    private double scale;
+    private boolean perspective;
+    private double lx, ly, lz;
+    private boolean cullBackFaces;
+    private FaceBvh bvh;
+    private final double[] nodeRotation = new double[9]; // Елементи матриці обертання для перевірки вузлів ієрархії
+
+    // Метод збільшує масиви, якщо їх розміру недостатньо для вказаної фігури
+    void ensureCapacity(int vertices, int faces) {
+        if (screenX.length < vertices) {
+            rotated = new double[vertices * 3];
+            screenX = new int[vertices];
+            screenY = new int[vertices];
+            vertexBrightness = new double[vertices];
+        }
+        if (depth.length < faces) {
+            depth = new double[faces];
+            brightness = new double[faces];
+            visible = new int[faces];
+            cullFlags = new byte[faces];
+        }
+        vertexCount = vertices;
+        faceCount = faces;
+    }
+
+    // Метод обертання і 2D проекції всіх вершин фігури
+    // Обертання і проекція виконуються одним проходом по вершинах
+    void transform(ShapeFactory.ShapeData shape, Matrix3x3 rotation,
+                   int width, int height, double scale, boolean perspective) {
+        begin(shape, rotation, width, height, scale, perspective);
+        run(STAGE_TRANSFORM, vertexCount);
+    }
+
+    // Метод лише обертання всіх вершин фігури; проекцію виконує наступний виклик project
+    // Результат пари rotate + project збігається з transform, але дозволяє окремо виміряти тривалість кожного етапу
+    void rotate(ShapeFactory.ShapeData shape, Matrix3x3 rotation,
+                int width, int height, double scale, boolean perspective) {
+        begin(shape, rotation, width, height, scale, perspective);
+        run(STAGE_ROTATE, vertexCount);
+    }
+
+    // Метод 2D проекції всіх вершин, повернутих методом rotate
+    void project() {
+        run(STAGE_PROJECT, vertexCount);
+    }
+
+    // Метод запам'ятовує параметри кадру перед обробкою вершин
+    private void begin(ShapeFactory.ShapeData shape, Matrix3x3 rotation,
+                       int width, int height, double scale, boolean perspective) {
+        ensureCapacity(shape.vertexCount(), shape.faceCount());
+        this.shape = shape;
+        this.rotation = rotation;
+        this.width = width;
+        this.height = height;
+        this.scale = scale;
+        this.perspective = perspective;
+
+        // Доки не виконано відсікання, видимими вважаються всі грані
+        for (int f = 0; f < faceCount; f++) {
+            visible[f] = f;
+        }
+        visibleCount = faceCount;
+        backCulled = screenCulled = 0;
+    }
+
+    // Метод виконує етап stage для count елементів у поточному потоці або, для великих фігур, паралельно
+    private void run(int stage, int count) {
+        if (count >= parallelThreshold) {
+            ForkJoinPool.commonPool().invoke(new RangeTask(stage, 0, count));
+        } else {
+            runRange(stage, 0, count);
+        }
+    }
+
+    // Метод виконує етап stage для елементів з індексами [from, to)
+    private void runRange(int stage, int from, int to) {
+        switch (stage) {
+            case STAGE_TRANSFORM -> transformRange(from, to);
+            case STAGE_ROTATE -> rotateRange(from, to);
+            case STAGE_PROJECT -> projectRange(from, to);
+            case STAGE_CULL -> cullRange(from, to);
+            case STAGE_SHADE_VERTICES -> shadeVerticesRange(from, to);
+            default -> shadeRange(from, to);
+        }
+    }
+
+    // Метод відсікання граней, які не потрібно освітлювати і малювати: граней, що повністю лежать поза екраном,
+    // та, якщо cullBackFaces і фігура замкнена, граней, повернутих від глядача
+    // Напрямок грані визначається за порядком обходу її вершин на екрані: у ShapeFactory вершини зовнішніх граней
+    // перелічуються так, що нормаль (v1 - v0) x (v2 - v0) спрямована назовні фігури
+    void cull(boolean cullBackFaces) {
+        this.cullBackFaces = cullBackFaces && shape.closed;
+        run(STAGE_CULL, faceCount);
+        nodesOutside = 0;
+        collectVisible();
+    }
+
+    // Метод відсікання з використанням ієрархії граней bvh, побудованої для поточної фігури
+    // Проекція паралелепіпеда вузла обмежує проекції його граней, тому грані вузла, що цілком лежить поза екраном,
+    // відкидаються разом, а для граней вузла, що цілком лежить на екрані, перевіряється лише напрямок.
+    // Решта граней перевіряється так само, як у cull(boolean), тому результат не відрізняється
+    void cull(boolean cullBackFaces, FaceBvh bvh) {
+        if (bvh == null || bvh.shape != shape) {
+            cull(cullBackFaces);
+            return;
+        }
+        this.cullBackFaces = cullBackFaces && shape.closed;
+        this.bvh = bvh;
+        for (int i = 0; i < 9; i++) {
+            nodeRotation[i] = rotation.get(i / 3, i % 3);
+        }
+        if (faceCount >= parallelThreshold) {
+            nodesOutside = ForkJoinPool.commonPool().invoke(new NodeTask(0, false));
+        } else {
+            nodesOutside = cullNode(0, false);
+        }
+        this.bvh = null;
+        collectVisible();
+    }
+
+    // Метод складає список видимих граней за результатами перевірки
+    private void collectVisible() {
+        int n = 0, back = 0, outside = 0;
+        for (int f = 0; f < faceCount; f++) {
+            switch (cullFlags[f]) {
+                case CULL_NONE -> visible[n++] = f;
+                case CULL_BACK -> back++;
+                default -> outside++;
+            }
+        }
+        visibleCount = n;
+        backCulled = back;
+        screenCulled = outside;
+    }
+
+    // Метод обчислення яскравості та середньої глибини видимих граней
+    // (lx, ly, lz) - нормалізований вектор освітлення у системі координат глядача
+    // Використовує матрицю обертання, передану в transform або rotate
+    void shade(ShapeFactory.ShapeData shape, double lx, double ly, double lz) {
+        this.shape = shape;
+        setLight(lx, ly, lz);
+        run(STAGE_SHADE, visibleCount);
+    }
+
+    // Метод обчислення яскравості всіх вершин для плавного освітлення (за Гуро)
+    // Параметри ті самі, що й у shade
+    void shadeVertices(ShapeFactory.ShapeData shape, double lx, double ly, double lz) {
+        this.shape = shape;
+        setLight(lx, ly, lz);
+        run(STAGE_SHADE_VERTICES, vertexCount);
+    }
+
+    // Метод повертає вектор освітлення у систему координат фігури: (n' . l) = (R n . l) = (n . R^T l)
+    private void setLight(double x, double y, double z) {
+        Matrix3x3 r = rotation;
+        lx = r.get(0, 0) * x + r.get(1, 0) * y + r.get(2, 0) * z;
+        ly = r.get(0, 1) * x + r.get(1, 1) * y + r.get(2, 1) * z;
+        lz = r.get(0, 2) * x + r.get(1, 2) * y + r.get(2, 2) * z;
+    }
+
+    // Обертання і проекція вершин з індексами [from, to)
+    private void transformRange(int from, int to) {
+        rotation.transform(shape.vertices, rotated, screenX, screenY, from, to, width, height, scale, perspective);
+    }
+
+    // Обертання вершин з індексами [from, to)
+    private void rotateRange(int from, int to) {
+        for (int i = from; i < to; i++) {
+            rotation.applyTo(shape.vertices, i * 3, rotated, i * 3);
+        }
+    }
+
+    // Проекція повернутих вершин з індексами [from, to)
+    private void projectRange(int from, int to) {
+        for (int i = from; i < to; i++) {
+            int k = i * 3;
+            screenX[i] = Point3D.projectX(rotated[k], rotated[k + 2], width, scale, perspective);
+            screenY[i] = Point3D.projectY(rotated[k + 1], rotated[k + 2], height, scale, perspective);
+        }
+    }
+
+    // Перевірка граней з індексами [from, to) на етапі відсікання
+    private void cullRange(int from, int to) {
+        for (int f = from; f < to; f++) {
+            cullFlags[f] = cullFace(f);
+        }
+    }
+
+    // Результат перевірки грані f на етапі відсікання
+    private byte cullFace(int f) {
+        int[] indices = shape.faceIndices;
+        int start = shape.faceOffsets[f];
+        int end = shape.faceOffsets[f + 1];
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        long area = 0; // подвоєна орієнтована площа проекції грані
+        int prev = indices[end - 1];
+        for (int i = start; i < end; i++) {
+            int v = indices[i];
+            int x = screenX[v], y = screenY[v];
+            minX = Math.min(minX, x); maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y); maxY = Math.max(maxY, y);
+            area += (long) screenX[prev] * y - (long) x * screenY[prev];
+            prev = v;
+        }
+        if (maxX < 0 || maxY < 0 || minX >= width || minY >= height) {
+            return CULL_SCREEN;
+        } else if (cullBackFaces && area < 0) {
+            // Вісь Y екрану спрямована вниз, тому грані, повернуті до глядача, мають додатну площу
+            return CULL_BACK;
+        }
+        return CULL_NONE;
+    }
+
+    // Розташування проекції вузла ієрархії відносно екрану
+    private static final int NODE_PARTIAL = 0, NODE_OUTSIDE = 1, NODE_INSIDE = 2;
+
+    // Метод визначає розташування вузла node відносно екрану
+    // Паралелепіпед вузла повертається як центр і півдовжини ребер, тож його повернута оболонка обмежує всі вершини,
+    // а межі проекції досягаються у кутах оболонки. Межі екрану розширено на піксель, щоб похибка округлення
+    // не відрізнила результат від перевірки граней. У перспективній проекції вузол, що перетинає площину z = NEAR_Z,
+    // вважається частково видимим: там коефіцієнт перспективи змінює вигляд, і кути вже не обмежують проекцію
+    private int classify(int node) {
+        double[] b = bvh.bounds;
+        double[] m = nodeRotation;
+        int k = node * 6;
+        double hx = (b[k + 3] - b[k]) / 2, hy = (b[k + 4] - b[k + 1]) / 2, hz = (b[k + 5] - b[k + 2]) / 2;
+        double cx = b[k] + hx, cy = b[k + 1] + hy, cz = b[k + 2] + hz;
+        double x = m[0] * cx + m[1] * cy + m[2] * cz;
+        double y = m[3] * cx + m[4] * cy + m[5] * cz;
+        double z = m[6] * cx + m[7] * cy + m[8] * cz;
+        double ex = Math.abs(m[0]) * hx + Math.abs(m[1]) * hy + Math.abs(m[2]) * hz;
+        double ey = Math.abs(m[3]) * hx + Math.abs(m[4]) * hy + Math.abs(m[5]) * hz;
+        double ez = Math.abs(m[6]) * hx + Math.abs(m[7]) * hy + Math.abs(m[8]) * hz;
+        double near = 1, far = 1; // коефіцієнти перспективи ближньої та дальньої сторін оболонки
+        if (perspective) {
+            if (z - ez < Point3D.NEAR_Z && z + ez > Point3D.NEAR_Z) return NODE_PARTIAL;
+            near = Point3D.perspectiveFactor(z - ez, true);
+            far = Point3D.perspectiveFactor(z + ez, true);
+        }
+        double x0 = x - ex, x1 = x + ex, y0 = y - ey, y1 = y + ey;
+        double minPx = Math.min(Math.min(x0 * near, x0 * far), Math.min(x1 * near, x1 * far));
+        double maxPx = Math.max(Math.max(x0 * near, x0 * far), Math.max(x1 * near, x1 * far));
+        double minPy = Math.min(Math.min(y0 * near, y0 * far), Math.min(y1 * near, y1 * far));
+        double maxPy = Math.max(Math.max(y0 * near, y0 * far), Math.max(y1 * near, y1 * far));
+        int minX = (int) (minPx * scale + width / 2.0), maxX = (int) (maxPx * scale + width / 2.0);
+        int minY = (int) (-maxPy * scale + height / 2.0), maxY = (int) (-minPy * scale + height / 2.0);
+        if (maxX < -1 || maxY < -1 || minX > width || minY > height) return NODE_OUTSIDE;
+        if (minX >= 1 && minY >= 1 && maxX < width - 1 && maxY < height - 1) return NODE_INSIDE;
+        return NODE_PARTIAL;
+    }
+
+    // Метод перевіряє грані піддерева node; inside - ознака того, що вузол уже визнано цілком видимим на екрані
+    // Повертає кількість вузлів, відкинутих цілком
+    private int cullNode(int node, boolean inside) {
+        int location = inside ? NODE_INSIDE : classify(node);
+        int from = bvh.first[node], to = from + bvh.count[node];
+        if (location == NODE_OUTSIDE) {
+            for (int i = from; i < to; i++) {
+                cullFlags[bvh.faces[i]] = CULL_SCREEN;
+            }
+            return 1;
+        }
+        if (location == NODE_INSIDE || bvh.right[node] == 0) {
+            for (int i = from; i < to; i++) {
+                int f = bvh.faces[i];
+                cullFlags[f] = cullFace(f);
+            }
+            return 0;
+        }
+        return cullNode(node + 1, false) + cullNode(bvh.right[node], false);
+    }
+
+    // Обчислення яскравості та глибини видимих граней з позиціями [from, to) у списку visible
+    private void shadeRange(int from, int to) {
+        int[] offsets = shape.faceOffsets;
+        int[] indices = shape.faceIndices;
+        double[] normals = shape.faceNormals;
+        double[] r = rotated;
+        for (int n = from; n < to; n++) {
+            int f = visible[n];
+            int start = offsets[f];
+            int end = offsets[f + 1];
+
+            // Яскравість освітлення в межах 0.0 - 1.0
+            int k = f * 3;
+            brightness[f] = Math.max(0, Math.min(1, normals[k] * lx + normals[k + 1] * ly + normals[k + 2] * lz));
+
+            // Середня глибина по Z
+            double avgZ = 0;
+            for (int i = start; i < end; i++) {
+                avgZ += r[indices[i] * 3 + 2];
+            }
+            depth[f] = avgZ / (end - start);
+        }
+    }
+
+    // Обчислення яскравості вершин з індексами [from, to)
+    private void shadeVerticesRange(int from, int to) {
+        double[] normals = shape.vertexNormals;
+        for (int i = from; i < to; i++) {
+            int k = i * 3;
+            vertexBrightness[i] = Math.max(0, Math.min(1, normals[k] * lx + normals[k + 1] * ly + normals[k + 2] * lz));
+        }
+    }
+
+    // Задача пулу ForkJoin, що перевіряє піддерево ієрархії граней: великі частково видимі піддерева
+    // ділить на дочірні, що перевіряються паралельно
+    @SuppressWarnings("serial")
+    private final class NodeTask extends RecursiveTask<Integer> {
+        private final int node;
+        private final boolean inside;
+
+        NodeTask(int node, boolean inside) {
+            this.node = node;
+            this.inside = inside;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (bvh.count[node] <= CHUNK_SIZE || bvh.right[node] == 0) {
+                return cullNode(node, inside);
+            }
+            int location = inside ? NODE_INSIDE : classify(node);
+            if (location == NODE_OUTSIDE) {
+                return cullNode(node, false);
+            }
+            NodeTask left = new NodeTask(node + 1, location == NODE_INSIDE);
+            NodeTask right = new NodeTask(bvh.right[node], location == NODE_INSIDE);
+            left.fork();
+            return right.compute() + left.join();
+        }
+    }
+
+    // Задача пулу ForkJoin, що ділить діапазон вершин чи граней навпіл, доки він не стане меншим за CHUNK_SIZE
+    // Кожен елемент обчислюється незалежно і записується лише у свою позицію масивів,
+    // тому результат не відрізняється від послідовного обчислення
+    @SuppressWarnings("serial")
+    private final class RangeTask extends RecursiveAction {
+        private final int stage; // Етап обробки (STAGE_...)
+        private final int from, to;
+
+        RangeTask(int stage, int from, int to) {
+            this.stage = stage;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                runRange(stage, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(stage, from, mid), new RangeTask(stage, mid, to));
+        }
+    }
+}
\ No newline at end of file
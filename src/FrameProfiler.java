@@ -0,0 +1,230 @@
+/*
+ * FrameProfiler
+ * Клас для вимірювання тривалості етапів малювання кадру, кількості елементів фігури та виділеної пам'яті
+ * Етапи вимірюються послідовними мітками: mark(stage) відносить до етапу stage час, що минув з попередньої мітки
+ * Поки вимірювання вимкнено, мітки не звертаються до System.nanoTime і нічого не записують
+ * Останні кадри зберігаються в кільцевому буфері для графіка на екрані та експорту у форматах CSV і JSON
+ */
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+class FrameProfiler {
+    // Етапи малювання кадру
+    enum Stage { TRANSFORM, PROJECTION, CULLING, SHADING, SORT, FILL, EDGES, TEXT }
+    private static final Stage[] STAGES = Stage.values();
+
+    boolean enabled; // Ознака вимірювання
+    private long last; // Час останньої мітки, нс
+    private long frameStart; // Час початку поточного кадру, нс
+    private final long[] current = new long[STAGES.length]; // Тривалості етапів поточного кадру, нс
+    private int vertices, faces, edges; // Кількість елементів фігури поточного кадру
+
+    // Останні кадри: час початку, тривалість, тривалості етапів, кількість елементів, виділена пам'ять
+    private final int capacity;
+    private final long[] starts, totals, stageNanos, allocated;
+    private final int[] counts; // Вершини, грані, ребра кожного кадру
+    private final FrameStats totalStats; // Тривалості кадрів для обчислення процентилів
+    private final FrameStats[] stageStats = new FrameStats[STAGES.length];
+    private int count; // Кількість записаних кадрів (не більше capacity)
+    private int position; // Позиція наступного запису
+
+    // Конструктор
+    // capacity - кількість останніх кадрів, що зберігаються
+    FrameProfiler(int capacity) {
+        this.capacity = capacity;
+        starts = new long[capacity];
+        totals = new long[capacity];
+        stageNanos = new long[capacity * STAGES.length];
+        allocated = new long[capacity];
+        counts = new int[capacity * 3];
+        totalStats = new FrameStats(capacity);
+        for (int i = 0; i < STAGES.length; i++) {
+            stageStats[i] = new FrameStats(capacity);
+        }
+    }
+
+    // Метод починає вимірювання кадру
+    void beginFrame() {
+        if (!enabled) return;
+        Arrays.fill(current, 0);
+        vertices = faces = edges = 0;
+        frameStart = last = System.nanoTime();
+    }
+
+    // Метод відносить до етапу stage час, що минув з попередньої мітки
+    void mark(Stage stage) {
+        if (!enabled) return;
+        long now = System.nanoTime();
+        current[stage.ordinal()] += now - last;
+        last = now;
+    }
+
+    // Метод пропускає час, що минув з попередньої мітки, не відносячи його до жодного етапу
+    void skip() {
+        if (!enabled) return;
+        last = System.nanoTime();
+    }
+
+    // Метод запам'ятовує кількість елементів фігури, що малюється
+    void counts(int vertices, int faces, int edges) {
+        this.vertices = vertices;
+        this.faces = faces;
+        this.edges = edges;
+    }
+
+    // Метод завершує вимірювання кадру і записує його в буфер
+    // allocatedBytes - обсяг пам'яті, виділеної під час кадру (-1, якщо невідомо)
+    void endFrame(long allocatedBytes) {
+        if (!enabled) return;
+        long total = System.nanoTime() - frameStart;
+        int p = position;
+        starts[p] = frameStart;
+        totals[p] = total;
+        allocated[p] = allocatedBytes;
+        counts[p * 3] = vertices;
+        counts[p * 3 + 1] = faces;
+        counts[p * 3 + 2] = edges;
+        System.arraycopy(current, 0, stageNanos, p * STAGES.length, STAGES.length);
+        totalStats.record(total);
+        for (int i = 0; i < STAGES.length; i++) {
+            stageStats[i].record(current[i]);
+        }
+        position = (p + 1) % capacity;
+        if (count < capacity) count++;
+    }
+
+    // Метод видаляє всі записані кадри
+    void clear() {
+        count = 0;
+        position = 0;
+        totalStats.clear();
+        for (FrameStats stats : stageStats) {
+            stats.clear();
+        }
+    }
+
+    // Кількість записаних кадрів
+    int frameCount() {
+        return count;
+    }
+
+    // Процентиль p тривалості кадру в мілісекундах
+    double percentileMs(double p) {
+        return totalStats.percentileMs(p);
+    }
+
+    // Процентиль p тривалості етапу stage в мілісекундах
+    double percentileMs(Stage stage, double p) {
+        return stageStats[stage.ordinal()].percentileMs(p);
+    }
+
+    // Метод виводить рядки з тривалостями етапів останнього кадру та їх процентилями, починаючи з позиції (x, y)
+    // Повертає позицію y під останнім рядком
+    int drawStages(Graphics2D g2, int x, int y) {
+        if (count == 0) return y;
+        int last = (position - 1 + capacity) % capacity;
+        g2.drawString(String.format(Locale.ROOT, "Вершин %d, граней %d, ребер %d, виділено пам'яті %s",
+                counts[last * 3], counts[last * 3 + 1], counts[last * 3 + 2],
+                allocated[last] >= 0 ? allocated[last] + " байт" : "н/д"), x, y);
+        y += 20;
+        for (Stage stage : STAGES) {
+            g2.drawString(String.format(Locale.ROOT, "%-10s %7.3f мс, p50/p95/p99 %.3f/%.3f/%.3f мс",
+                    stage.name(), stageNanos[last * STAGES.length + stage.ordinal()] / 1e6,
+                    percentileMs(stage, 50), percentileMs(stage, 95), percentileMs(stage, 99)), x, y);
+            y += 16;
+        }
+        return y;
+    }
+
+    // Метод малює графік тривалостей останніх кадрів у прямокутнику (x, y, width, height)
+    // Горизонтальні лінії позначають p50, p95 та p99; масштаб графіка визначається за p99
+    void drawGraph(Graphics2D g2, int x, int y, int width, int height) {
+        if (count == 0) return;
+        double p50 = percentileMs(50), p95 = percentileMs(95), p99 = percentileMs(99);
+        double maxMs = Math.max(p99 * 1.25, 1);
+        g2.setColor(new Color(0, 0, 0, 160));
+        g2.fillRect(x, y, width, height);
+
+        // Стовпчик на кожен кадр, від найстаршого ліворуч до найновішого праворуч
+        g2.setColor(Color.GREEN);
+        int bars = Math.min(count, width);
+        for (int i = 0; i < bars; i++) {
+            int frame = (position - bars + i + capacity) % capacity;
+            int h = (int) Math.min(height, totals[frame] / 1e6 / maxMs * height);
+            g2.drawLine(x + width - bars + i, y + height, x + width - bars + i, y + height - h);
+        }
+
+        drawLevel(g2, x, y, width, height, p50, maxMs, Color.WHITE, "p50");
+        drawLevel(g2, x, y, width, height, p95, maxMs, Color.YELLOW, "p95");
+        drawLevel(g2, x, y, width, height, p99, maxMs, Color.RED, "p99");
+    }
+
+    // Метод малює на графіку горизонтальну лінію рівня valueMs з підписом
+    private static void drawLevel(Graphics2D g2, int x, int y, int width, int height, double valueMs,
+                                  double maxMs, Color color, String label) {
+        int ly = y + height - (int) Math.min(height, valueMs / maxMs * height);
+        g2.setColor(color);
+        g2.drawLine(x, ly, x + width, ly);
+        g2.drawString(String.format(Locale.ROOT, "%s %.2f мс", label, valueMs), x + 2, ly - 2);
+    }
+
+    // Метод записує кадри у форматі CSV: один рядок на кадр, тривалості в наносекундах
+    void writeCsv(Writer out) throws IOException {
+        out.write("frame,start_ns,total_ns");
+        for (Stage stage : STAGES) {
+            out.write(',' + stage.name().toLowerCase(Locale.ROOT) + "_ns");
+        }
+        out.write(",vertices,faces,edges,allocated_bytes\n");
+        for (int i = 0; i < count; i++) {
+            int f = (position - count + i + capacity) % capacity;
+            StringBuilder line = new StringBuilder();
+            line.append(i).append(',').append(starts[f] - starts[oldest()]).append(',').append(totals[f]);
+            for (int s = 0; s < STAGES.length; s++) {
+                line.append(',').append(stageNanos[f * STAGES.length + s]);
+            }
+            line.append(',').append(counts[f * 3]).append(',').append(counts[f * 3 + 1])
+                    .append(',').append(counts[f * 3 + 2]).append(',').append(allocated[f]).append('\n');
+            out.write(line.toString());
+        }
+    }
+
+    // Метод записує кадри та процентилі у форматі JSON
+    void writeJson(Writer out) throws IOException {
+        StringBuilder json = new StringBuilder("{\n  \"percentiles_ms\": {\n");
+        appendPercentiles(json, "total", totalStats);
+        for (Stage stage : STAGES) {
+            json.append(",\n");
+            appendPercentiles(json, stage.name().toLowerCase(Locale.ROOT), stageStats[stage.ordinal()]);
+        }
+        json.append("\n  },\n  \"frames\": [");
+        for (int i = 0; i < count; i++) {
+            int f = (position - count + i + capacity) % capacity;
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"start_ns\": ").append(starts[f] - starts[oldest()])
+                    .append(", \"total_ns\": ").append(totals[f]);
+            for (int s = 0; s < STAGES.length; s++) {
+                json.append(", \"").append(STAGES[s].name().toLowerCase(Locale.ROOT)).append("_ns\": ")
+                        .append(stageNanos[f * STAGES.length + s]);
+            }
+            json.append(", \"vertices\": ").append(counts[f * 3]).append(", \"faces\": ").append(counts[f * 3 + 1])
+                    .append(", \"edges\": ").append(counts[f * 3 + 2])
+                    .append(", \"allocated_bytes\": ").append(allocated[f]).append('}');
+        }
+        json.append("\n  ]\n}\n");
+        out.write(json.toString());
+    }
+
+    // Метод додає до JSON процентилі p50/p95/p99 однієї величини
+    private static void appendPercentiles(StringBuilder json, String name, FrameStats stats) {
+        json.append(String.format(Locale.ROOT, "    \"%s\": {\"p50\": %.4f, \"p95\": %.4f, \"p99\": %.4f}",
+                name, stats.percentileMs(50), stats.percentileMs(95), stats.percentileMs(99)));
+    }
+
+    // Позиція найстаршого записаного кадру
+    private int oldest() {
+        return (position - count + capacity) % capacity;
+    }
+}
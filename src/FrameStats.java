@@ -0,0 +1,58 @@
+/*
+ * FrameStats
+ * Клас для накопичення тривалостей останніх кадрів у кільцевому буфері та обчислення їх процентилів
+ * Запис значення не виділяє пам'ять, сортування копії буфера виконується лише при запиті процентилів
+ */
+
+import java.util.Arrays;
+
+class FrameStats {
+    private final long[] samples; // Тривалості кадрів, нс
+    private final long[] sorted; // Відсортована копія samples для обчислення процентилів
+    private int count; // Кількість записаних значень (не більше розміру буфера)
+    private int position; // Позиція наступного запису
+    private boolean sortedValid; // Ознака того, що sorted відповідає поточному вмісту буфера
+
+    // Конструктор
+    FrameStats(int capacity) {
+        samples = new long[capacity];
+        sorted = new long[capacity];
+    }
+
+    // Метод записує тривалість кадру
+    void record(long nanos) {
+        samples[position] = nanos;
+        position = (position + 1) % samples.length;
+        if (count < samples.length) count++;
+        sortedValid = false;
+    }
+
+    // Метод повертає процентиль p (від 0 до 100) записаних тривалостей у мілісекундах
+    double percentileMs(double p) {
+        if (count == 0) return 0;
+        if (!sortedValid) {
+            System.arraycopy(samples, 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            sortedValid = true;
+        }
+        int index = (int) Math.ceil(p / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1e6;
+    }
+
+    // Метод повертає середню тривалість записаних кадрів у мілісекундах
+    double meanMs() {
+        if (count == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return sum / 1e6 / count;
+    }
+
+    // Метод видаляє всі записані значення
+    void clear() {
+        count = 0;
+        position = 0;
+        sortedValid = false;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * LodChain
+ * Клас для зберігання ланцюжка рівнів деталізації (LOD) однієї фігури та вибору рівня для кадру
+ * Рівень 0 - найдетальніша фігура, кожен наступний має приблизно вчетверо менше граней
+ * Рівень обирається за довжиною ребра на екрані: береться найгрубший рівень, ребра якого ще не перевищують
+ * MAX_EDGE_PIXELS пікселів. Межі переходу для огрубіння та уточнення рознесено на HYSTERESIS,
+ * тому при масштабі поблизу межі рівень не перемикається туди й назад на кожному кадрі
+ * Щоб перемикання між рівнями, які відрізняються кількістю граней у кілька разів, не було помітним стрибком,
+ * той, хто малює фігуру, протягом FADE_NANOS після перемикання плавно змішує зображення попереднього і нового рівнів
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+class LodChain {
+    static final double MAX_EDGE_PIXELS = 12; // Найбільша допустима середня довжина ребра на екрані, пікселів
+    static final double HYSTERESIS = 0.2; // Відносна ширина проміжку між межами огрубіння та уточнення
+    static final long FADE_NANOS = 250_000_000L; // Тривалість плавного переходу між рівнями, нс
+    private static final int MIN_FACES = 64; // Фігури з меншою кількістю граней далі не спрощуються
+    private static final int MAX_LEVELS = 4; // Найбільша кількість рівнів для сітки з файлу
+
+    final ShapeFactory.ShapeData[] levels; // Рівні деталізації, від найдетальнішого
+    final double radius; // Радіус сфери з центром у початку координат, що містить фігуру
+    private final double[] edgeLength; // Середня довжина ребра кожного рівня
+    // Оцінка зверху похибки кожного рівня відносно рівня 0 (нулі для згенерованих рівнів)
+    double[] errors;
+    // Кількість трикутників, до якої спрощувався кожен рівень (нулі для рівня 0 та згенерованих рівнів)
+    // Рівень може мати більше граней, якщо решту ребер не вдалося стягнути без перевертання граней
+    int[] targets;
+    double simplifyRate; // Швидкість спрощення сітки, трикутників вхідних рівнів за секунду (0, якщо не спрощувалась)
+
+    // Конструктор
+    LodChain(ShapeFactory.ShapeData... levels) {
+        this.levels = levels;
+        this.radius = levels[0].bounds()[6];
+        this.edgeLength = new double[levels.length];
+        this.errors = new double[levels.length];
+        this.targets = new int[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            edgeLength[i] = meanEdgeLength(levels[i]);
+        }
+    }
+
+    // Метод повертає рівень, що слід малювати, якщо фігура займає на екрані коло радіусом projectedRadius пікселів
+    // current - рівень, намальований на попередньому кадрі
+    int select(int current, double projectedRadius) {
+        int level = Math.max(0, Math.min(current, levels.length - 1));
+        double pixelsPerUnit = radius > 0 ? projectedRadius / radius : 0;
+        // Уточнюємо, доки ребра поточного рівня помітно довші за межу
+        while (level > 0 && edgeLength[level] * pixelsPerUnit > MAX_EDGE_PIXELS * (1 + HYSTERESIS)) {
+            level--;
+        }
+        // Огрублюємо, доки ребра наступного рівня помітно коротші за межу
+        while (level + 1 < levels.length && edgeLength[level + 1] * pixelsPerUnit < MAX_EDGE_PIXELS * (1 - HYSTERESIS)) {
+            level++;
+        }
+        return level;
+    }
+
+    // Метод повертає радіус фігури на екрані в пікселях
+    // Для перспективної проекції враховується коефіцієнт Point3D.perspectiveFactor у центрі фігури
+    static double projectedRadius(double radius, double scale, boolean perspective) {
+        return radius * scale * Point3D.perspectiveFactor(0, perspective);
+    }
+
+    // Метод повертає кількість граней кожного рівня
+    int[] faceCounts() {
+        int[] counts = new int[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            counts[i] = levels[i].faceCount();
+        }
+        return counts;
+    }
+
+    // Метод повертає номер першого рівня, що має більше граней, ніж заплановано при спрощенні, або -1
+    int missedTarget() {
+        for (int i = 0; i < levels.length; i++) {
+            if (targets[i] > 0 && levels[i].faceCount() > targets[i]) return i;
+        }
+        return -1;
+    }
+
+    // Метод будує ланцюжок рівнів для довільної сітки спрощенням за квадрикою похибки (MeshSimplifier)
+    // Кожен наступний рівень отримується з попереднього і має вчетверо менше трикутників;
+    // спрощення припиняється, коли граней стає замало або їх кількість майже не зменшується
+    static LodChain simplify(ShapeFactory.ShapeData mesh) {
+        ShapeFactory.ShapeData[] levels = new ShapeFactory.ShapeData[MAX_LEVELS];
+        double[] errors = new double[MAX_LEVELS];
+        int[] targets = new int[MAX_LEVELS];
+        levels[0] = mesh;
+        int count = 1;
+        long nanos = 0, faces = 0;
+        MeshSimplifier simplifier = new MeshSimplifier();
+        while (count < MAX_LEVELS && MeshSimplifier.triangleCount(levels[count - 1]) / 4 >= MIN_FACES) {
+            int target = MeshSimplifier.triangleCount(levels[count - 1]) / 4;
+            ShapeFactory.ShapeData level = simplifier.simplify(levels[count - 1], target);
+            nanos += simplifier.nanos;
+            faces += simplifier.inputFaces;
+            if (level.faceCount() > simplifier.inputFaces * 0.8) break;
+            errors[count] = errors[count - 1] + simplifier.maxError;
+            targets[count] = target;
+            levels[count++] = level;
+        }
+        LodChain chain = new LodChain(Arrays.copyOf(levels, count));
+        chain.errors = Arrays.copyOf(errors, count);
+        chain.targets = Arrays.copyOf(targets, count);
+        chain.simplifyRate = nanos > 0 ? faces * 1e9 / nanos : 0;
+        return chain;
+    }
+
+    // Метод у фоновому потоці будує ланцюжок рівнів для сітки, поки на екрані показується сама сітка
+    static CompletableFuture<LodChain> simplifyAsync(ShapeFactory.ShapeData mesh) {
+        return CompletableFuture.supplyAsync(() -> simplify(mesh));
+    }
+
+    // Метод обчислює середню довжину ребра фігури
+    private static double meanEdgeLength(ShapeFactory.ShapeData shape) {
+        int[] e = shape.edges;
+        double[] v = shape.vertices;
+        if (e.length == 0) return 0;
+        double sum = 0;
+        for (int i = 0; i < e.length; i += 2) {
+            double dx = v[e[i] * 3] - v[e[i + 1] * 3];
+            double dy = v[e[i] * 3 + 1] - v[e[i + 1] * 3 + 1];
+            double dz = v[e[i] * 3 + 2] - v[e[i + 1] * 3 + 2];
+            sum += Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+        return sum / (e.length / 2);
+    }
+}
@@ -1,55 +1,179 @@
 /*
  * Matrix3x3
  * Клас для роботи з матрицями 3х3, які використовуються для обертання 3D координат
+ * Елементи зберігаються в одному масиві по рядках; методи з суфіксом InPlace та set... змінюють поточну матрицю
+ * і не виділяють пам'ять. Результати збігаються з попередньою реалізацією на масиві double[][] до останнього біта:
+ * порядок множень і додавань у кожному елементі той самий. Єдина відмінність - елемент добутку, всі доданки
+ * якого дорівнюють нулю, може бути -0.0 замість 0.0 (попередня реалізація додавала доданки до початкового 0.0)
  */
 
+import java.util.Arrays;
+
 public class Matrix3x3 {
-    private final double[][] m; // Поточна матриця
+    private final double[] m = new double[9]; // Поточна матриця, елемент (i, j) має індекс i * 3 + j
+
+    // Конструктор одиничної матриці
+    public Matrix3x3() {
+        m[0] = m[4] = m[8] = 1;
+    }
 
     // Конструктор
     public Matrix3x3(double[][] m) {
-        this.m = m;
+        for (int i = 0; i < 3; i++) {
+            System.arraycopy(m[i], 0, this.m, i * 3, 3);
+        }
     }
 
     // Метод повертає матрицю, яка повернута на кут angle відносно осі X
     public static Matrix3x3 rotationX(double angle) {
-        double c = Math.cos(angle), s = Math.sin(angle);
-        return new Matrix3x3(new double[][] {
-            {1, 0, 0}, {0, c, -s}, {0, s, c}
-        });
+        return new Matrix3x3().setRotationX(angle);
     }
 
     // Метод повертає матрицю, яка повернута на кут angle відносно осі Y
     public static Matrix3x3 rotationY(double angle) {
-        double c = Math.cos(angle), s = Math.sin(angle);
-        return new Matrix3x3(new double[][] {
-            {c, 0, s}, {0, 1, 0}, {-s, 0, c}
-        });
+        return new Matrix3x3().setRotationY(angle);
     }
 
     // Метод повертає матрицю, яка повернута на кут angle відносно осі Z
     public static Matrix3x3 rotationZ(double angle) {
+        return new Matrix3x3().setRotationZ(angle);
+    }
+
+    // Метод перетворює поточну матрицю на матрицю обертання на кут angle відносно осі X
+    public Matrix3x3 setRotationX(double angle) {
+        double c = Math.cos(angle), s = Math.sin(angle);
+        return set(1, 0, 0, 0, c, -s, 0, s, c);
+    }
+
+    // Метод перетворює поточну матрицю на матрицю обертання на кут angle відносно осі Y
+    public Matrix3x3 setRotationY(double angle) {
         double c = Math.cos(angle), s = Math.sin(angle);
-        return new Matrix3x3(new double[][] {
-            {c, -s, 0}, {s, c, 0}, {0, 0, 1}
-        });
+        return set(c, 0, s, 0, 1, 0, -s, 0, c);
+    }
+
+    // Метод перетворює поточну матрицю на матрицю обертання на кут angle відносно осі Z
+    public Matrix3x3 setRotationZ(double angle) {
+        double c = Math.cos(angle), s = Math.sin(angle);
+        return set(c, -s, 0, s, c, 0, 0, 0, 1);
+    }
+
+    // Метод записує в поточну матрицю елементи, перелічені по рядках
+    public Matrix3x3 set(double m00, double m01, double m02, double m10, double m11, double m12,
+                         double m20, double m21, double m22) {
+        m[0] = m00; m[1] = m01; m[2] = m02;
+        m[3] = m10; m[4] = m11; m[5] = m12;
+        m[6] = m20; m[7] = m21; m[8] = m22;
+        return this;
+    }
+
+    // Метод копіює в поточну матрицю елементи матриці other
+    public Matrix3x3 set(Matrix3x3 other) {
+        System.arraycopy(other.m, 0, m, 0, 9);
+        return this;
+    }
+
+    // Метод повертає елемент у рядку row та стовпці column
+    public double get(int row, int column) {
+        return m[row * 3 + column];
     }
 
     // Метод множення збереженої і зовнішньої матриць
     public Matrix3x3 multiply(Matrix3x3 other) {
-        double[][] r = new double[3][3];
-        for (int i = 0; i < 3; i++)
-            for (int j = 0; j < 3; j++)
-                for (int k = 0; k < 3; k++)
-                    r[i][j] += this.m[i][k] * other.m[k][j];
-        return new Matrix3x3(r);
+        return new Matrix3x3().setProduct(this, other);
+    }
+
+    // Метод замінює поточну матрицю добутком left * (поточна матриця)
+    // Так до орієнтації фігури додається обертання left у системі координат глядача
+    public Matrix3x3 premultiplyInPlace(Matrix3x3 left) {
+        return setProduct(left, this);
+    }
+
+    // Метод записує в поточну матрицю добуток a * b (поточна матриця може бути одним із множників)
+    public Matrix3x3 setProduct(Matrix3x3 a, Matrix3x3 b) {
+        double[] x = a.m, y = b.m;
+        double r00 = x[0] * y[0] + x[1] * y[3] + x[2] * y[6];
+        double r01 = x[0] * y[1] + x[1] * y[4] + x[2] * y[7];
+        double r02 = x[0] * y[2] + x[1] * y[5] + x[2] * y[8];
+        double r10 = x[3] * y[0] + x[4] * y[3] + x[5] * y[6];
+        double r11 = x[3] * y[1] + x[4] * y[4] + x[5] * y[7];
+        double r12 = x[3] * y[2] + x[4] * y[5] + x[5] * y[8];
+        double r20 = x[6] * y[0] + x[7] * y[3] + x[8] * y[6];
+        double r21 = x[6] * y[1] + x[7] * y[4] + x[8] * y[7];
+        double r22 = x[6] * y[2] + x[7] * y[5] + x[8] * y[8];
+        return set(r00, r01, r02, r10, r11, r12, r20, r21, r22);
     }
 
     // Метод виконує обертання координат вказаної точки
     public Point3D applyTo(Point3D p) {
-        double x = m[0][0] * p.x + m[0][1] * p.y + m[0][2] * p.z;
-        double y = m[1][0] * p.x + m[1][1] * p.y + m[1][2] * p.z;
-        double z = m[2][0] * p.x + m[2][1] * p.y + m[2][2] * p.z;
-        return new Point3D(x, y, z);
+        return applyTo(p, new Point3D(0, 0, 0));
+    }
+
+    // Метод виконує обертання координат точки p і записує результат у точку result (може збігатися з p)
+    public Point3D applyTo(Point3D p, Point3D result) {
+        double px = p.x, py = p.y, pz = p.z;
+        result.x = m[0] * px + m[1] * py + m[2] * pz;
+        result.y = m[3] * px + m[4] * py + m[5] * pz;
+        result.z = m[6] * px + m[7] * py + m[8] * pz;
+        return result;
+    }
+
+    // Метод виконує обертання вершини з упакованого масиву координат src (зміщення srcOff)
+    // і записує результат в масив dst за зміщенням dstOff
+    public void applyTo(double[] src, int srcOff, double[] dst, int dstOff) {
+        double px = src[srcOff], py = src[srcOff + 1], pz = src[srcOff + 2];
+        dst[dstOff] = m[0] * px + m[1] * py + m[2] * pz;
+        dst[dstOff + 1] = m[3] * px + m[4] * py + m[5] * pz;
+        dst[dstOff + 2] = m[6] * px + m[7] * py + m[8] * pz;
+    }
+
+    // Метод за один прохід обертає вершини з індексами [from, to) з упакованого масиву src,
+    // записує повернуті координати в rotated і їх проекції на екран розміром width x height в screenX, screenY
+    // Результат збігається з послідовним викликом applyTo та Point3D.projectX/projectY для кожної вершини
+    public void transform(double[] src, double[] rotated, int[] screenX, int[] screenY, int from, int to,
+                          int width, int height, double scale, boolean perspective) {
+        double m00 = m[0], m01 = m[1], m02 = m[2];
+        double m10 = m[3], m11 = m[4], m12 = m[5];
+        double m20 = m[6], m21 = m[7], m22 = m[8];
+        double centerX = width / 2.0, centerY = height / 2.0;
+        for (int i = from; i < to; i++) {
+            int k = i * 3;
+            double px = src[k], py = src[k + 1], pz = src[k + 2];
+            double x = m00 * px + m01 * py + m02 * pz;
+            double y = m10 * px + m11 * py + m12 * pz;
+            double z = m20 * px + m21 * py + m22 * pz;
+            rotated[k] = x;
+            rotated[k + 1] = y;
+            rotated[k + 2] = z;
+            if (perspective) {
+                double factor = Point3D.perspectiveFactor(z, true);
+                x *= factor;
+                y *= factor;
+            }
+            screenX[i] = (int) (x * scale + centerX);
+            screenY[i] = (int) (-y * scale + centerY);
+        }
+    }
+
+    // Метод повертає найбільше відхилення елементів добутку M * M^T від одиничної матриці
+    // Для матриці обертання дорівнює нулю з точністю до округлення; зростання вказує на накопичення похибки
+    public double orthonormalityError() {
+        double error = 0;
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                double dot = m[i * 3] * m[j * 3] + m[i * 3 + 1] * m[j * 3 + 1] + m[i * 3 + 2] * m[j * 3 + 2];
+                error = Math.max(error, Math.abs(dot - (i == j ? 1 : 0)));
+            }
+        }
+        return error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Matrix3x3 other && Arrays.equals(m, other.m);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(m);
     }
 }
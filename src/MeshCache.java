@@ -0,0 +1,229 @@
+/*
+ * MeshCache
+ * Клас для збереження даних фігур на диску у компактному двійковому форматі
+ * та їх повторного завантаження замість генерації чи розбору файлу сітки
+ *
+ * Формат файлу (порядок байтів little-endian):
+ *   int    сигнатура 'SMP3'
+ *   int    версія формату
+ *   int    тип фігури (порядковий номер ShapeType)
+ *   int    ознаки (біт 0 - замкнена поверхня)
+ *   int    кількість вершин, граней, індексів граней та ребер
+ *   double межі фігури: minX, minY, minZ, maxX, maxY, maxZ та радіус (ShapeData.bounds)
+ *   double[] координати вершин, int[] зміщення граней, int[] індекси граней, int[] ребра
+ *
+ * Під час читання перевіряються зміщення граней, всі індекси вершин та межі, тому пошкоджений файл
+ * вважається відсутнім у кеші, а фігура генерується заново і перезаписує його
+ * Межі з заголовка передаються фігурі, тому після читання їх не потрібно обчислювати заново
+ *
+ * Файли кешу зберігаються в каталозі, вказаному властивістю -Dsmp3d.meshCache=... (off - вимкнути кеш),
+ * за замовчуванням - у тимчасовому каталозі системи
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+class MeshCache {
+    private static final int MAGIC = 0x33504D53; // 'SMP3'
+    private static final int VERSION = 3; // Версія формату файлу
+    // Версія алгоритмів генерації фігур: збільшується при кожній зміні генераторів ShapeFactory,
+    // щоб файли, створені попередніми генераторами, не використовувались
+    private static final int GENERATOR_VERSION = 2;
+    private static final int HEADER_SIZE = 88;
+    private static final int FLAG_CLOSED = 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    // Каталог кешу або null, якщо кеш вимкнено
+    static final Path DIRECTORY = directory(System.getProperty("smp3d.meshCache"));
+
+    private static Path directory(String value) {
+        if (value == null) {
+            return Path.of(System.getProperty("java.io.tmpdir"), "smp3d-cache");
+        }
+        return value.equals("off") ? null : Path.of(value);
+    }
+
+    // Метод формує ключ кешу для згенерованої фігури з типу та параметрів генерації
+    static String key(ShapeFactory.ShapeType type, Object... params) {
+        StringBuilder sb = new StringBuilder(type.name());
+        for (Object p : params) {
+            sb.append('_').append(p);
+        }
+        return sb.append("_g").append(GENERATOR_VERSION).toString();
+    }
+
+    // Метод формує ключ кешу для сітки з файлу: файл вважається тим самим, доки не змінились його шлях,
+    // розмір і час зміни
+    static String key(Path source) throws IOException {
+        Path absolute = source.toAbsolutePath();
+        String name = absolute.getFileName().toString().replaceAll("[^A-Za-z0-9.-]", "_");
+        return "MESH_" + name + "_" + Integer.toHexString(absolute.toString().hashCode())
+                + "_" + Long.toHexString(Files.size(source))
+                + "_" + Long.toHexString(Files.getLastModifiedTime(source).toMillis());
+    }
+
+    // Метод повертає фігуру з кешу або null, якщо її там немає чи файл пошкоджений
+    static ShapeFactory.ShapeData find(String key) {
+        if (DIRECTORY == null) return null;
+        Path file = DIRECTORY.resolve(key + ".mesh");
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            return read(file);
+        } catch (IOException e) {
+            return null; // Пошкоджений файл або файл старої версії буде перезаписано
+        }
+    }
+
+    // Метод зберігає фігуру в кеш
+    // Кеш лише пришвидшує завантаження, тому помилки запису не перешкоджають роботі програми
+    static void store(String key, ShapeFactory.ShapeData shape) {
+        if (DIRECTORY == null) return;
+        try {
+            Files.createDirectories(DIRECTORY);
+            write(shape, DIRECTORY.resolve(key + ".mesh"));
+        } catch (IOException e) {
+            // Каталог недоступний для запису або закінчилось місце - працюємо без кешу
+        }
+    }
+
+    // Метод читає фігуру з файлу
+    // Файл відображається в пам'ять і його масиви копіюються в масиви фігури одним блоком кожен
+    static ShapeFactory.ShapeData read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Некоректний розмір файлу кешу: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Невідомий формат або версія файлу кешу: " + path);
+            }
+            int type = buffer.getInt(8);
+            int flags = buffer.getInt(12);
+            long vertexCount = buffer.getInt(16);
+            long faceCount = buffer.getInt(20);
+            long indexCount = buffer.getInt(24);
+            long edgeCount = buffer.getInt(28);
+            if (type < 0 || type >= ShapeFactory.ShapeType.values().length || vertexCount < 0 || faceCount < 0
+                    || indexCount < 0 || edgeCount < 0
+                    || size != HEADER_SIZE + vertexCount * 24 + (faceCount + 1 + indexCount + edgeCount * 2) * 4) {
+                throw new IOException("Пошкоджений заголовок файлу кешу: " + path);
+            }
+
+            double[] bounds = new double[7];
+            buffer.slice(32, bounds.length * 8).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(bounds);
+            if (!validBounds(bounds)) {
+                throw new IOException("Пошкоджені межі фігури у файлі кешу: " + path);
+            }
+
+            double[] vertices = new double[(int) vertexCount * 3];
+            int[] faceOffsets = new int[(int) faceCount + 1];
+            int[] faceIndices = new int[(int) indexCount];
+            int[] edges = new int[(int) edgeCount * 2];
+            int intsStart = HEADER_SIZE + vertices.length * 8;
+            buffer.slice(HEADER_SIZE, vertices.length * 8).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(vertices);
+            IntBuffer ints = buffer.slice(intsStart, (int) size - intsStart).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            ints.get(faceOffsets).get(faceIndices).get(edges);
+            if (faceOffsets[0] != 0 || faceOffsets[(int) faceCount] != faceIndices.length
+                    || !ascending(faceOffsets)) {
+                throw new IOException("Пошкоджені дані граней у файлі кешу: " + path);
+            }
+            if (!inRange(faceIndices, (int) vertexCount) || !inRange(edges, (int) vertexCount)) {
+                throw new IOException("Індекс вершини поза межами у файлі кешу: " + path);
+            }
+            ShapeFactory.ShapeData shape = new ShapeFactory.ShapeData(ShapeFactory.ShapeType.values()[type], vertices,
+                    faceOffsets, faceIndices, edges, (flags & FLAG_CLOSED) != 0);
+            shape.bounds = bounds;
+            return shape;
+        }
+    }
+
+    // Метод перевіряє, що межі скінченні, мінімуми не перевищують максимумів, а радіус невід'ємний
+    private static boolean validBounds(double[] b) {
+        for (double v : b) {
+            if (!Double.isFinite(v)) return false;
+        }
+        return b[0] <= b[3] && b[1] <= b[4] && b[2] <= b[5] && b[6] >= 0;
+    }
+
+    // Метод перевіряє, що зміщення граней не спадають
+    private static boolean ascending(int[] offsets) {
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) return false;
+        }
+        return true;
+    }
+
+    // Метод перевіряє, що всі індекси лежать у межах [0, vertexCount)
+    private static boolean inRange(int[] indices, int vertexCount) {
+        for (int index : indices) {
+            if (index < 0 || index >= vertexCount) return false;
+        }
+        return true;
+    }
+
+    // Метод записує фігуру у файл
+    // Дані спершу пишуться в тимчасовий файл, який потім атомарно перейменовується,
+    // тому інший процес ніколи не прочитає частково записаний файл
+    static void write(ShapeFactory.ShapeData shape, Path path) throws IOException {
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(shape.type.ordinal()).putInt(shape.closed ? FLAG_CLOSED : 0);
+                buffer.putInt(shape.vertexCount()).putInt(shape.faceCount()).putInt(shape.faceIndices.length)
+                        .putInt(shape.edgeCount());
+                for (double b : shape.bounds()) {
+                    buffer.putDouble(b);
+                }
+                putDoubles(channel, buffer, shape.vertices);
+                putInts(channel, buffer, shape.faceOffsets);
+                putInts(channel, buffer, shape.faceIndices);
+                putInts(channel, buffer, shape.edges);
+                flush(channel, buffer);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Методи дописують масив у буфер частинами, скидаючи заповнений буфер у файл
+    private static void putDoubles(FileChannel channel, ByteBuffer buffer, double[] values) throws IOException {
+        for (int offset = 0; offset < values.length; ) {
+            int count = Math.min(buffer.remaining() / 8, values.length - offset);
+            buffer.asDoubleBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * 8);
+            offset += count;
+            if (buffer.remaining() < 8) flush(channel, buffer);
+        }
+    }
+
+    private static void putInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        for (int offset = 0; offset < values.length; ) {
+            int count = Math.min(buffer.remaining() / 4, values.length - offset);
+            buffer.asIntBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * 4);
+            offset += count;
+            if (buffer.remaining() < 4) flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,373 @@
+/*
+ * MeshLoader
+ * Клас для завантаження сіток з файлів у форматах бінарний STL та Wavefront OBJ
+ * STL читається безпосередньо з відображеного в пам'ять файлу, без копіювання у проміжні буфери
+ * OBJ розбирається потоково на рівні байтів, без створення рядка для кожного рядка файлу
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+class MeshLoader {
+    private static final int STL_HEADER_SIZE = 84; // Заголовок (80 байт) та кількість трикутників (4 байти)
+    private static final int STL_RECORD_SIZE = 50; // Нормаль, три вершини та 2 байти атрибутів
+    private static final int STL_WINDOW_RECORDS = (64 << 20) / STL_RECORD_SIZE; // Записів в одному вікні відображення
+    private static final int OBJ_BUFFER_SIZE = 1 << 20; // Розмір буфера читання OBJ
+    private static final double TARGET_RADIUS = 2.0; // Розмір, до якого масштабується сітка (як у стандартних фігур)
+
+    // Метод завантажує сітку з файлу, формат визначається за розширенням
+    // Повторне завантаження незміненого файлу читає готові дані з дискового кешу
+    public static ShapeFactory.ShapeData load(Path path) throws IOException {
+        String key = MeshCache.key(path);
+        ShapeFactory.ShapeData shape = MeshCache.find(key);
+        if (shape == null) {
+            shape = parse(path);
+            MeshCache.store(key, shape);
+        }
+        return shape;
+    }
+
+    // Метод розбирає файл сітки відповідно до його розширення
+    private static ShapeFactory.ShapeData parse(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".stl")) {
+            return loadStl(path);
+        }
+        if (name.endsWith(".obj")) {
+            return loadObj(path);
+        }
+        throw new IOException("Невідомий формат файлу: " + path);
+    }
+
+    // Метод завантажує бінарний STL
+    // Файл відображається в пам'ять вікнами по 64 МБ, однакові вершини сусідніх трикутників об'єднуються
+    public static ShapeFactory.ShapeData loadStl(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < STL_HEADER_SIZE) {
+                throw new IOException("Файл занадто короткий для STL: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, STL_HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            long count = header.getInt(80) & 0xFFFFFFFFL;
+            if (STL_HEADER_SIZE + count * STL_RECORD_SIZE != size) {
+                byte[] start = new byte[5];
+                header.get(0, start);
+                throw new IOException(new String(start, StandardCharsets.US_ASCII).equals("solid")
+                        ? "Текстовий STL не підтримується: " + path
+                        : "Розмір файлу не відповідає кількості трикутників: " + path);
+            }
+            if (count * 3 > Integer.MAX_VALUE - 8) {
+                throw new IOException("Занадто багато трикутників: " + count);
+            }
+
+            int triangles = (int) count;
+            int[] faceIndices = new int[triangles * 3];
+            VertexWelder welder = new VertexWelder(triangles / 2 + 8);
+            int faceCount = 0;
+            for (int first = 0; first < triangles; first += STL_WINDOW_RECORDS) {
+                int records = Math.min(STL_WINDOW_RECORDS, triangles - first);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        STL_HEADER_SIZE + (long) first * STL_RECORD_SIZE, (long) records * STL_RECORD_SIZE);
+                window.order(ByteOrder.LITTLE_ENDIAN);
+                for (int t = 0; t < records; t++) {
+                    int offset = t * STL_RECORD_SIZE + 12; // Нормаль пропускаємо, її буде обчислено з вершин
+                    int a = welder.add(window.getFloat(offset), window.getFloat(offset + 4), window.getFloat(offset + 8));
+                    int b = welder.add(window.getFloat(offset + 12), window.getFloat(offset + 16),
+                            window.getFloat(offset + 20));
+                    int c = welder.add(window.getFloat(offset + 24), window.getFloat(offset + 28),
+                            window.getFloat(offset + 32));
+                    // Вироджені трикутники (зі спільними вершинами) не мають площі і не малюються
+                    if (a != b && b != c && a != c) {
+                        faceIndices[faceCount * 3] = a;
+                        faceIndices[faceCount * 3 + 1] = b;
+                        faceIndices[faceCount * 3 + 2] = c;
+                        faceCount++;
+                    }
+                }
+            }
+
+            int[] faceOffsets = new int[faceCount + 1];
+            for (int f = 1; f <= faceCount; f++) {
+                faceOffsets[f] = f * 3;
+            }
+            if (faceCount < triangles) {
+                faceIndices = Arrays.copyOf(faceIndices, faceCount * 3);
+            }
+            double[] vertices = welder.vertices();
+            normalize(vertices);
+            return ShapeFactory.createShape(ShapeFactory.ShapeType.MESH, vertices, faceOffsets, faceIndices);
+        }
+    }
+
+    // Метод завантажує Wavefront OBJ
+    // Використовуються лише рядки вершин (v) та граней (f), решта рядків пропускається
+    public static ShapeFactory.ShapeData loadObj(Path path) throws IOException {
+        ObjParser parser = new ObjParser();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            byte[] buffer = new byte[OBJ_BUFFER_SIZE];
+            int length = 0; // Кількість прочитаних, але ще не розібраних байтів
+            boolean eof = false;
+            while (!eof) {
+                int read = channel.read(ByteBuffer.wrap(buffer, length, buffer.length - length));
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    length += read;
+                }
+
+                // Розбираємо всі повні рядки буфера, а незавершений рядок переносимо на його початок
+                int start = 0;
+                for (int i = 0; i < length; i++) {
+                    if (buffer[i] == '\n') {
+                        parser.parseLine(buffer, start, i);
+                        start = i + 1;
+                    }
+                }
+                if (eof && start < length) {
+                    parser.parseLine(buffer, start, length);
+                    start = length;
+                }
+                System.arraycopy(buffer, start, buffer, 0, length - start);
+                length -= start;
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2); // Рядок довший за буфер
+                }
+            }
+        }
+
+        double[] vertices = Arrays.copyOf(parser.vertices, parser.vertexCount * 3);
+        normalize(vertices);
+        return ShapeFactory.createShape(ShapeFactory.ShapeType.MESH, vertices,
+                Arrays.copyOf(parser.faceOffsets, parser.faceCount + 1),
+                Arrays.copyOf(parser.faceIndices, parser.faceOffsets[parser.faceCount]));
+    }
+
+    // Метод переносить центр сітки в початок координат і масштабує її до розміру стандартних фігур
+    private static void normalize(double[] vertices) {
+        if (vertices.length == 0) return;
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int i = 0; i < vertices.length; i += 3) {
+            minX = Math.min(minX, vertices[i]);
+            maxX = Math.max(maxX, vertices[i]);
+            minY = Math.min(minY, vertices[i + 1]);
+            maxY = Math.max(maxY, vertices[i + 1]);
+            minZ = Math.min(minZ, vertices[i + 2]);
+            maxZ = Math.max(maxZ, vertices[i + 2]);
+        }
+        double cx = (minX + maxX) / 2, cy = (minY + maxY) / 2, cz = (minZ + maxZ) / 2;
+        double extent = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ)) / 2;
+        double k = extent > 0 ? TARGET_RADIUS / extent : 1;
+        for (int i = 0; i < vertices.length; i += 3) {
+            vertices[i] = (vertices[i] - cx) * k;
+            vertices[i + 1] = (vertices[i + 1] - cy) * k;
+            vertices[i + 2] = (vertices[i + 2] - cz) * k;
+        }
+    }
+
+    // Допоміжний клас для об'єднання однакових вершин
+    // Хеш-таблиця з відкритою адресацією зберігає лише номери вершин, координати лежать в упакованому масиві
+    private static final class VertexWelder {
+        private double[] coords; // Координати унікальних вершин
+        private int count; // Кількість унікальних вершин
+        private int[] table; // Номери вершин у хеш-таблиці, -1 - вільна комірка
+        private int mask;
+
+        VertexWelder(int expected) {
+            coords = new double[expected * 3];
+            int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+            table = new int[capacity];
+            Arrays.fill(table, -1);
+            mask = capacity - 1;
+        }
+
+        // Метод повертає номер вершини з вказаними координатами, додаючи її, якщо такої ще не було
+        int add(float x, float y, float z) {
+            // Додавання нуля перетворює -0.0 на 0.0, щоб обидва значення потрапили в одну комірку
+            x += 0.0f;
+            y += 0.0f;
+            z += 0.0f;
+            int h = (Float.floatToRawIntBits(x) * 31 + Float.floatToRawIntBits(y)) * 31 + Float.floatToRawIntBits(z);
+            h *= 0x9E3779B9;
+            for (int i = (h ^ (h >>> 16)) & mask; ; i = (i + 1) & mask) {
+                int id = table[i];
+                if (id < 0) {
+                    table[i] = append(x, y, z);
+                    return table[i];
+                }
+                if (coords[id * 3] == x && coords[id * 3 + 1] == y && coords[id * 3 + 2] == z) {
+                    return id;
+                }
+            }
+        }
+
+        // Метод дописує нову вершину, за потреби збільшуючи масиви
+        private int append(float x, float y, float z) {
+            if (count * 3 == coords.length) {
+                coords = Arrays.copyOf(coords, Math.max(24, coords.length + (coords.length >> 1)) / 3 * 3);
+            }
+            coords[count * 3] = x;
+            coords[count * 3 + 1] = y;
+            coords[count * 3 + 2] = z;
+            if (++count * 2 > table.length) {
+                rehash();
+            }
+            return count - 1;
+        }
+
+        // Метод подвоює хеш-таблицю, коли вона заповнена наполовину
+        private void rehash() {
+            table = new int[table.length * 2];
+            Arrays.fill(table, -1);
+            mask = table.length - 1;
+            for (int id = 0; id < count; id++) {
+                int h = (Float.floatToRawIntBits((float) coords[id * 3]) * 31
+                        + Float.floatToRawIntBits((float) coords[id * 3 + 1])) * 31
+                        + Float.floatToRawIntBits((float) coords[id * 3 + 2]);
+                h *= 0x9E3779B9;
+                int i = (h ^ (h >>> 16)) & mask;
+                while (table[i] >= 0) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = id;
+            }
+        }
+
+        // Метод повертає координати вершин масивом точного розміру
+        double[] vertices() {
+            return coords.length == count * 3 ? coords : Arrays.copyOf(coords, count * 3);
+        }
+    }
+
+    // Допоміжний клас для розбору рядків OBJ безпосередньо з байтового буфера
+    private static final class ObjParser {
+        // Точні степені десяти: добуток або частка точного цілого на них округлюється коректно
+        private static final double[] POW10 = {
+                1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+                1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+        double[] vertices = new double[3 * 1024];
+        int vertexCount;
+        int[] faceOffsets = new int[1025];
+        int[] faceIndices = new int[4 * 1024];
+        int faceCount;
+        private int line; // Номер поточного рядка для повідомлень про помилки
+        private int pos; // Поточна позиція розбору в буфері
+
+        // Метод розбирає рядок, що займає байти [start, end) буфера
+        void parseLine(byte[] b, int start, int end) throws IOException {
+            line++;
+            pos = start;
+            skipSpaces(b, end);
+            if (pos + 1 >= end || !isSpace(b[pos + 1])) return;
+            if (b[pos] == 'v') {
+                pos++;
+                if (vertexCount * 3 == vertices.length) {
+                    vertices = Arrays.copyOf(vertices, vertices.length * 2);
+                }
+                vertices[vertexCount * 3] = parseDouble(b, end);
+                vertices[vertexCount * 3 + 1] = parseDouble(b, end);
+                vertices[vertexCount * 3 + 2] = parseDouble(b, end);
+                vertexCount++;
+            } else if (b[pos] == 'f') {
+                pos++;
+                int first = faceOffsets[faceCount];
+                int n = first;
+                for (skipSpaces(b, end); pos < end; skipSpaces(b, end)) {
+                    long index = parseInt(b, end);
+                    index = index < 0 ? vertexCount + index : index - 1; // Від'ємні індекси рахуються від кінця
+                    if (index < 0 || index >= vertexCount) {
+                        throw new IOException("Рядок " + line + ": посилання на неіснуючу вершину");
+                    }
+                    if (n == faceIndices.length) {
+                        faceIndices = Arrays.copyOf(faceIndices, faceIndices.length * 2);
+                    }
+                    faceIndices[n++] = (int) index;
+                    // Індекси текстурних координат і нормалей (v/vt/vn) не потрібні
+                    while (pos < end && !isSpace(b[pos])) pos++;
+                }
+                if (n - first >= 3) {
+                    if (faceCount + 2 == faceOffsets.length) {
+                        faceOffsets = Arrays.copyOf(faceOffsets, faceOffsets.length * 2);
+                    }
+                    faceOffsets[++faceCount] = n;
+                }
+            }
+        }
+
+        private void skipSpaces(byte[] b, int end) {
+            while (pos < end && isSpace(b[pos])) pos++;
+        }
+
+        private static boolean isSpace(byte c) {
+            return c == ' ' || c == '\t' || c == '\r';
+        }
+
+        // Метод читає ціле число зі знаком
+        private long parseInt(byte[] b, int end) throws IOException {
+            boolean negative = pos < end && b[pos] == '-';
+            if (negative || (pos < end && b[pos] == '+')) pos++;
+            int digitsStart = pos;
+            long value = 0;
+            while (pos < end && b[pos] >= '0' && b[pos] <= '9' && value < Integer.MAX_VALUE) {
+                value = value * 10 + (b[pos++] - '0');
+            }
+            if (pos == digitsStart) {
+                throw new IOException("Рядок " + line + ": очікувалось ціле число");
+            }
+            return negative ? -value : value;
+        }
+
+        // Метод читає дійсне число
+        // Мантиса до 2^53 з порядком до 22 перетворюється точно, довші записи розбирає Double.parseDouble
+        private double parseDouble(byte[] b, int end) throws IOException {
+            skipSpaces(b, end);
+            int start = pos;
+            boolean negative = pos < end && b[pos] == '-';
+            if (negative || (pos < end && b[pos] == '+')) pos++;
+            long mantissa = 0;
+            int exponent = 0;
+            boolean digits = false;
+            for (; pos < end && b[pos] >= '0' && b[pos] <= '9'; pos++, digits = true) {
+                if (mantissa < 100_000_000_000_000_000L) {
+                    mantissa = mantissa * 10 + (b[pos] - '0');
+                } else {
+                    exponent++;
+                }
+            }
+            if (pos < end && b[pos] == '.') {
+                for (pos++; pos < end && b[pos] >= '0' && b[pos] <= '9'; pos++, digits = true) {
+                    if (mantissa < 100_000_000_000_000_000L) {
+                        mantissa = mantissa * 10 + (b[pos] - '0');
+                        exponent--;
+                    }
+                }
+            }
+            if (!digits) {
+                throw new IOException("Рядок " + line + ": очікувалось число");
+            }
+            if (pos < end && (b[pos] == 'e' || b[pos] == 'E')) {
+                pos++;
+                exponent += (int) Math.max(-1000, Math.min(1000, parseInt(b, end)));
+            }
+            if (pos < end && !isSpace(b[pos])) {
+                throw new IOException("Рядок " + line + ": некоректне число");
+            }
+
+            if (mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+                double value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+                return negative ? -value : value;
+            }
+            return Double.parseDouble(new String(b, start, pos - start, StandardCharsets.US_ASCII));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,538 @@
+/*
+ * MeshSimplifier
+ * Клас для спрощення сітки до заданої кількості граней стягуванням ребер за квадрикою похибки (Garland-Heckbert)
+ * Кожній вершині відповідає квадрика - сума квадратів відстаней до площин її граней. Ребра стягуються
+ * в точку з найменшою сумарною квадрикою кінців у порядку зростання похибки, який задає черга з пріоритетом
+ * Багатокутні грані попередньо розбиваються на трикутники, тому результат складається з трикутників
+ * Вершини, грані та черга зберігаються в масивах примітивів. Після стягування ребра записи черги для сусідніх
+ * ребер не оновлюються: квадрики лише додаються, тому справжня похибка ребра не менша за записану в черзі.
+ * Застарілий запис розпізнається при вилученні за номерами версій вершин, його похибка перераховується,
+ * і він повертається в чергу - порядок стягувань при цьому той самий, що й при негайному оновленні
+ * Ребро, стягування якого перевернуло б сусідні грані, відкладається в списки обох його кінців і повертається
+ * в чергу, щойно котрийсь із трикутників навколо кінців зміниться: після іншого стягування воно може стати допустимим
+ * Екземпляр не призначений для одночасного використання з кількох потоків
+ */
+
+import java.util.Arrays;
+
+class MeshSimplifier {
+    private static final double BOUNDARY_WEIGHT = 1000; // Вага площин, що утримують межу відкритої поверхні
+    // Кількість елементів квадрики: 10 різних елементів симетричної матриці 4x4 та сумарна вага її площин
+    private static final int Q = 11;
+
+    // Результати останнього спрощення
+    int inputFaces; // Кількість трикутників вхідної сітки після розбиття граней
+    int outputFaces; // Кількість трикутників результату
+    int collapses; // Кількість стягнутих ребер
+    // Найбільша похибка стягування: середньоквадратична відстань нової вершини до площин вихідних граней,
+    // що зійшлися в ній, в одиницях координат
+    double maxError;
+    long nanos; // Тривалість спрощення, нс
+
+    // Дані сітки, що спрощується
+    private int[] tri; // Індекси вершин трикутників, по три на трикутник
+    private boolean[] faceAlive;
+    private double[] pos; // Координати вершин
+    private double[] quadrics; // Квадрики вершин, по Q елементів на вершину
+    private int[] parent; // Вершина, в яку стягнуто вершину (для вершин, що залишились, - вона сама)
+    private int[] version; // Версія вершини збільшується при кожній зміні її положення чи квадрики
+    // Списки кутів трикутників (номер трикутника * 3 + номер кута) для кожної вершини
+    private int[] head, tail, next;
+    // Відкладені ребра: кінці ребра e - parkedEdges[2e], parkedEdges[2e + 1] (-1, якщо ребро вже повернуто в чергу);
+    // вузол 2e + side входить до списку кінця side, parkedNext - наступний вузол у списку вершини
+    private int[] parkedHead, parkedEdges, parkedNext;
+    private int parkedCount;
+    private int parkedWaiting; // Кількість відкладених ребер, ще не повернутих у чергу
+    private final double[] sum = new double[Q]; // Сумарна квадрика ребра, що розглядається
+    private final double[] point = new double[4]; // Положення нової вершини та її похибка
+    private final CollapseQueue queue = new CollapseQueue();
+
+    // Метод спрощує фігуру до targetFaces трикутників або менше, якщо похибка дозволяє
+    // Повертає нову фігуру, вхідна фігура не змінюється
+    ShapeFactory.ShapeData simplify(ShapeFactory.ShapeData shape, int targetFaces) {
+        long start = System.nanoTime();
+        triangulate(shape);
+        int vertexCount = shape.vertexCount();
+        int faceCount = inputFaces;
+        pos = shape.vertices.clone();
+        parent = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            parent[v] = v;
+        }
+        version = new int[vertexCount];
+        parkedHead = new int[vertexCount];
+        Arrays.fill(parkedHead, -1);
+        parkedEdges = new int[256];
+        parkedNext = new int[256];
+        parkedCount = parkedWaiting = 0;
+        buildCornerLists(vertexCount);
+        buildQuadrics(vertexCount);
+
+        // Початкова черга з усіх ребер
+        queue.clear();
+        for (int c = 0; c < tri.length; c++) {
+            int a = tri[c];
+            int b = tri[c - c % 3 + (c + 1) % 3];
+            if (a < b || isBoundary(a, b, c / 3)) {
+                push(a, b);
+            }
+        }
+
+        double maxCost = 0;
+        collapses = 0;
+        while (faceCount > targetFaces && queue.size > 0) {
+            queue.pop();
+            int a = find(queue.topA), b = find(queue.topB);
+            if (a == b) continue; // Ребро вже стягнуто
+            if (a != queue.topA || b != queue.topB || version[a] != queue.topVa || version[b] != queue.topVb) {
+                // Запис застарів: один з кінців ребра змінився, тому похибку слід перерахувати
+                if (adjacent(a, b)) push(a, b);
+                continue;
+            }
+            optimalPoint(a, b);
+            if (flips(a, b) || flips(b, a)) {
+                park(a, b); // Стягування перевернуло б сусідні грані
+                continue;
+            }
+            faceCount -= collapse(a, b);
+            wakeAround(a, b);
+            if (sum[10] > 0) {
+                maxCost = Math.max(maxCost, point[3] / sum[10]);
+            }
+            collapses++;
+        }
+
+        ShapeFactory.ShapeData result = compact(shape.type);
+        outputFaces = result.faceCount();
+        maxError = Math.sqrt(maxCost);
+        nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // Метод повертає вершину, в яку зрештою стягнуто вершину v, скорочуючи шлях для наступних пошуків
+    private int find(int v) {
+        int root = v;
+        while (parent[root] != root) root = parent[root];
+        while (parent[v] != root) {
+            int up = parent[v];
+            parent[v] = root;
+            v = up;
+        }
+        return root;
+    }
+
+    // Метод перевіряє, чи є в сітці трикутник, що містить обидві вершини a та b
+    private boolean adjacent(int a, int b) {
+        for (int c = head[a]; c >= 0; c = next[c]) {
+            int t = c / 3;
+            if (faceAlive[t] && (tri[t * 3] == b || tri[t * 3 + 1] == b || tri[t * 3 + 2] == b)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Метод відкладає ребро (a, b), стягування якого зараз неможливе
+    private void park(int a, int b) {
+        if (parkedCount * 2 == parkedEdges.length) {
+            parkedEdges = Arrays.copyOf(parkedEdges, parkedEdges.length * 2);
+            parkedNext = Arrays.copyOf(parkedNext, parkedNext.length * 2);
+        }
+        int e = parkedCount++;
+        parkedWaiting++;
+        parkedEdges[e * 2] = a;
+        parkedEdges[e * 2 + 1] = b;
+        parkedNext[e * 2] = parkedHead[a];
+        parkedHead[a] = e * 2;
+        parkedNext[e * 2 + 1] = parkedHead[b];
+        parkedHead[b] = e * 2 + 1;
+    }
+
+    // Метод повертає в чергу відкладені ребра, трикутники навколо кінців яких змінились після стягування
+    // ребра (u, v) у вершину u: ребра вершин u, v та всіх сусідів u
+    private void wakeAround(int u, int v) {
+        if (parkedWaiting == 0) return;
+        wake(u);
+        wake(v);
+        for (int c = head[u]; c >= 0; c = next[c]) {
+            int t = c / 3, k = c % 3;
+            wake(tri[t * 3 + (k + 1) % 3]);
+            wake(tri[t * 3 + (k + 2) % 3]);
+        }
+    }
+
+    // Метод повертає в чергу відкладені ребра вершини w з поточними версіями кінців
+    private void wake(int w) {
+        for (int n = parkedHead[w]; n >= 0; n = parkedNext[n]) {
+            int e = n >> 1;
+            if (parkedEdges[e * 2] < 0) continue; // Ребро вже повернуто через інший кінець
+            int a = find(parkedEdges[e * 2]), b = find(parkedEdges[e * 2 + 1]);
+            parkedEdges[e * 2] = -1;
+            parkedWaiting--;
+            if (a != b && adjacent(a, b)) push(a, b);
+        }
+        parkedHead[w] = -1;
+    }
+
+    // Метод розбиває багатокутні грані на трикутники віялом з першої вершини
+    private void triangulate(ShapeFactory.ShapeData shape) {
+        int count = triangleCount(shape);
+        tri = new int[count * 3];
+        int k = 0;
+        for (int f = 0; f < shape.faceCount(); f++) {
+            int startIndex = shape.faceOffsets[f];
+            for (int i = startIndex + 1; i + 1 < shape.faceOffsets[f + 1]; i++) {
+                tri[k++] = shape.faceIndices[startIndex];
+                tri[k++] = shape.faceIndices[i];
+                tri[k++] = shape.faceIndices[i + 1];
+            }
+        }
+        inputFaces = count;
+        faceAlive = new boolean[count];
+        Arrays.fill(faceAlive, true);
+    }
+
+    // Метод повертає кількість трикутників, на які розбиваються грані фігури
+    static int triangleCount(ShapeFactory.ShapeData shape) {
+        int count = 0;
+        for (int f = 0; f < shape.faceCount(); f++) {
+            count += Math.max(0, shape.faceOffsets[f + 1] - shape.faceOffsets[f] - 2);
+        }
+        return count;
+    }
+
+    // Метод будує для кожної вершини список кутів трикутників, у яких вона знаходиться
+    private void buildCornerLists(int vertexCount) {
+        head = new int[vertexCount];
+        tail = new int[vertexCount];
+        next = new int[tri.length];
+        Arrays.fill(head, -1);
+        for (int c = tri.length - 1; c >= 0; c--) {
+            int v = tri[c];
+            if (head[v] < 0) tail[v] = c;
+            next[c] = head[v];
+            head[v] = c;
+        }
+    }
+
+    // Метод обчислює квадрики вершин з площин трикутників
+    // Для ребер, що належать лише одній грані, додаються площини, перпендикулярні до грані,
+    // щоб межа відкритої поверхні не стягувалась всередину
+    private void buildQuadrics(int vertexCount) {
+        quadrics = new double[vertexCount * Q];
+        double[] n = new double[3];
+        for (int t = 0; t < faceAlive.length; t++) {
+            int a = tri[t * 3], b = tri[t * 3 + 1], c = tri[t * 3 + 2];
+            if (!normal(a, b, c, n)) continue;
+            double d = -(n[0] * pos[a * 3] + n[1] * pos[a * 3 + 1] + n[2] * pos[a * 3 + 2]);
+            addPlane(a, n[0], n[1], n[2], d, 1);
+            addPlane(b, n[0], n[1], n[2], d, 1);
+            addPlane(c, n[0], n[1], n[2], d, 1);
+
+            for (int k = 0; k < 3; k++) {
+                int p = tri[t * 3 + k], q = tri[t * 3 + (k + 1) % 3];
+                if (!isBoundary(p, q, t)) continue;
+                double ex = pos[q * 3] - pos[p * 3], ey = pos[q * 3 + 1] - pos[p * 3 + 1], ez = pos[q * 3 + 2] - pos[p * 3 + 2];
+                double mx = ey * n[2] - ez * n[1], my = ez * n[0] - ex * n[2], mz = ex * n[1] - ey * n[0];
+                double len = Math.sqrt(mx * mx + my * my + mz * mz);
+                if (len == 0) continue;
+                mx /= len;
+                my /= len;
+                mz /= len;
+                double md = -(mx * pos[p * 3] + my * pos[p * 3 + 1] + mz * pos[p * 3 + 2]);
+                addPlane(p, mx, my, mz, md, BOUNDARY_WEIGHT);
+                addPlane(q, mx, my, mz, md, BOUNDARY_WEIGHT);
+            }
+        }
+    }
+
+    // Метод перевіряє, чи належить ребро (a, b) лише трикутнику t
+    private boolean isBoundary(int a, int b, int t) {
+        for (int c = head[a]; c >= 0; c = next[c]) {
+            int other = c / 3;
+            if (other != t && faceAlive[other]
+                    && (tri[other * 3] == b || tri[other * 3 + 1] == b || tri[other * 3 + 2] == b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Метод додає до квадрики вершини v площину nx*x + ny*y + nz*z + d = 0 з вагою w
+    private void addPlane(int v, double nx, double ny, double nz, double d, double w) {
+        int i = v * Q;
+        quadrics[i] += w * nx * nx;
+        quadrics[i + 1] += w * nx * ny;
+        quadrics[i + 2] += w * nx * nz;
+        quadrics[i + 3] += w * nx * d;
+        quadrics[i + 4] += w * ny * ny;
+        quadrics[i + 5] += w * ny * nz;
+        quadrics[i + 6] += w * ny * d;
+        quadrics[i + 7] += w * nz * nz;
+        quadrics[i + 8] += w * nz * d;
+        quadrics[i + 9] += w * d * d;
+        quadrics[i + 10] += w;
+    }
+
+    // Метод обчислює одиничну нормаль трикутника (a, b, c); повертає false для виродженого трикутника
+    private boolean normal(int a, int b, int c, double[] n) {
+        double ux = pos[b * 3] - pos[a * 3], uy = pos[b * 3 + 1] - pos[a * 3 + 1], uz = pos[b * 3 + 2] - pos[a * 3 + 2];
+        double vx = pos[c * 3] - pos[a * 3], vy = pos[c * 3 + 1] - pos[a * 3 + 1], vz = pos[c * 3 + 2] - pos[a * 3 + 2];
+        n[0] = uy * vz - uz * vy;
+        n[1] = uz * vx - ux * vz;
+        n[2] = ux * vy - uy * vx;
+        double len = Math.sqrt(n[0] * n[0] + n[1] * n[1] + n[2] * n[2]);
+        if (len == 0) return false;
+        n[0] /= len;
+        n[1] /= len;
+        n[2] /= len;
+        return true;
+    }
+
+    // Метод додає ребро (a, b) до черги з похибкою його стягування
+    private void push(int a, int b) {
+        optimalPoint(a, b);
+        queue.push(point[3], a, b, version[a], version[b]);
+    }
+
+    // Метод знаходить точку з найменшою сумарною квадрикою кінців ребра (a, b) і записує її в point
+    // Якщо система рівнянь вироджена або розв'язок далеко від ребра, обирається кращий з кінців чи середина ребра
+    private void optimalPoint(int a, int b) {
+        int ia = a * Q, ib = b * Q;
+        for (int i = 0; i < Q; i++) {
+            sum[i] = quadrics[ia + i] + quadrics[ib + i];
+        }
+        double ax = pos[a * 3], ay = pos[a * 3 + 1], az = pos[a * 3 + 2];
+        double bx = pos[b * 3], by = pos[b * 3 + 1], bz = pos[b * 3 + 2];
+        double q0 = sum[0], q1 = sum[1], q2 = sum[2], q4 = sum[4], q5 = sum[5], q7 = sum[7];
+        double det = q0 * (q4 * q7 - q5 * q5) - q1 * (q1 * q7 - q5 * q2) + q2 * (q1 * q5 - q4 * q2);
+        if (Math.abs(det) > 1e-12) {
+            double r0 = -sum[3], r1 = -sum[6], r2 = -sum[8];
+            double x = (r0 * (q4 * q7 - q5 * q5) - q1 * (r1 * q7 - q5 * r2) + q2 * (r1 * q5 - q4 * r2)) / det;
+            double y = (q0 * (r1 * q7 - r2 * q5) - r0 * (q1 * q7 - q5 * q2) + q2 * (q1 * r2 - r1 * q2)) / det;
+            double z = (q0 * (q4 * r2 - q5 * r1) - q1 * (q1 * r2 - r1 * q2) + r0 * (q1 * q5 - q4 * q2)) / det;
+            double mx = x - (ax + bx) / 2, my = y - (ay + by) / 2, mz = z - (az + bz) / 2;
+            double ex = bx - ax, ey = by - ay, ez = bz - az;
+            if (mx * mx + my * my + mz * mz <= 4 * (ex * ex + ey * ey + ez * ez)) {
+                setPoint(x, y, z);
+                return;
+            }
+        }
+        setPoint(ax, ay, az);
+        double best = point[3];
+        double cx = point[0], cy = point[1], cz = point[2];
+        setPoint(bx, by, bz);
+        if (point[3] < best) {
+            best = point[3];
+            cx = bx;
+            cy = by;
+            cz = bz;
+        }
+        setPoint((ax + bx) / 2, (ay + by) / 2, (az + bz) / 2);
+        if (point[3] >= best) {
+            point[0] = cx;
+            point[1] = cy;
+            point[2] = cz;
+            point[3] = best;
+        }
+    }
+
+    // Метод записує в point точку та значення сумарної квадрики в ній
+    private void setPoint(double x, double y, double z) {
+        double[] s = sum;
+        double e = s[0] * x * x + 2 * s[1] * x * y + 2 * s[2] * x * z + 2 * s[3] * x
+                + s[4] * y * y + 2 * s[5] * y * z + 2 * s[6] * y
+                + s[7] * z * z + 2 * s[8] * z + s[9];
+        point[0] = x;
+        point[1] = y;
+        point[2] = z;
+        point[3] = Math.max(0, e);
+    }
+
+    // Метод перевіряє, чи перевернеться хоч один трикутник вершини v (крім спільних з вершиною other),
+    // якщо перемістити v у точку point
+    private boolean flips(int v, int other) {
+        double px = point[0], py = point[1], pz = point[2];
+        for (int c = head[v]; c >= 0; c = next[c]) {
+            int t = c / 3;
+            if (!faceAlive[t]) continue;
+            int k = c % 3;
+            int p1 = tri[t * 3 + (k + 1) % 3], p2 = tri[t * 3 + (k + 2) % 3];
+            if (p1 == other || p2 == other) continue; // Трикутник зникне при стягуванні
+            double x1 = pos[p1 * 3], y1 = pos[p1 * 3 + 1], z1 = pos[p1 * 3 + 2];
+            double x2 = pos[p2 * 3], y2 = pos[p2 * 3 + 1], z2 = pos[p2 * 3 + 2];
+            double vx = pos[v * 3], vy = pos[v * 3 + 1], vz = pos[v * 3 + 2];
+            // Нормаль до і після переміщення вершини
+            double ox = (y1 - vy) * (z2 - vz) - (z1 - vz) * (y2 - vy);
+            double oy = (z1 - vz) * (x2 - vx) - (x1 - vx) * (z2 - vz);
+            double oz = (x1 - vx) * (y2 - vy) - (y1 - vy) * (x2 - vx);
+            double nx = (y1 - py) * (z2 - pz) - (z1 - pz) * (y2 - py);
+            double ny = (z1 - pz) * (x2 - px) - (x1 - px) * (z2 - pz);
+            double nz = (x1 - px) * (y2 - py) - (y1 - py) * (x2 - px);
+            if (ox * nx + oy * ny + oz * nz <= 0) return true;
+        }
+        return false;
+    }
+
+    // Метод стягує ребро (u, v) у точку point: вершина u переміщується, вершина v видаляється
+    // Повертає кількість видалених трикутників
+    private int collapse(int u, int v) {
+        pos[u * 3] = point[0];
+        pos[u * 3 + 1] = point[1];
+        pos[u * 3 + 2] = point[2];
+        for (int i = 0; i < Q; i++) {
+            quadrics[u * Q + i] += quadrics[v * Q + i];
+        }
+        parent[v] = u;
+        version[u]++;
+
+        // Трикутники зі спільною вершиною u видаляються, в інших вершина v замінюється на u
+        int removed = 0;
+        for (int c = head[v]; c >= 0; c = next[c]) {
+            int t = c / 3;
+            if (!faceAlive[t]) continue;
+            if (tri[t * 3] == u || tri[t * 3 + 1] == u || tri[t * 3 + 2] == u) {
+                faceAlive[t] = false;
+                removed++;
+            } else {
+                tri[c] = u;
+            }
+        }
+
+        // Список кутів v приєднується до списку u
+        if (head[v] >= 0) {
+            if (head[u] < 0) {
+                head[u] = head[v];
+            } else {
+                next[tail[u]] = head[v];
+            }
+            tail[u] = tail[v];
+            head[v] = -1;
+        }
+
+        // Кути видалених трикутників вилучаються зі списку u
+        int prev = -1;
+        for (int c = head[u]; c >= 0; c = next[c]) {
+            int t = c / 3;
+            if (!faceAlive[t]) continue;
+            if (prev < 0) {
+                head[u] = c;
+            } else {
+                next[prev] = c;
+            }
+            prev = c;
+        }
+        if (prev < 0) {
+            head[u] = -1;
+        } else {
+            next[prev] = -1;
+            tail[u] = prev;
+        }
+        return removed;
+    }
+
+    // Метод збирає вершини та трикутники, що залишились, у нову фігуру
+    private ShapeFactory.ShapeData compact(ShapeFactory.ShapeType type) {
+        int[] remap = new int[parent.length];
+        Arrays.fill(remap, -1);
+        int faces = 0, vertices = 0;
+        for (int t = 0; t < faceAlive.length; t++) {
+            if (!faceAlive[t]) continue;
+            faces++;
+            for (int k = 0; k < 3; k++) {
+                int v = tri[t * 3 + k];
+                if (remap[v] < 0) remap[v] = vertices++;
+            }
+        }
+
+        double[] outVertices = new double[vertices * 3];
+        for (int v = 0; v < remap.length; v++) {
+            if (remap[v] >= 0) {
+                System.arraycopy(pos, v * 3, outVertices, remap[v] * 3, 3);
+            }
+        }
+        int[] faceOffsets = new int[faces + 1];
+        int[] faceIndices = new int[faces * 3];
+        int f = 0;
+        for (int t = 0; t < faceAlive.length; t++) {
+            if (!faceAlive[t]) continue;
+            for (int k = 0; k < 3; k++) {
+                faceIndices[f * 3 + k] = remap[tri[t * 3 + k]];
+            }
+            f++;
+            faceOffsets[f] = f * 3;
+        }
+
+        // Проміжні масиви більше не потрібні
+        tri = null;
+        faceAlive = null;
+        pos = null;
+        quadrics = null;
+        parent = null;
+        version = null;
+        head = tail = next = null;
+        parkedHead = parkedEdges = parkedNext = null;
+        queue.clear();
+        return ShapeFactory.createShape(type, outVertices, faceOffsets, faceIndices);
+    }
+
+    // Черга ребер з найменшою похибкою стягування на вершині (четвіркова купа)
+    // Запис займає три сусідні елементи масиву: біти похибки, кінці ребра та їх версії на момент обчислення похибки.
+    // Похибка невід'ємна, тому порівняння її бітів як чисел long дає той самий порядок, що й порівняння чисел double
+    private static final class CollapseQueue {
+        private long[] data = new long[3 * 1024];
+        int size;
+        // Запис, вилучений останнім викликом pop
+        int topA, topB, topVa, topVb;
+
+        void clear() {
+            size = 0;
+        }
+
+        void push(double cost, int a, int b, int va, int vb) {
+            if (size * 3 == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            long key = Double.doubleToRawLongBits(cost);
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 2;
+                if (data[parent * 3] <= key) break;
+                System.arraycopy(data, parent * 3, data, i * 3, 3);
+                i = parent;
+            }
+            set(i, key, ((long) a << 32) | (b & 0xFFFFFFFFL), ((long) va << 32) | (vb & 0xFFFFFFFFL));
+        }
+
+        void pop() {
+            long edge = data[1], versions = data[2];
+            topA = (int) (edge >>> 32);
+            topB = (int) edge;
+            topVa = (int) (versions >>> 32);
+            topVb = (int) versions;
+            int last = --size;
+            long key = data[last * 3];
+            long lastEdge = data[last * 3 + 1], lastVersions = data[last * 3 + 2];
+            int i = 0;
+            while (true) {
+                int first = i * 4 + 1;
+                if (first >= size) break;
+                int child = first;
+                int end = Math.min(first + 4, size);
+                for (int c = first + 1; c < end; c++) {
+                    if (data[c * 3] < data[child * 3]) child = c;
+                }
+                if (data[child * 3] >= key) break;
+                System.arraycopy(data, child * 3, data, i * 3, 3);
+                i = child;
+            }
+            if (size > 0) set(i, key, lastEdge, lastVersions);
+        }
+
+        private void set(int i, long key, long edge, long versions) {
+            data[i * 3] = key;
+            data[i * 3 + 1] = edge;
+            data[i * 3 + 2] = versions;
+        }
+    }
+}
@@ -6,6 +6,13 @@
 import java.awt.*;
 
 public class Point3D {
+    // Параметри перспективної проекції: глядач знаходиться в точці (0, 0, -EYE_DISTANCE), а в площині,
+    // віддаленій від нього на FOCAL_LENGTH, координати не змінюються. Точки, ближчі за площину z = NEAR_Z,
+    // зменшуються так само, як точки цієї площини
+    static final double EYE_DISTANCE = 5;
+    static final double FOCAL_LENGTH = 2;
+    static final double NEAR_Z = 0.1;
+
     double x, y, z; // Координати точки
 
     // Конструктор
@@ -18,17 +25,26 @@ public class Point3D {
     // scale задає коефіцієнт збільшення/зменшення координат
     // perspective вмикає перспективну проекцію замість ортогональної
     public Point project(int width, int height, double scale, boolean perspective) {
-        double px = x, py = y;
-        if (perspective) {
-            // Обчислюємо коефіцієнт зміни координат в залежності від віддаленості по осі Z
-            double factor = 2.0 / (Math.max(z, 0.1) + 5);
-            px *= factor;
-            py *= factor;
-        }
+        return new Point(projectX(x, z, width, scale, perspective), projectY(y, z, height, scale, perspective));
+    }
+
+    // Коефіцієнт зміни координат в залежності від віддаленості по осі Z
+    // Для ортогональної проекції дорівнює 1
+    public static double perspectiveFactor(double z, boolean perspective) {
+        return perspective ? FOCAL_LENGTH / (Math.max(z, NEAR_Z) + EYE_DISTANCE) : 1;
+    }
+
+    // Екранна координата X точки з координатами x, z (без створення об'єкта Point)
+    public static int projectX(double x, double z, int width, double scale, boolean perspective) {
+        double px = perspective ? x * perspectiveFactor(z, true) : x;
         // Розміщуємо точки відносно центру вікна
-        int sx = (int) (px * scale + width / 2.0);
-        int sy = (int) (-py * scale + height / 2.0);
-        return new Point(sx, sy);
+        return (int) (px * scale + width / 2.0);
+    }
+
+    // Екранна координата Y точки з координатами y, z (без створення об'єкта Point)
+    public static int projectY(double y, double z, int height, double scale, boolean perspective) {
+        double py = perspective ? y * perspectiveFactor(z, true) : y;
+        return (int) (-py * scale + height / 2.0);
     }
 
     // Перетворює координати на масив з трьох значень
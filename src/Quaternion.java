@@ -0,0 +1,106 @@
+/*
+ * Quaternion
+ * Клас для зберігання орієнтації фігури у вигляді одиничного кватерніона (w, x, y, z)
+ * На відміну від багаторазового множення матриць, похибка округлення не порушує ортогональності:
+ * кватерніон лише відхиляється від одиничної довжини, що виправляється нормалізацією, і матриця,
+ * отримана з одиничного кватерніона, завжди ортонормована з точністю до округлення одного перетворення
+ * Методи змінюють поточний кватерніон і не виділяють пам'ять
+ */
+
+public class Quaternion {
+    // Допустиме відхилення квадрата довжини від 1, після якого кватерніон нормалізується
+    static final double RENORMALIZE_TOLERANCE = 1e-14;
+    // Косинус половини кута між орієнтаціями, вище якого сферична інтерполяція замінюється лінійною
+    private static final double LINEAR_THRESHOLD = 0.9995;
+
+    double w = 1, x, y, z; // Компоненти кватерніона (одиничний кватерніон - відсутність обертання)
+
+    // Метод повертає кватерніон обертання на кут angle навколо осі (ax, ay, az) одиничної довжини
+    public static Quaternion rotation(double ax, double ay, double az, double angle) {
+        return new Quaternion().setRotation(ax, ay, az, angle);
+    }
+
+    // Метод перетворює поточний кватерніон на кватерніон обертання на кут angle навколо осі (ax, ay, az)
+    public Quaternion setRotation(double ax, double ay, double az, double angle) {
+        double s = Math.sin(angle / 2);
+        return set(Math.cos(angle / 2), ax * s, ay * s, az * s);
+    }
+
+    // Метод записує в поточний кватерніон вказані компоненти
+    public Quaternion set(double w, double x, double y, double z) {
+        this.w = w; this.x = x; this.y = y; this.z = z;
+        return this;
+    }
+
+    // Метод копіює в поточний кватерніон компоненти кватерніона other
+    public Quaternion set(Quaternion other) {
+        return set(other.w, other.x, other.y, other.z);
+    }
+
+    // Метод замінює поточний кватерніон добутком left * (поточний кватерніон)
+    // Так до орієнтації додається обертання left у системі координат глядача, як у Matrix3x3.premultiplyInPlace
+    // Якщо довжина результату відхилилась від одиничної більше ніж на RENORMALIZE_TOLERANCE, він нормалізується
+    public Quaternion premultiplyInPlace(Quaternion left) {
+        double rw = left.w * w - left.x * x - left.y * y - left.z * z;
+        double rx = left.w * x + left.x * w + left.y * z - left.z * y;
+        double ry = left.w * y - left.x * z + left.y * w + left.z * x;
+        double rz = left.w * z + left.x * y - left.y * x + left.z * w;
+        set(rw, rx, ry, rz);
+        if (Math.abs(normSquared() - 1) > RENORMALIZE_TOLERANCE) {
+            normalize();
+        }
+        return this;
+    }
+
+    // Квадрат довжини кватерніона
+    public double normSquared() {
+        return w * w + x * x + y * y + z * z;
+    }
+
+    // Метод приводить кватерніон до одиничної довжини
+    public Quaternion normalize() {
+        double len = Math.sqrt(normSquared());
+        return len == 0 ? set(1, 0, 0, 0) : set(w / len, x / len, y / len, z / len);
+    }
+
+    // Метод записує в поточний кватерніон сферичну інтерполяцію між орієнтаціями a (t = 0) та b (t = 1)
+    // Інтерполяція йде коротшим шляхом; поточний кватерніон може збігатися з a або b
+    public Quaternion setSlerp(Quaternion a, Quaternion b, double t) {
+        double bw = b.w, bx = b.x, by = b.y, bz = b.z;
+        double cos = a.w * bw + a.x * bx + a.y * by + a.z * bz;
+        // q та -q задають одну орієнтацію: обираємо той, що ближчий до a
+        if (cos < 0) {
+            cos = -cos;
+            bw = -bw; bx = -bx; by = -by; bz = -bz;
+        }
+        double ka, kb;
+        if (cos > LINEAR_THRESHOLD) {
+            // Для близьких орієнтацій sin кута між ними близький до нуля - використовуємо лінійну інтерполяцію
+            ka = 1 - t;
+            kb = t;
+        } else {
+            double angle = Math.acos(cos);
+            double sin = Math.sin(angle);
+            ka = Math.sin((1 - t) * angle) / sin;
+            kb = Math.sin(t * angle) / sin;
+        }
+        set(ka * a.w + kb * bw, ka * a.x + kb * bx, ka * a.y + kb * by, ka * a.z + kb * bz);
+        return normalize();
+    }
+
+    // Метод повертає кут між орієнтаціями поточного кватерніона та other у радіанах
+    public double angleTo(Quaternion other) {
+        double cos = Math.abs(w * other.w + x * other.x + y * other.y + z * other.z);
+        return 2 * Math.acos(Math.min(1, cos));
+    }
+
+    // Метод записує в матрицю m обертання, що відповідає поточному кватерніону одиничної довжини
+    public Matrix3x3 toMatrix(Matrix3x3 m) {
+        double xx = x * x, yy = y * y, zz = z * z;
+        double xy = x * y, xz = x * z, yz = y * z;
+        double wx = w * x, wy = w * y, wz = w * z;
+        return m.set(1 - 2 * (yy + zz), 2 * (xy - wz), 2 * (xz + wy),
+                2 * (xy + wz), 1 - 2 * (xx + zz), 2 * (yz - wx),
+                2 * (xz - wy), 2 * (yz + wx), 1 - 2 * (xx + yy));
+    }
+}
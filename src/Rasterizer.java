@@ -0,0 +1,462 @@
+/*
+ * Rasterizer
+ * Клас для програмної растеризації граней безпосередньо в масив пікселів зображення
+ * Видимість граней визначається попіксельним буфером глибини (z-буфером), тому сортування граней не потрібне,
+ * а грані, що перетинаються, відображаються коректно
+ * Для великих фігур екран ділиться на плитки фіксованого розміру: грані розподіляються по плитках,
+ * які вони перекривають, а плитки растеризуються паралельно. Кожна плитка пише лише у свою частину
+ * буферів кольору і глибини, тому блокування не потрібні
+ * При плавному освітленні (за Гуро) яскравість вершин інтерполюється по грані так само, як глибина,
+ * і кожен піксель отримує колір свого рівня яскравості з таблиці
+ */
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+class Rasterizer {
+    private static final float LINE_DEPTH_BIAS = 0.01f; // Зміщення глибини, щоб контури граней не ховались під самими гранями
+    static final int TILE_SIZE = 64; // Розмір плитки екрану в пікселях
+    private static final int BIN_CHUNK = 4096; // Мінімальна кількість граней на один потік розподілу по плитках
+
+    // Мінімальна кількість граней, починаючи з якої використовується паралельна растеризація плитками
+    // На одноядерних системах растеризація завжди послідовна
+    int tiledThreshold = Runtime.getRuntime().availableProcessors() > 1
+            ? Integer.getInteger("smp3d.tiledThreshold", 2000) : Integer.MAX_VALUE;
+
+    private BufferedImage image; // Зображення, в яке виконується растеризація
+    private int[] pixels; // Масив пікселів зображення (RGB)
+    private float[] depth = new float[0]; // Буфер глибини: найменша глибина по Z для кожного пікселя
+    private int width, height; // Розміри зображення
+    long pixelsDrawn; // Кількість пікселів, записаних з початку кадру
+
+    // Параметри граней поточного кадру, які використовуються задачами паралельної растеризації
+    private ShapeFactory.ShapeData shape;
+    private FrameGeometry geometry;
+    private int[] shadeRgb; // Кольори для кожного рівня яскравості або null для граней одного кольору
+    private int faceRgb; // Колір граней, якщо shadeRgb == null
+    private int outlineRgb; // Колір контурів граней
+    private boolean outline; // Ознака малювання контурів граней
+    private boolean smooth; // Ознака інтерполяції яскравості вершин (geometry.vertexBrightness) по грані
+
+    // Списки граней для кожної плитки. Кожен потік розподілу має власний набір списків
+    // з індексом [worker * tileCount + tile], тому розподіл також виконується без блокувань
+    private int tilesX, tilesY, tileCount, binWorkers;
+    private int[][] bins = new int[0][];
+    private int[] binSizes = new int[0];
+    private long[] tilePixels = new long[0]; // Кількість записаних пікселів у кожній плитці
+
+    // Метод готує зображення потрібного розміру до нового кадру: заповнює його кольором фону
+    // та очищує буфер глибини. Зображення створюється заново лише при зміні розміру
+    BufferedImage begin(int width, int height, int background) {
+        if (image == null || this.width != width || this.height != height) {
+            this.width = width;
+            this.height = height;
+            image = new BufferedImage(Math.max(width, 1), Math.max(height, 1), BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            if (depth.length < pixels.length) {
+                depth = new float[pixels.length];
+            }
+        }
+        Arrays.fill(pixels, background);
+        Arrays.fill(depth, 0, pixels.length, Float.POSITIVE_INFINITY);
+        pixelsDrawn = 0;
+        return image;
+    }
+
+    // Метод растеризує видимі грані фігури (перші geometry.visibleCount елементів списку geometry.visible)
+    // Колір грані визначається рівнем її яскравості в таблиці shadeRgb, або дорівнює faceRgb, якщо таблицю не задано
+    // За потреби додатково малюються контури граней кольором outlineRgb
+    void drawFaces(ShapeFactory.ShapeData shape, FrameGeometry geometry, int[] shadeRgb, int faceRgb,
+                   boolean outline, int outlineRgb) {
+        smooth = false;
+        draw(shape, geometry, shadeRgb, faceRgb, outline, outlineRgb);
+    }
+
+    // Метод растеризує видимі грані з плавним освітленням: колір кожного пікселя визначається в таблиці shadeRgb
+    // за яскравістю, інтерпольованою між яскравостями вершин грані geometry.vertexBrightness
+    void drawFacesSmooth(ShapeFactory.ShapeData shape, FrameGeometry geometry, int[] shadeRgb) {
+        smooth = true;
+        draw(shape, geometry, shadeRgb, 0, false, 0);
+    }
+
+    // Метод растеризує видимі грані з поточними налаштуваннями
+    private void draw(ShapeFactory.ShapeData shape, FrameGeometry geometry, int[] shadeRgb, int faceRgb,
+                      boolean outline, int outlineRgb) {
+        this.shape = shape;
+        this.geometry = geometry;
+        this.shadeRgb = shadeRgb;
+        this.faceRgb = faceRgb;
+        this.outline = outline;
+        this.outlineRgb = outlineRgb;
+        int faceCount = geometry.visibleCount;
+        int[] faces = geometry.visible;
+        if (faceCount < tiledThreshold) {
+            for (int n = 0; n < faceCount; n++) {
+                pixelsDrawn += drawFace(faces[n], 0, 0, width, height);
+            }
+            return;
+        }
+
+        // Розподіл граней по плитках: кожен потік обробляє свій неперервний діапазон граней,
+        // тому при обході списків потоків по черзі грані кожної плитки йдуть у початковому порядку
+        tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        tileCount = tilesX * tilesY;
+        binWorkers = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), faceCount / BIN_CHUNK));
+        if (bins.length < binWorkers * tileCount) {
+            bins = Arrays.copyOf(bins, binWorkers * tileCount);
+            binSizes = new int[binWorkers * tileCount];
+        }
+        if (tilePixels.length < tileCount) {
+            tilePixels = new long[tileCount];
+        }
+        ForkJoinPool.commonPool().invoke(new TileTask(false, 0, binWorkers));
+
+        // Паралельна растеризація плиток
+        ForkJoinPool.commonPool().invoke(new TileTask(true, 0, tileCount));
+        for (int t = 0; t < tileCount; t++) {
+            pixelsDrawn += tilePixels[t];
+        }
+    }
+
+    // Метод розподіляє грані з діапазону потоку worker по списках плиток, які перекриває їх обмежуючий прямокутник
+    private void binFaces(int worker) {
+        int faceCount = geometry.visibleCount;
+        int[] faces = geometry.visible;
+        int from = (int) ((long) faceCount * worker / binWorkers);
+        int to = (int) ((long) faceCount * (worker + 1) / binWorkers);
+        int base = worker * tileCount;
+        Arrays.fill(binSizes, base, base + tileCount, 0);
+        int[] offsets = shape.faceOffsets, indices = shape.faceIndices;
+        int[] sx = geometry.screenX, sy = geometry.screenY;
+        for (int n = from; n < to; n++) {
+            int f = faces[n];
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+            for (int i = offsets[f]; i < offsets[f + 1]; i++) {
+                int v = indices[i];
+                minX = Math.min(minX, sx[v]); maxX = Math.max(maxX, sx[v]);
+                minY = Math.min(minY, sy[v]); maxY = Math.max(maxY, sy[v]);
+            }
+            if (maxX < 0 || maxY < 0 || minX >= width || minY >= height) continue; // грань поза екраном
+            int tx0 = Math.max(0, minX) / TILE_SIZE, tx1 = Math.min(width - 1, maxX) / TILE_SIZE;
+            int ty0 = Math.max(0, minY) / TILE_SIZE, ty1 = Math.min(height - 1, maxY) / TILE_SIZE;
+            for (int ty = ty0; ty <= ty1; ty++) {
+                for (int tx = tx0; tx <= tx1; tx++) {
+                    int bin = base + ty * tilesX + tx;
+                    int[] list = bins[bin];
+                    int size = binSizes[bin];
+                    if (list == null || list.length == size) {
+                        list = bins[bin] = list == null ? new int[64] : Arrays.copyOf(list, size * 2);
+                    }
+                    list[size] = f;
+                    binSizes[bin] = size + 1;
+                }
+            }
+        }
+    }
+
+    // Метод растеризує всі грані, що потрапили до плитки tile, обмежуючи запис пікселів її межами
+    private void drawTile(int tile) {
+        int x0 = (tile % tilesX) * TILE_SIZE, y0 = (tile / tilesX) * TILE_SIZE;
+        int x1 = Math.min(width, x0 + TILE_SIZE), y1 = Math.min(height, y0 + TILE_SIZE);
+        long drawn = 0;
+        for (int w = 0; w < binWorkers; w++) {
+            int bin = w * tileCount + tile;
+            int[] list = bins[bin];
+            for (int i = 0, n = binSizes[bin]; i < n; i++) {
+                drawn += drawFace(list[i], x0, y0, x1, y1);
+            }
+        }
+        tilePixels[tile] = drawn;
+    }
+
+    // Метод растеризує грань f (та, за потреби, її контур) в межах прямокутника [clipX0, clipX1) x [clipY0, clipY1)
+    // Грань розбивається на трикутники віялом від першої вершини. Повертає кількість записаних пікселів
+    private long drawFace(int f, int clipX0, int clipY0, int clipX1, int clipY1) {
+        int start = shape.faceOffsets[f];
+        int end = shape.faceOffsets[f + 1];
+        int[] indices = shape.faceIndices;
+        int[] sx = geometry.screenX, sy = geometry.screenY;
+        double[] r = geometry.rotated;
+        long drawn = 0;
+        int a = indices[start];
+        if (smooth) {
+            double[] vb = geometry.vertexBrightness;
+            for (int i = start + 1; i < end - 1; i++) {
+                int b = indices[i], c = indices[i + 1];
+                drawn += fillTriangle(sx[a], sy[a], r[a * 3 + 2], vb[a], sx[b], sy[b], r[b * 3 + 2], vb[b],
+                        sx[c], sy[c], r[c * 3 + 2], vb[c], 0, shadeRgb, clipX0, clipY0, clipX1, clipY1);
+            }
+            return drawn;
+        }
+        int rgb = shadeRgb != null ? shadeRgb[(int) (geometry.brightness[f] * (shadeRgb.length - 1))] : faceRgb;
+        for (int i = start + 1; i < end - 1; i++) {
+            int b = indices[i], c = indices[i + 1];
+            drawn += fillTriangle(sx[a], sy[a], r[a * 3 + 2], sx[b], sy[b], r[b * 3 + 2],
+                    sx[c], sy[c], r[c * 3 + 2], rgb, clipX0, clipY0, clipX1, clipY1);
+        }
+        if (outline) {
+            for (int i = start; i < end; i++) {
+                int p = indices[i];
+                int q = indices[i + 1 < end ? i + 1 : start];
+                drawn += drawLine(sx[p], sy[p], r[p * 3 + 2], sx[q], sy[q], r[q * 3 + 2], outlineRgb,
+                        clipX0, clipY0, clipX1, clipY1);
+            }
+        }
+        return drawn;
+    }
+
+    // Задача пулу ForkJoin для паралельного розподілу граней (tiles == false, діапазон потоків)
+    // або паралельної растеризації плиток (tiles == true, діапазон плиток)
+    @SuppressWarnings("serial")
+    private final class TileTask extends RecursiveAction {
+        private final boolean tiles;
+        private final int from, to;
+
+        TileTask(boolean tiles, int from, int to) {
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                if (tiles) {
+                    drawTile(from);
+                } else {
+                    binFaces(from);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(tiles, from, mid), new TileTask(tiles, mid, to));
+        }
+    }
+
+    // Метод растеризації трикутника з вершинами (x, y) та глибинами z в межах прямокутника відсікання
+    // Пікселі, центр яких лежить всередині трикутника або на його межі, записуються, якщо вони ближчі
+    // за вже намальовані. Глибина інтерполюється лінійно в екранному просторі і обчислюється для кожного
+    // пікселя незалежно від меж відсікання, тому розбиття на плитки не змінює результат
+    // Повертає кількість записаних пікселів
+    long fillTriangle(int x0, int y0, double z0, int x1, int y1, double z1, int x2, int y2, double z2, int rgb,
+                      int clipX0, int clipY0, int clipX1, int clipY1) {
+        return fillTriangle(x0, y0, z0, 0, x1, y1, z1, 0, x2, y2, z2, 0, rgb, null, clipX0, clipY0, clipX1, clipY1);
+    }
+
+    // Варіант fillTriangle з яскравостями вершин b0, b1, b2: якщо задано таблицю shade, колір пікселя
+    // визначається в ній за яскравістю, інтерпольованою лінійно в екранному просторі, інакше дорівнює rgb
+    long fillTriangle(int x0, int y0, double z0, double b0, int x1, int y1, double z1, double b1,
+                      int x2, int y2, double z2, double b2, int rgb, int[] shade,
+                      int clipX0, int clipY0, int clipX1, int clipY1) {
+        long area = (long) (x1 - x0) * (y2 - y0) - (long) (y1 - y0) * (x2 - x0);
+        if (area == 0) return 0; // вироджений трикутник
+        if (area < 0) {
+            // Приводимо вершини до одного напрямку обходу
+            int tx = x1; x1 = x2; x2 = tx;
+            int ty = y1; y1 = y2; y2 = ty;
+            double tz = z1; z1 = z2; z2 = tz;
+            double tb = b1; b1 = b2; b2 = tb;
+            area = -area;
+        }
+
+        // Обмежуючий прямокутник трикутника, обрізаний межами відсікання
+        int minX = Math.max(clipX0, Math.min(x0, Math.min(x1, x2)));
+        int maxX = Math.min(clipX1 - 1, Math.max(x0, Math.max(x1, x2)));
+        int minY = Math.max(clipY0, Math.min(y0, Math.min(y1, y2)));
+        int maxY = Math.min(clipY1 - 1, Math.max(y0, Math.max(y1, y2)));
+        if (minX > maxX || minY > maxY) return 0;
+
+        // Крайові функції для точки (minX, minY). Кожна з них невід'ємна всередині трикутника
+        long w0Row = (long) (x2 - x1) * (minY - y1) - (long) (y2 - y1) * (minX - x1);
+        long w1Row = (long) (x0 - x2) * (minY - y2) - (long) (y0 - y2) * (minX - x2);
+        long w2Row = (long) (x1 - x0) * (minY - y0) - (long) (y1 - y0) * (minX - x0);
+        long w0dx = -(y2 - y1), w1dx = -(y0 - y2), w2dx = -(y1 - y0);
+        long w0dy = x2 - x1, w1dy = x0 - x2, w2dy = x1 - x0;
+
+        // Площина глибини z = z0 + dzdx * (x - x0) + dzdy * (y - y0)
+        double dzdx = ((z1 - z0) * (y2 - y0) - (z2 - z0) * (y1 - y0)) / area;
+        double dzdy = ((z2 - z0) * (x1 - x0) - (z1 - z0) * (x2 - x0)) / area;
+        // Площина яскравості, переведеної в рівні таблиці shade, обчислюється так само
+        int top = shade != null ? shade.length - 1 : 0;
+        double l0 = b0 * top, l1 = b1 * top, l2 = b2 * top;
+        double dldx = ((l1 - l0) * (y2 - y0) - (l2 - l0) * (y1 - y0)) / area;
+        double dldy = ((l2 - l0) * (x1 - x0) - (l1 - l0) * (x2 - x0)) / area;
+
+        int[] pixels = this.pixels;
+        float[] depth = this.depth;
+        long drawn = 0;
+        for (int y = minY; y <= maxY; y++) {
+            long w0 = w0Row, w1 = w1Row, w2 = w2Row;
+            double zRow = z0 + dzdy * (y - y0);
+            double lRow = l0 + dldy * (y - y0);
+            int p = y * width + minX;
+            for (int x = minX; x <= maxX; x++, p++) {
+                if ((w0 | w1 | w2) >= 0) {
+                    float zf = (float) (zRow + dzdx * (x - x0));
+                    if (zf < depth[p]) {
+                        depth[p] = zf;
+                        if (shade == null) {
+                            pixels[p] = rgb;
+                        } else {
+                            int level = (int) (lRow + dldx * (x - x0));
+                            pixels[p] = shade[level < 0 ? 0 : level > top ? top : level];
+                        }
+                        drawn++;
+                    }
+                }
+                w0 += w0dx; w1 += w1dx; w2 += w2dx;
+            }
+            w0Row += w0dy; w1Row += w1dy; w2Row += w2dy;
+        }
+        return drawn;
+    }
+
+    // Метод малює ребра і вершини фігури в режимі WIREFRAME так, як це робить Graphics2D без згладжування:
+    // ребра - лініями товщиною 2 пікселі кольором edgeRgb, потім вершини - квадратами 5 x 5 пікселів кольором
+    // vertexRgb (так виглядає fillOval діаметром 6 пікселів). Глибина не перевіряється і не записується
+    void drawWireframe(ShapeFactory.ShapeData shape, int[] screenX, int[] screenY, int edgeRgb, int vertexRgb) {
+        int[] edges = shape.edges;
+        for (int i = 0; i < edges.length; i += 2) {
+            int a = edges[i], b = edges[i + 1];
+            pixelsDrawn += drawWideLine(screenX[a], screenY[a], screenX[b], screenY[b], edgeRgb);
+        }
+        for (int v = 0, n = shape.vertexCount(); v < n; v++) {
+            int x0 = Math.max(screenX[v] - 2, 0), x1 = Math.min(screenX[v] + 3, width);
+            int y0 = Math.max(screenY[v] - 2, 0), y1 = Math.min(screenY[v] + 3, height);
+            if (x0 >= x1 || y0 >= y1) continue;
+            for (int y = y0; y < y1; y++) {
+                Arrays.fill(pixels, y * width + x0, y * width + x1, vertexRgb);
+            }
+            pixelsDrawn += (long) (x1 - x0) * (y1 - y0);
+        }
+    }
+
+    // Метод перевіряє, чи виходить відрізок за межі зображення
+    private boolean outsideImage(int x0, int y0, int x1, int y1) {
+        return x0 < 0 || x0 > width || y0 < 0 || y0 > height || x1 < 0 || x1 > width || y1 < 0 || y1 > height;
+    }
+
+    // Методи обрізання відрізка за Лянгом-Барскі прямокутником [-1, width] x [-1, height]
+    // clipEnter повертає параметр t0 початку видимої частини, clipExit - параметр t1 її кінця; відрізок
+    // повністю поза зображенням, якщо t0 > t1. Межі x = -1, x = width, y = -1, y = height перевіряються
+    // окремо, без масивів, тож обрізання нічого не виділяє і безпечне для паралельних плиток
+    private double clipEnter(int x0, int y0, int x1, int y1) {
+        double dx = x1 - x0, dy = y1 - y0;
+        // Відрізок, паралельний межі і зовні від неї, невидимий
+        if (dx == 0 && (x0 + 1 < 0 || width - x0 < 0)) return Double.POSITIVE_INFINITY;
+        if (dy == 0 && (y0 + 1 < 0 || height - y0 < 0)) return Double.POSITIVE_INFINITY;
+        double t0 = 0;
+        if (dx > 0) t0 = Math.max(t0, (x0 + 1) / -dx);
+        if (dx < 0) t0 = Math.max(t0, (width - x0) / dx);
+        if (dy > 0) t0 = Math.max(t0, (y0 + 1) / -dy);
+        if (dy < 0) t0 = Math.max(t0, (height - y0) / dy);
+        return t0;
+    }
+
+    private double clipExit(int x0, int y0, int x1, int y1) {
+        double dx = x1 - x0, dy = y1 - y0;
+        double t1 = 1;
+        if (dx < 0) t1 = Math.min(t1, (x0 + 1) / -dx);
+        if (dx > 0) t1 = Math.min(t1, (width - x0) / dx);
+        if (dy < 0) t1 = Math.min(t1, (y0 + 1) / -dy);
+        if (dy > 0) t1 = Math.min(t1, (height - y0) / dy);
+        return t1;
+    }
+
+    // Метод малювання відрізка товщиною 2 пікселі: у кожній точці відрізка, знайденій алгоритмом Брезенхема,
+    // заповнюється квадрат 2 x 2 пікселі ліворуч і вище від неї. Відрізок, що виходить за межі зображення,
+    // попередньо обрізається, щоб не перебирати точки поза зображенням. Повертає кількість записаних пікселів
+    private long drawWideLine(int x0, int y0, int x1, int y1, int rgb) {
+        if (outsideImage(x0, y0, x1, y1)) {
+            double t0 = clipEnter(x0, y0, x1, y1), t1 = clipExit(x0, y0, x1, y1);
+            if (t0 > t1) return 0;
+            double dx = x1 - x0, dy = y1 - y0;
+            int cx0 = (int) Math.round(x0 + t0 * dx), cy0 = (int) Math.round(y0 + t0 * dy);
+            x1 = (int) Math.round(x0 + t1 * dx);
+            y1 = (int) Math.round(y0 + t1 * dy);
+            x0 = cx0;
+            y0 = cy0;
+        }
+        int dx = Math.abs(x1 - x0), dy = Math.abs(y1 - y0);
+        int sx = x0 < x1 ? 1 : -1, sy = y0 < y1 ? 1 : -1;
+        int err = dx - dy;
+        int x = x0, y = y0;
+        long drawn = 0;
+        for (int i = Math.max(dx, dy); i >= 0; i--) {
+            for (int py = Math.max(y - 1, 0); py <= Math.min(y, height - 1); py++) {
+                for (int px = Math.max(x - 1, 0); px <= Math.min(x, width - 1); px++) {
+                    pixels[py * width + px] = rgb;
+                    drawn++;
+                }
+            }
+            int e2 = 2 * err;
+            if (e2 > -dy) { err -= dy; x += sx; }
+            if (e2 < dx) { err += dx; y += sy; }
+        }
+        return drawn;
+    }
+
+    // Метод малювання відрізка алгоритмом Брезенхема з перевіркою глибини в межах прямокутника відсікання
+    // Відрізок спершу обрізається межами зображення (однаково для всіх плиток, тож лінія не розривається на
+    // їхніх межах), потім за прямокутником відсікання точно визначається діапазон кроків i, що в нього
+    // потрапляють, і перебираються лише вони. Крок i по головній осі дає зсув round(i * minor / major) по другій
+    // осі. Повертає кількість записаних пікселів
+    long drawLine(int x0, int y0, double z0, int x1, int y1, double z1, int rgb,
+                  int clipX0, int clipY0, int clipX1, int clipY1) {
+        if (outsideImage(x0, y0, x1, y1)) {
+            double t0 = clipEnter(x0, y0, x1, y1), t1 = clipExit(x0, y0, x1, y1);
+            if (t0 > t1) return 0;
+            double dx = x1 - x0, dy = y1 - y0, dz = z1 - z0;
+            int cx0 = (int) Math.round(x0 + t0 * dx), cy0 = (int) Math.round(y0 + t0 * dy);
+            x1 = (int) Math.round(x0 + t1 * dx);
+            y1 = (int) Math.round(y0 + t1 * dy);
+            x0 = cx0;
+            y0 = cy0;
+            double cz0 = z0 + t0 * dz;
+            z1 = z0 + t1 * dz;
+            z0 = cz0;
+        }
+        int dx = Math.abs(x1 - x0), dy = Math.abs(y1 - y0);
+        boolean xMajor = dx >= dy;
+        int major = xMajor ? dx : dy, minor = xMajor ? dy : dx;
+        int a0 = xMajor ? x0 : y0, b0 = xMajor ? y0 : x0;
+        int sa = (xMajor ? x0 < x1 : y0 < y1) ? 1 : -1, sb = (xMajor ? y0 < y1 : x0 < x1) ? 1 : -1;
+        int aLo = xMajor ? clipX0 : clipY0, aHi = (xMajor ? clipX1 : clipY1) - 1;
+        int bLo = xMajor ? clipY0 : clipX0, bHi = (xMajor ? clipY1 : clipX1) - 1;
+        // Кроки, на яких головна координата a0 + sa * i лежить у межах відсікання
+        long first = Math.max(0, sa > 0 ? aLo - a0 : a0 - aHi);
+        long last = Math.min(major, sa > 0 ? aHi - a0 : a0 - aLo);
+        // Кроки, на яких зсув по другій осі o(i) = floor((2 * i * minor + major) / (2 * major)) лежить у межах
+        long oLo = sb > 0 ? bLo - b0 : b0 - bHi, oHi = sb > 0 ? bHi - b0 : b0 - bLo;
+        if (minor == 0) {
+            if (oLo > 0 || oHi < 0) return 0;
+        } else {
+            long twoMinor = 2L * minor;
+            first = Math.max(first, -Math.floorDiv(major - 2L * major * oLo, twoMinor));
+            last = Math.min(last, Math.floorDiv(2L * major * (oHi + 1) - major - 1, twoMinor));
+        }
+        if (first > last) return 0;
+        double dz = major > 0 ? (z1 - z0) / major : 0;
+        long twoMajor = 2L * major;
+        long num = 2L * first * minor + major;
+        long o = major > 0 ? num / twoMajor : 0, rem = major > 0 ? num % twoMajor : 0;
+        long drawn = 0;
+        for (long i = first; i <= last; i++) {
+            int a = (int) (a0 + sa * i), b = (int) (b0 + sb * o);
+            int p = xMajor ? b * width + a : a * width + b;
+            float zf = (float) (z0 + dz * i) - LINE_DEPTH_BIAS;
+            if (zf <= depth[p]) {
+                depth[p] = zf;
+                pixels[p] = rgb;
+                drawn++;
+            }
+            rem += 2L * minor;
+            if (rem >= twoMajor) { rem -= twoMajor; o++; }
+        }
+        return drawn;
+    }
+}
\ No newline at end of file
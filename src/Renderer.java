@@ -0,0 +1,509 @@
+/*
+ * Renderer
+ * Клас, що малює фігуру з заданою орієнтацією, типом проекції, типом відображення та напрямком освітлення
+ * Не залежить від вікна програми: малює у переданий Graphics2D, BufferedImage або масив пікселів,
+ * тому може використовуватись для малювання без екрану (java.awt.headless=true)
+ * Екземпляр зберігає проміжні дані між кадрами і не призначений для одночасного використання з кількох потоків
+ * Якщо profiler.enabled, тривалість кожного етапу малювання записується мітками у profiler;
+ * початок і кінець кадру позначає той, хто викликає render
+ */
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+class Renderer {
+    // Тип відображення фігури: ILLUMINATED - освітлення граней (кожна грань одного кольору),
+    // SMOOTH - плавне освітлення за Гуро (яскравість вершин інтерполюється по грані)
+    // Graphics2D не вміє інтерполювати колір по многокутнику, тому SMOOTH завжди малюється растеризатором
+    public enum ShapeView { WIREFRAME, POLYGONS, ILLUMINATED, SMOOTH }
+    public enum ProjectionType { ORTHOGONAL, PERSPECTIVE } // Тип проекції
+    public enum RenderBackend { GRAPHICS2D, ZBUFFER } // Спосіб малювання граней: сортування + Graphics2D чи z-буфер
+    // Підказки малювання Graphics2D: SPEED - без згладжування, лінії вирівнюються по пікселях;
+    // QUALITY - згладжування країв і точні контури ліній
+    public enum RenderQuality { SPEED, QUALITY }
+
+    private final Color vertexColor = new Color(255, 255, 0); // Колір вершин
+    private final Color edgeColor = new Color(255, 204, 0); // Колір ребер
+    private final Color faceColor = new Color(255, 255, 204); // Колір граней
+    private final BasicStroke faceStroke = new BasicStroke(1); // Товщина контурів граней
+    private final BasicStroke edgeStroke = new BasicStroke(2); // Товщина ребер в режимі WIREFRAME
+
+    // Кількість рівнів яскравості та заздалегідь створені кольори граней для режимів ILLUMINATED та SMOOTH
+    private static final int SHADE_LEVELS = 256;
+    private static final int PROFILE_FRAMES = 600; // Кількість останніх кадрів, що зберігає profiler
+    // Найбільша кількість номерів вершин чи граней, що виводяться при налагодженні
+    // На більших фігурах номери зливаються в нечитабельний шум, тому виводиться лише обрана мишею грань
+    static final int MAX_LABELS = 200;
+    private final Color pickColor = new Color(0, 255, 255); // Колір обраної мишею грані та вершини
+
+    // Пакетне малювання: кожен виклик малювання Graphics2D проходить перевірку стану конвеєра Java2D,
+    // що на щільних сітках коштує більше за саме малювання. Тому в режимі WIREFRAME ребра і вершини малюються
+    // безпосередньо в растр, який виводиться одним викликом, а послідовні у порядку глибини грані одного кольору
+    // збираються в контури Path2D не більше ніж по BATCH_PATH_FACES граней (растеризація контуру Java2D
+    // сповільнюється з ростом кількості його ребер швидше, ніж лінійно)
+    private static final int BATCH_PATH_FACES = 128;
+    private final Path2D.Float batchPath = new Path2D.Float(Path2D.WIND_NON_ZERO, 4096);
+    private final Color[] shadeColors = new Color[SHADE_LEVELS];
+    private final int[] shadeRgb = new int[SHADE_LEVELS]; // Ті ж кольори у вигляді RGB для растеризатора
+
+    // Джерело даних про обсяг виділеної пам'яті (null, якщо JVM цього не підтримує)
+    private static final com.sun.management.ThreadMXBean threadBean = createThreadBean();
+
+    // Налаштування малювання
+    Color background = Color.BLACK; // Колір фону
+    double scale = 100; // Коефіцієнт наближення
+    RenderBackend backend = RenderBackend.GRAPHICS2D; // Спосіб малювання граней
+    boolean culling = true; // Ознака відсікання невидимих граней перед освітленням і малюванням
+    boolean showDebug = false; // Ознака виводу номерів вершин і граней
+    boolean batched = true; // Ознака пакетного малювання засобами Graphics2D
+    // Підказки малювання Graphics2D; значення за замовчуванням можна змінити властивістю -Dsmp3d.quality=QUALITY
+    RenderQuality quality = RenderQuality.valueOf(System.getProperty("smp3d.quality", "SPEED").toUpperCase(Locale.ROOT));
+    int pickedFace = -1; // Номер грані, обраної мишею (-1, якщо не обрано), виділяється при налагодженні
+    int pickedVertex = -1; // Номер обраної вершини цієї грані
+
+    // Проміжні дані кадру, які повторно використовуються між кадрами
+    final FrameGeometry geometry = new FrameGeometry();
+    final DepthSorter depthSorter = new DepthSorter();
+    final Rasterizer rasterizer = new Rasterizer();
+    final FrameProfiler profiler = new FrameProfiler(PROFILE_FRAMES); // Вимірювання етапів малювання (вимкнено)
+    private int[] polyX = new int[4]; // Екранні координати вершин грані, що малюється
+    private int[] polyY = new int[4];
+    private BufferedImage pixelImage; // Зображення, що використовує масив пікселів, переданий у render
+    long frameAllocatedBytes = -1; // Обсяг пам'яті, виділеної під час останнього кадру
+    long geometryAllocatedBytes = -1; // З них під час обертання, проекції, освітлення та сортування
+    int drawCalls; // Кількість викликів малювання Graphics2D для фігури на останньому кадрі (без тексту)
+
+    // Конструктор
+    public Renderer() {
+        // Заповнюємо таблицю кольорів граней для кожного рівня яскравості
+        for (int i = 0; i < SHADE_LEVELS; i++) {
+            double brightness = i / (double) (SHADE_LEVELS - 1);
+            shadeColors[i] = new Color((int) (brightness * faceColor.getRed()),
+                    (int) (brightness * faceColor.getGreen()), (int) (brightness * faceColor.getBlue()));
+            shadeRgb[i] = shadeColors[i].getRGB();
+        }
+    }
+
+    // Метод створює джерело даних про обсяг пам'яті, виділеної потоком
+    private static com.sun.management.ThreadMXBean createThreadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+
+    // Метод повертає загальний обсяг пам'яті, виділеної поточним потоком, або -1, якщо JVM цього не підтримує
+    static long allocatedBytes() {
+        return threadBean != null ? threadBean.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    // Метод малює кадр у зображення target, попередньо заповнивши його кольором фону
+    public void render(BufferedImage target, ShapeFactory.ShapeData shape, Matrix3x3 orientation,
+                       ProjectionType projection, ShapeView view, double[] lightDir) {
+        Graphics2D g2 = target.createGraphics();
+        try {
+            g2.setColor(background);
+            g2.fillRect(0, 0, target.getWidth(), target.getHeight());
+            render(g2, target.getWidth(), target.getHeight(), shape, orientation, projection, view, lightDir);
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    // Метод малює кадр у масив пікселів pixels (формат RGB, рядки довжиною width)
+    public void render(int[] pixels, int width, int height, ShapeFactory.ShapeData shape, Matrix3x3 orientation,
+                       ProjectionType projection, ShapeView view, double[] lightDir) {
+        if (pixelImage == null || pixelImage.getWidth() != width || pixelImage.getHeight() != height
+                || ((DataBufferInt) pixelImage.getRaster().getDataBuffer()).getData() != pixels) {
+            // Створюємо зображення, що малює безпосередньо у переданий масив
+            DirectColorModel model = new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+            WritableRaster raster = Raster.createWritableRaster(
+                    new SinglePixelPackedSampleModel(DataBufferInt.TYPE_INT, width, height, model.getMasks()),
+                    new DataBufferInt(pixels, width * height), null);
+            pixelImage = new BufferedImage(model, raster, false, null);
+        }
+        render(pixelImage, shape, orientation, projection, view, lightDir);
+    }
+
+    // Метод малює кадр засобами g2 у прямокутнику розміром width x height
+    // Фон не заповнюється: це робить той, хто викликає метод
+    public void render(Graphics2D g2, int width, int height, ShapeFactory.ShapeData shape, Matrix3x3 orientation,
+                       ProjectionType projection, ShapeView view, double[] lightDir) {
+        long allocStart = allocatedBytes();
+        drawCalls = 0;
+        applyQuality(g2);
+
+        int vertexCount = shape.vertexCount();
+        int faceCount = shape.faceCount();
+        boolean perspective = projection == ProjectionType.PERSPECTIVE;
+        profiler.counts(vertexCount, faceCount, shape.edges.length / 2);
+
+        // Обертання і 2D проеція всіх вершин у попередньо виділені масиви
+        // При вимірюванні обертання і проекція виконуються окремими проходами, щоб виміряти кожен етап
+        if (profiler.enabled) {
+            geometry.rotate(shape, orientation, width, height, scale, perspective);
+            profiler.mark(FrameProfiler.Stage.TRANSFORM);
+            geometry.project();
+            profiler.mark(FrameProfiler.Stage.PROJECTION);
+        } else {
+            geometry.transform(shape, orientation, width, height, scale, perspective);
+        }
+        int[] projectedX = geometry.screenX;
+        int[] projectedY = geometry.screenY;
+        long geometryAlloc = allocatedBytes() - allocStart;
+
+        // Малювання граней для режимів POLYGONS, ILLUMINATED та SMOOTH
+        if ((view != ShapeView.WIREFRAME) && (faceCount > 0)) {
+            boolean lit = view == ShapeView.ILLUMINATED || view == ShapeView.SMOOTH;
+            boolean rasterized = backend == RenderBackend.ZBUFFER || view == ShapeView.SMOOTH;
+            g2.setStroke(faceStroke);
+
+            // Нормалізація вектору освітлення
+            double lightLen = Math.sqrt(lightDir[0] * lightDir[0] + lightDir[1] * lightDir[1] + lightDir[2] * lightDir[2]);
+            if (lightLen == 0) lightLen = Double.POSITIVE_INFINITY;
+
+            long shadeStart = allocatedBytes();
+
+            // Відсікання граней поза екраном та граней, повернутих від глядача
+            if (culling) {
+                // Якщо для фігури вже побудовано ієрархію граней, відкидаємо цілі групи граней за її вузлами
+                geometry.cull(true, shape.builtBvh());
+            }
+            profiler.mark(FrameProfiler.Stage.CULLING);
+
+            // Обчислення яскравості та середньої глибини видимих граней
+            geometry.shade(shape, lightDir[0] / lightLen, lightDir[1] / lightLen, lightDir[2] / lightLen);
+            if (view == ShapeView.SMOOTH) {
+                geometry.shadeVertices(shape, lightDir[0] / lightLen, lightDir[1] / lightLen, lightDir[2] / lightLen);
+            }
+            profiler.mark(FrameProfiler.Stage.SHADING);
+
+            // Сортування граней від найбільш віддалених до найбільш наближених
+            // (z-буфер визначає видимість попіксельно і сортування не потребує)
+            int[] order = !rasterized
+                    ? depthSorter.sort(geometry.depth, geometry.visible, geometry.visibleCount) : null;
+            geometryAlloc += allocatedBytes() - shadeStart;
+            profiler.mark(FrameProfiler.Stage.SORT);
+
+            // Малювання граней обраним способом
+            if (rasterized) {
+                paintFacesZBuffer(g2, width, height, shape, view);
+            } else if (batched && !(showDebug && geometry.visibleCount <= MAX_LABELS)) {
+                // Номери граней мають малюватись разом з гранями, тому при їх виводі грані малюються по одній
+                paintFacesBatched(g2, shape, view, order);
+            } else {
+                paintFacesSorted(g2, shape, view, order);
+            }
+
+            // Для режимів з освітленням малюємо джерело світла
+            if (lit) {
+                // Трохи 'наближаємо' джерело світла до нас і обчислюємо його проекцію з 3d в 2D координати
+                double lz = lightDir[2] * 3;
+                int lightX = Point3D.projectX(lightDir[0] * 3, lz, width, scale, perspective);
+                int lightY = Point3D.projectY(lightDir[1] * 3, lz, height, scale, perspective);
+                // Малюємо круг за отриманими коорлинатами
+                g2.setColor(Color.YELLOW);
+                g2.fillOval(lightX - 5, lightY - 5, 10, 10);
+            }
+            profiler.mark(FrameProfiler.Stage.FILL);
+        }
+
+        // Для режиму WIREFRAME малюємо ребра
+        if (view == ShapeView.WIREFRAME) {
+            // Втсановлюємо ширину лінії та колір
+            g2.setStroke(edgeStroke);
+            g2.setColor(edgeColor);
+
+            if (batched && quality == RenderQuality.SPEED) {
+                // Растр не згладжується, тому з підказкою QUALITY ребра малюються засобами Graphics2D
+                BufferedImage image = rasterizer.begin(width, height, background.getRGB());
+                rasterizer.drawWireframe(shape, projectedX, projectedY, edgeColor.getRGB(), vertexColor.getRGB());
+                g2.drawImage(image, 0, 0, null);
+                drawCalls++;
+            } else {
+                // Малюємо грані
+                int[] edges = shape.edges;
+                for (int i = 0; i < edges.length; i += 2) {
+                    int a = edges[i], b = edges[i + 1];
+                    g2.drawLine(projectedX[a], projectedY[a], projectedX[b], projectedY[b]);
+                }
+
+                // Малюємо вершини
+                g2.setColor(vertexColor);
+                for (int i = 0; i < vertexCount; i++) {
+                    g2.fillOval(projectedX[i] - 3, projectedY[i] - 3, 6, 6);
+                }
+                drawCalls += edges.length / 2 + vertexCount;
+            }
+            profiler.mark(FrameProfiler.Stage.EDGES);
+
+            // Виводимо номер вершин при налагодженні
+            if (showDebug && vertexCount <= MAX_LABELS) {
+                g2.setColor(Color.WHITE);
+                for (int i = 0; i < vertexCount; i++) {
+                    g2.drawString(String.valueOf(i), projectedX[i] + 5, projectedY[i] - 5);
+                }
+                profiler.mark(FrameProfiler.Stage.TEXT);
+            }
+        }
+
+        // Виділяємо обрану мишею грань і вершину при налагодженні
+        if (showDebug && pickedFace >= 0 && pickedFace < faceCount) {
+            paintPicked(g2, shape);
+            profiler.mark(FrameProfiler.Stage.TEXT);
+        }
+
+        // Обсяг пам'яті, виділеної під час обробки геометрії та під час усього кадру
+        if (allocStart >= 0) {
+            geometryAllocatedBytes = geometryAlloc;
+            frameAllocatedBytes = allocatedBytes() - allocStart;
+        }
+    }
+
+    // Метод малювання граней засобами Graphics2D у порядку від найбільш віддалених до найбільш наближених
+    // Контури граней та номери граней при налагодженні малюються разом із гранями і вимірюються як етап FILL
+    private void paintFacesSorted(Graphics2D g2, ShapeFactory.ShapeData shape, ShapeView view, int[] order) {
+        int faceCount = geometry.visibleCount;
+        int[] projectedX = geometry.screenX;
+        int[] projectedY = geometry.screenY;
+        boolean labels = showDebug && faceCount <= MAX_LABELS;
+        for (int n = 0; n < faceCount; n++) {
+            int f = order[n];
+            if (view == ShapeView.ILLUMINATED) {
+                // Для режиму ILLUMINATED змінюємо колір в залежності від яскравості освітлення
+                g2.setColor(shadeColors[(int) (geometry.brightness[f] * (SHADE_LEVELS - 1))]);
+            }
+            else {
+                // Для режиму POLYGONS малюємо грані одним кольором
+                g2.setColor(faceColor);
+            }
+
+            // Заповнюємо масиви координат для малювання заповненого полігону
+            int start = shape.faceOffsets[f];
+            int size = shape.faceOffsets[f + 1] - start;
+            if (polyX.length < size) {
+                polyX = new int[size];
+                polyY = new int[size];
+            }
+            for (int i = 0; i < size; i++) {
+                int idx = shape.faceIndices[start + i];
+                polyX[i] = projectedX[idx];
+                polyY[i] = projectedY[idx];
+            }
+
+            // Малюємо отриманий полігон
+            g2.fillPolygon(polyX, polyY, size);
+            drawCalls++;
+
+            // Виводимо номер грані при налагодженні в середині грані
+            if (labels) {
+                int centerX = 0, centerY = 0;
+                for (int i = 0; i < size; i++) {
+                    centerX += polyX[i];
+                    centerY += polyY[i];
+                }
+                g2.setColor(Color.WHITE);
+                g2.drawString(String.valueOf(f), centerX / size, centerY / size);
+            }
+
+            // Для режиму POLYGONS додатково малюємо грані (контури полігона)
+            if (view != ShapeView.ILLUMINATED) {
+                g2.setColor(edgeColor);
+                g2.drawPolygon(polyX, polyY, size);
+                drawCalls++;
+            }
+        }
+    }
+
+    // Метод пакетного малювання граней засобами Graphics2D у тому ж порядку, що й paintFacesSorted
+    // Послідовні у порядку глибини грані одного кольору об'єднуються в серію, що заливається одним викликом fill;
+    // заливки граней одного кольору, що йдуть одна за одною, дають те саме зображення в будь-якому порядку.
+    // У режимі POLYGONS контури серії малюються одним викликом draw одразу після її заливки, тому грань
+    // додається до серії лише тоді, коли її прямокутник не перетинає контурів, уже доданих до серії:
+    // інакше її заливка мала б закрити ці контури. Серія містить не більше BATCH_PATH_FACES граней
+    private void paintFacesBatched(Graphics2D g2, ShapeFactory.ShapeData shape, ShapeView view, int[] order) {
+        int faceCount = geometry.visibleCount;
+        boolean illuminated = view == ShapeView.ILLUMINATED;
+        int runStart = 0, runShade = -1;
+        int runMinX = 0, runMinY = 0, runMaxX = 0, runMaxY = 0; // Прямокутник контурів серії, розширений на піксель
+        for (int n = 0; n < faceCount; n++) {
+            int f = order[n];
+            int shade = illuminated ? (int) (geometry.brightness[f] * (SHADE_LEVELS - 1)) : 0;
+            int start = shape.faceOffsets[f], end = shape.faceOffsets[f + 1];
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+            if (!illuminated) {
+                for (int i = start; i < end; i++) {
+                    int v = shape.faceIndices[i];
+                    minX = Math.min(minX, geometry.screenX[v]); maxX = Math.max(maxX, geometry.screenX[v]);
+                    minY = Math.min(minY, geometry.screenY[v]); maxY = Math.max(maxY, geometry.screenY[v]);
+                }
+            }
+            boolean overlaps = !illuminated
+                    && minX <= runMaxX && maxX >= runMinX && minY <= runMaxY && maxY >= runMinY;
+            if (n > runStart && (shade != runShade || overlaps || n - runStart == BATCH_PATH_FACES)) {
+                paintRun(g2, shape, order, runStart, n, illuminated, runShade);
+                runStart = n;
+            }
+            if (n == runStart) {
+                runShade = shade;
+                runMinX = minX - 1; runMinY = minY - 1; runMaxX = maxX + 1; runMaxY = maxY + 1;
+            } else {
+                runMinX = Math.min(runMinX, minX - 1); runMinY = Math.min(runMinY, minY - 1);
+                runMaxX = Math.max(runMaxX, maxX + 1); runMaxY = Math.max(runMaxY, maxY + 1);
+            }
+        }
+        if (faceCount > runStart) {
+            paintRun(g2, shape, order, runStart, faceCount, illuminated, runShade);
+        }
+    }
+
+    // Метод малює серію граней order[from, to) рівня яскравості shade: заливку, а для режиму POLYGONS і контури
+    // Серія з однієї грані малюється так само, як у paintFacesSorted
+    private void paintRun(Graphics2D g2, ShapeFactory.ShapeData shape, int[] order, int from, int to,
+                          boolean illuminated, int shade) {
+        if (to - from == 1) {
+            int f = order[from];
+            int start = shape.faceOffsets[f];
+            int size = shape.faceOffsets[f + 1] - start;
+            if (polyX.length < size) {
+                polyX = new int[size];
+                polyY = new int[size];
+            }
+            for (int i = 0; i < size; i++) {
+                int idx = shape.faceIndices[start + i];
+                polyX[i] = geometry.screenX[idx];
+                polyY[i] = geometry.screenY[idx];
+            }
+            g2.setColor(illuminated ? shadeColors[shade] : faceColor);
+            g2.fillPolygon(polyX, polyY, size);
+            drawCalls++;
+            if (!illuminated) {
+                g2.setColor(edgeColor);
+                g2.drawPolygon(polyX, polyY, size);
+                drawCalls++;
+            }
+            return;
+        }
+        batchPath.reset();
+        for (int n = from; n < to; n++) {
+            appendFace(batchPath, shape, order[n], true);
+        }
+        g2.setColor(illuminated ? shadeColors[shade] : faceColor);
+        g2.fill(batchPath);
+        drawCalls++;
+        if (!illuminated) {
+            g2.setColor(edgeColor);
+            g2.draw(batchPath);
+            drawCalls++;
+        }
+    }
+
+    // Метод додає до контуру path проекцію грані f
+    // Якщо orient, вершини додаються в порядку проти годинникової стрілки на екрані: заливка за правилом WIND_NON_ZERO
+    // тоді заповнює об'єднання граней, і протилежно орієнтовані грані, що перекриваються, не вирізають одна одну
+    private void appendFace(Path2D.Float path, ShapeFactory.ShapeData shape, int f, boolean orient) {
+        int[] indices = shape.faceIndices;
+        int[] x = geometry.screenX, y = geometry.screenY;
+        int start = shape.faceOffsets[f];
+        int end = shape.faceOffsets[f + 1];
+        boolean reverse = false;
+        if (orient) {
+            long area = 0;
+            int prev = indices[end - 1];
+            for (int i = start; i < end; i++) {
+                int v = indices[i];
+                area += (long) x[prev] * y[v] - (long) x[v] * y[prev];
+                prev = v;
+            }
+            reverse = area < 0;
+        }
+        int first = indices[reverse ? end - 1 : start];
+        path.moveTo(x[first], y[first]);
+        for (int i = 1; i < end - start; i++) {
+            int v = indices[reverse ? end - 1 - i : start + i];
+            path.lineTo(x[v], y[v]);
+        }
+        path.closePath();
+    }
+
+    // Метод встановлює підказки малювання відповідно до quality
+    private void applyQuality(Graphics2D g2) {
+        boolean best = quality == RenderQuality.QUALITY;
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                best ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING,
+                best ? RenderingHints.VALUE_RENDER_QUALITY : RenderingHints.VALUE_RENDER_SPEED);
+        g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL,
+                best ? RenderingHints.VALUE_STROKE_PURE : RenderingHints.VALUE_STROKE_NORMALIZE);
+    }
+
+    // Метод малювання граней програмним растеризатором з z-буфером
+    // Грані растеризуються у власне зображення, яке потім виводиться одним викликом
+    private void paintFacesZBuffer(Graphics2D g2, int width, int height, ShapeFactory.ShapeData shape, ShapeView view) {
+        BufferedImage image = rasterizer.begin(width, height, background.getRGB());
+        if (view == ShapeView.SMOOTH) {
+            rasterizer.drawFacesSmooth(shape, geometry, shadeRgb);
+        } else if (view == ShapeView.ILLUMINATED) {
+            rasterizer.drawFaces(shape, geometry, shadeRgb, 0, false, 0);
+        } else {
+            rasterizer.drawFaces(shape, geometry, null, faceColor.getRGB(), true, edgeColor.getRGB());
+        }
+        g2.drawImage(image, 0, 0, null);
+        drawCalls++;
+
+        // Виводимо номери граней при налагодженні
+        if (showDebug && geometry.visibleCount <= MAX_LABELS) {
+            profiler.mark(FrameProfiler.Stage.FILL);
+            g2.setColor(Color.WHITE);
+            for (int n = 0; n < geometry.visibleCount; n++) {
+                int f = geometry.visible[n];
+                int start = shape.faceOffsets[f];
+                int size = shape.faceOffsets[f + 1] - start;
+                int centerX = 0, centerY = 0;
+                for (int i = start; i < start + size; i++) {
+                    centerX += geometry.screenX[shape.faceIndices[i]];
+                    centerY += geometry.screenY[shape.faceIndices[i]];
+                }
+                g2.drawString(String.valueOf(f), centerX / size, centerY / size);
+            }
+            profiler.mark(FrameProfiler.Stage.TEXT);
+        }
+    }
+
+    // Метод малює контур обраної мишею грані, обрану вершину та їх номери
+    private void paintPicked(Graphics2D g2, ShapeFactory.ShapeData shape) {
+        int start = shape.faceOffsets[pickedFace];
+        int size = shape.faceOffsets[pickedFace + 1] - start;
+        if (polyX.length < size) {
+            polyX = new int[size];
+            polyY = new int[size];
+        }
+        int centerX = 0, centerY = 0;
+        for (int i = 0; i < size; i++) {
+            int idx = shape.faceIndices[start + i];
+            polyX[i] = geometry.screenX[idx];
+            polyY[i] = geometry.screenY[idx];
+            centerX += polyX[i];
+            centerY += polyY[i];
+        }
+        g2.setColor(pickColor);
+        g2.setStroke(edgeStroke);
+        g2.drawPolygon(polyX, polyY, size);
+        g2.drawString(String.valueOf(pickedFace), centerX / size, centerY / size);
+        if (pickedVertex >= 0 && pickedVertex < shape.vertexCount()) {
+            int x = geometry.screenX[pickedVertex], y = geometry.screenY[pickedVertex];
+            g2.fillOval(x - 4, y - 4, 8, 8);
+            g2.drawString(String.valueOf(pickedVertex), x + 6, y - 6);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+/*
+ * ShapeCache
+ * Потокобезпечний кеш згенерованих фігур у пам'яті з обмеженням обсягу та витісненням
+ * фігур, що найдовше не використовувались (LRU)
+ *
+ * Обсяг кешу задається властивістю -Dsmp3d.shapeCacheMb=... (0 - вимкнути кеш), за замовчуванням 64 МБ
+ */
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+class ShapeCache {
+    private static final long ENTRY_OVERHEAD = 160; // Оцінка розміру об'єкта фігури, заголовків масивів і запису кешу
+
+    // Спільний кеш фігур програми
+    static final ShapeCache SHARED = new ShapeCache(Long.getLong("smp3d.shapeCacheMb", 64) << 20);
+
+    // Запис кешу: фігура та обсяг, врахований для неї в bytes
+    private static final class Entry {
+        final ShapeFactory.ShapeData shape;
+        long bytes;
+
+        Entry(ShapeFactory.ShapeData shape, long bytes) {
+            this.shape = shape;
+            this.bytes = bytes;
+        }
+    }
+
+    // Фігури в порядку використання: першою йде та, що найдовше не використовувалась
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Фігури, що саме зараз генеруються: інші потоки чекають на їх результат, а не генерують фігуру вдруге
+    private final Map<String, CompletableFuture<ShapeFactory.ShapeData>> pending = new HashMap<>();
+    // Фоновий потік для попереднього завантаження фігур
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "shape-prefetch");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private long budgetBytes; // Максимальний обсяг фігур у кеші
+    private long bytes; // Поточний обсяг фігур у кеші
+    private long hits; // Кількість запитів, для яких фігура вже була в кеші
+    private long misses; // Кількість запитів, для яких фігуру довелося створити
+    private long evictions; // Кількість витіснених фігур
+
+    // Конструктор
+    ShapeCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    // Метод повертає фігуру з кешу, а якщо її там немає - створює її за допомогою loader і додає до кешу
+    // Фігура створюється поза блокуванням, тому інші потоки тим часом можуть отримувати вже наявні фігури
+    ShapeFactory.ShapeData get(String key, Supplier<ShapeFactory.ShapeData> loader) {
+        CompletableFuture<ShapeFactory.ShapeData> future;
+        boolean owner = false;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry.shape;
+            }
+            misses++;
+            future = pending.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                pending.put(key, future);
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            return future.join();
+        }
+        try {
+            ShapeFactory.ShapeData shape = loader.get();
+            synchronized (this) {
+                pending.remove(key);
+                put(key, shape);
+            }
+            future.complete(shape);
+            return shape;
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                pending.remove(key);
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Метод у фоновому потоці виконує завантаження фігури, щоб вона вже була в кеші, коли знадобиться
+    void prefetch(Runnable load) {
+        prefetcher.execute(() -> {
+            try {
+                load.run();
+            } catch (RuntimeException e) {
+                // Фігуру буде створено повторно при звичайному запиті, де помилка і буде показана
+            }
+        });
+    }
+
+    // Метод додає фігуру до кешу і витісняє найдавніше використані фігури, доки обсяг не вкладеться в межі
+    // Фігура, більша за весь обсяг кешу, не зберігається
+    private void put(String key, ShapeFactory.ShapeData shape) {
+        long size = estimateBytes(shape);
+        if (size > budgetBytes) return;
+        Entry old = entries.put(key, new Entry(shape, size));
+        if (old != null) bytes -= old.bytes;
+        bytes += size;
+        trim();
+    }
+
+    // Метод заново оцінює обсяг фігури shape, якщо вона є в кеші, наприклад після побудови її ієрархії граней,
+    // і витісняє найдавніше використані фігури, якщо обсяг кешу перевищено
+    synchronized void resized(ShapeFactory.ShapeData shape) {
+        for (Entry entry : entries.values()) {
+            if (entry.shape == shape) {
+                long size = estimateBytes(shape);
+                bytes += size - entry.bytes;
+                entry.bytes = size;
+                break;
+            }
+        }
+        trim();
+    }
+
+    // Метод витісняє найдавніше використані фігури, доки обсяг кешу перевищує встановлений
+    private void trim() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes > budgetBytes && it.hasNext()) {
+            bytes -= it.next().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    // Метод змінює максимальний обсяг кешу
+    synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        trim();
+    }
+
+    // Метод видаляє всі фігури з кешу
+    synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    synchronized long budgetBytes() { return budgetBytes; }
+
+    synchronized long bytes() { return bytes; }
+
+    synchronized int size() { return entries.size(); }
+
+    synchronized long hits() { return hits; }
+
+    synchronized long misses() { return misses; }
+
+    synchronized long evictions() { return evictions; }
+
+    // Метод оцінює обсяг пам'яті, який займає фігура: масиви вершин, граней і ребер, заголовки об'єктів
+    // та ієрархія граней, якщо її вже побудовано
+    static long estimateBytes(ShapeFactory.ShapeData shape) {
+        FaceBvh bvh = shape.builtBvh();
+        return ENTRY_OVERHEAD + (shape.vertices.length + shape.vertexNormals.length + shape.faceNormals.length) * 8L
+                + (shape.faceOffsets.length + shape.faceIndices.length + shape.edges.length) * 4L
+                + (bvh != null ? bvh.estimateBytes() : 0);
+    }
+}
@@ -1,262 +1,359 @@
 /*
  * ShapeFactory
- * Клас для створення і зберігання даних про одну з фігур
+ * Клас для створення даних про фігури
  */
 
-import java.util.List;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Set;
-import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 class ShapeFactory {
     // Перелік фігур
+    // MESH - сітка, завантажена з файлу класом MeshLoader, вона не генерується і пропускається при переборі фігур
     public enum ShapeType {
-        CUBE, PYRAMID, TETRAHEDRON, OCTAHEDRON, SPHERE, TORUS, SURFACE
+        CUBE, PYRAMID, TETRAHEDRON, OCTAHEDRON, SPHERE, TORUS, SURFACE, MESH
     }
 
     // Допоміжний клас для зберігання даних про фігуру
+    // Дані зберігаються в упакованих масивах примітивів, без окремого об'єкта на кожну вершину чи грань
     public static class ShapeData {
         // Тип фігури
         public ShapeType type;
-        // Список вершин фігури. Кожна вершина зберігає свої 3D координати
-        public List<Point3D> vertices;
-        // Список граней фігури. Кожна грань зберігає індекси вершин зі списку вершин
-        public List<int[]> faces;
-        // Список ребер фігури. Кожне ребро зберігає індекси двох вершин зі списку вершин
-        public List<Edge> edges;
+        // Координати вершин фігури, упаковані послідовно: x0, y0, z0, x1, y1, z1, ...
+        public double[] vertices;
+        // Зміщення граней у масиві faceIndices. Грань f займає елементи [faceOffsets[f], faceOffsets[f + 1])
+        // Останній елемент дорівнює довжині faceIndices, тому трикутники і чотирикутники можуть чергуватись
+        public int[] faceOffsets;
+        // Індекси вершин усіх граней, записані одна за одною
+        public int[] faceIndices;
+        // Індекси вершин ребер, упаковані парами: a0, b0, a1, b1, ...
+        public int[] edges;
+        // Ознака замкненої поверхні: кожне ребро належить рівно двом граням
+        // Лише у замкнених фігур грані, повернуті від глядача, гарантовано закриті іншими гранями
+        public boolean closed;
+        // Одиничні нормалі граней у системі координат фігури, упаковані трійками: nx0, ny0, nz0, nx1, ...
+        // Нормаль визначається трьома першими вершинами грані: (v1 - v0) x (v2 - v0)
+        public double[] faceNormals;
+        // Одиничні нормалі вершин: сума нормалей суміжних граней, зважених їх площею, приведена до одиничної довжини
+        public double[] vertexNormals;
+        // Межі фігури: minX, minY, minZ, maxX, maxY, maxZ та відстань від початку координат до найвіддаленішої
+        // вершини (null, поки не обчислені). Фігура, прочитана з дискового кешу, отримує їх із заголовка файлу
+        double[] bounds;
+        // Ієрархія обмежувальних об'ємів граней (null, поки не побудована)
+        // Будується лише на вимогу: для вибору граней мишею і прискорення відсікання великих фігур
+        private volatile FaceBvh bvh;
+        private CompletableFuture<FaceBvh> bvhBuild;
 
         // Конструктор
-        public ShapeData(ShapeType type, List<Point3D> vertices, List<int[]> faces, List<Edge> edges) {
+        // Нормалі обчислюються один раз тут, тому кожен кадр лише використовує їх для освітлення
+        public ShapeData(ShapeType type, double[] vertices, int[] faceOffsets, int[] faceIndices, int[] edges,
+                         boolean closed) {
             this.type = type;
             this.vertices = vertices;
-            this.faces = faces;
+            this.faceOffsets = faceOffsets;
+            this.faceIndices = faceIndices;
             this.edges = edges;
+            this.closed = closed;
+            computeNormals();
         }
+
+        // Метод обчислює нормалі граней та вершин
+        private void computeNormals() {
+            int faceCount = faceCount();
+            faceNormals = new double[faceCount * 3];
+            vertexNormals = new double[vertices.length];
+            double[] v = vertices;
+            for (int f = 0; f < faceCount; f++) {
+                int start = faceOffsets[f], end = faceOffsets[f + 1];
+                if (end - start < 3) continue;
+                int a = faceIndices[start] * 3, b = faceIndices[start + 1] * 3, c = faceIndices[start + 2] * 3;
+                double ux = v[b] - v[a], uy = v[b + 1] - v[a + 1], uz = v[b + 2] - v[a + 2];
+                double wx = v[c] - v[a], wy = v[c + 1] - v[a + 1], wz = v[c + 2] - v[a + 2];
+                double nx = uy * wz - uz * wy;
+                double ny = uz * wx - ux * wz;
+                double nz = ux * wy - uy * wx;
+
+                // Довжина векторного добутку пропорційна площі грані, тому вершини отримують зважену суму
+                for (int i = start; i < end; i++) {
+                    int k = faceIndices[i] * 3;
+                    vertexNormals[k] += nx;
+                    vertexNormals[k + 1] += ny;
+                    vertexNormals[k + 2] += nz;
+                }
+                normalize(nx, ny, nz, faceNormals, f * 3);
+            }
+            for (int k = 0; k < vertexNormals.length; k += 3) {
+                normalize(vertexNormals[k], vertexNormals[k + 1], vertexNormals[k + 2], vertexNormals, k);
+            }
+        }
+
+        // Метод записує вектор (x, y, z), приведений до одиничної довжини, в масив dst за зміщенням offset
+        // Нульовий вектор залишається нульовим
+        private static void normalize(double x, double y, double z, double[] dst, int offset) {
+            double len = Math.sqrt(x * x + y * y + z * z);
+            if (len == 0) len = Double.POSITIVE_INFINITY;
+            dst[offset] = x / len;
+            dst[offset + 1] = y / len;
+            dst[offset + 2] = z / len;
+        }
+
+        // Метод повертає ієрархію граней, за потреби чекаючи на завершення її побудови
+        public FaceBvh bvh() {
+            FaceBvh built = bvh;
+            return built != null ? built : bvhAsync().join();
+        }
+
+        // Метод повертає ієрархію граней, якщо її вже побудовано, інакше null
+        public FaceBvh builtBvh() {
+            return bvh;
+        }
+
+        // Метод починає побудову ієрархії граней у фоновому потоці, якщо вона ще не почалась
+        public synchronized CompletableFuture<FaceBvh> bvhAsync() {
+            if (bvhBuild == null) {
+                bvhBuild = CompletableFuture.supplyAsync(() -> bvh = new FaceBvh(this));
+                // Ієрархія збільшує обсяг фігури, тому кеш, що її містить, переоцінює свій обсяг
+                bvhBuild.thenRun(() -> ShapeCache.SHARED.resized(this));
+            }
+            return bvhBuild;
+        }
+
+        // Метод повертає межі фігури, обчислюючи їх при першому зверненні
+        public double[] bounds() {
+            double[] b = bounds;
+            if (b == null) {
+                bounds = b = computeBounds(vertices);
+            }
+            return b;
+        }
+
+        // Метод обчислює межі вершин: minX, minY, minZ, maxX, maxY, maxZ та радіус (нулі для фігури без вершин)
+        static double[] computeBounds(double[] vertices) {
+            double[] b = new double[7];
+            double maxSq = 0;
+            for (int i = 0; i < vertices.length; i++) {
+                int axis = i % 3;
+                double v = vertices[i];
+                if (i < 3 || v < b[axis]) b[axis] = v;
+                if (i < 3 || v > b[axis + 3]) b[axis + 3] = v;
+                if (axis == 2) {
+                    maxSq = Math.max(maxSq, vertices[i - 2] * vertices[i - 2] + vertices[i - 1] * vertices[i - 1] + v * v);
+                }
+            }
+            b[6] = Math.sqrt(maxSq);
+            return b;
+        }
+
+        // Кількість вершин фігури
+        public int vertexCount() { return vertices.length / 3; }
+
+        // Кількість граней фігури
+        public int faceCount() { return faceOffsets.length - 1; }
+
+        // Кількість ребер фігури
+        public int edgeCount() { return edges.length / 2; }
     }
 
-    private static ShapeData currentShape; // дані поточної фігури
+    // Кількість рівнів деталізації фігур з параметрами генерації
+    // Кожен наступний рівень має вдвічі менше поділів за кожним напрямком, тобто вчетверо менше граней
+    public static final int LOD_LEVELS = 3;
 
     // Метод для генерації фігури бажаного типу
+    // Фігури зберігаються в кеші ShapeCache.SHARED, тому повторний запит не генерує фігуру заново,
+    // а наступна за списком фігура заздалегідь готується у фоновому потоці
     public static ShapeData generate(ShapeType type) {
-        // Якщо тип не вказано, виконується генерація наступної за списком фігури
-        if (type == null) {
-            ShapeType current = currentShape != null ? currentShape.type : ShapeType.CUBE;
-            type = ShapeType.values()[(current.ordinal() + 1) % ShapeType.values().length];
-        }
+        ShapeData shape = load(type, 0);
+        prefetch(nextType(type));
+        return shape;
+    }
+
+    // Метод генерує всі рівні деталізації фігури бажаного типу
+    // Фігури без параметрів генерації мають єдиний рівень
+    public static LodChain generateLods(ShapeType type) {
+        LodChain chain = new LodChain(loadLevels(type));
+        prefetch(nextType(type));
+        return chain;
+    }
 
-        // Генерація фігури в залежності від типу
-        switch (type) {
-            case CUBE -> generateCube();
-            case PYRAMID -> generatePyramid();
-            case TETRAHEDRON -> generateTetrahedron();
-            case OCTAHEDRON -> generateOctahedron();
-            case SPHERE -> generateSphere(30, 30, 1.8);
-            case TORUS -> generateTorus(24, 12, 1.5, 0.5);
-            case SURFACE -> generateSurface(100, 100, 0.05, 1.0);
+    // Метод повертає тип фігури, наступної за списком після вказаної
+    // Сітки (MESH) не генеруються і пропускаються
+    public static ShapeType nextType(ShapeType type) {
+        ShapeType next = ShapeType.values()[(type.ordinal() + 1) % ShapeType.values().length];
+        return next == ShapeType.MESH ? ShapeType.values()[0] : next;
+    }
+
+    // Метод у фоновому потоці готує всі рівні деталізації фігури
+    private static void prefetch(ShapeType type) {
+        ShapeCache.SHARED.prefetch(() -> loadLevels(type));
+    }
+
+    // Метод повертає всі рівні деталізації фігури, від найдетальнішого
+    private static ShapeData[] loadLevels(ShapeType type) {
+        int count = switch (type) {
+            case SPHERE, TORUS, SURFACE -> LOD_LEVELS;
+            default -> 1;
+        };
+        ShapeData[] levels = new ShapeData[count];
+        for (int level = 0; level < count; level++) {
+            levels[level] = load(type, level);
         }
+        return levels;
+    }
+
+    // Метод повертає фігуру з кешу або генерує її в залежності від типу та рівня деталізації
+    private static ShapeData load(ShapeType type, int level) {
+        return switch (type) {
+            case CUBE -> cached(ShapeFactory::generateCube, type);
+            case PYRAMID -> cached(ShapeFactory::generatePyramid, type);
+            case TETRAHEDRON -> cached(ShapeFactory::generateTetrahedron, type);
+            case OCTAHEDRON -> cached(ShapeFactory::generateOctahedron, type);
+            case SPHERE -> {
+                int div = Math.max(4, 30 >> level);
+                yield cached(() -> generateSphere(div, div, 1.8), type, div, div, 1.8);
+            }
+            case TORUS -> {
+                int segU = Math.max(6, 24 >> level), segV = Math.max(3, 12 >> level);
+                yield cached(() -> generateTorus(segU, segV, 1.5, 0.5), type, segU, segV, 1.5, 0.5);
+            }
+            case SURFACE -> {
+                // Крок сітки збільшується так, щоб розмір поверхні не залежав від кількості поділів
+                int size = Math.max(4, 100 >> level);
+                double spacing = 0.05 * 99 / (size - 1);
+                yield cached(() -> generateSurface(size, size, spacing, 1.0), type, size, size, spacing, 1.0);
+            }
+            case MESH -> throw new IllegalArgumentException("Сітки завантажуються з файлу класом MeshLoader");
+        };
+    }
 
-        return currentShape;
+    // Метод повертає фігуру з кешу в пам'яті, а якщо її там немає - завантажує з дискового кешу або генерує
+    // Параметри генерації входять до ключа кешу, тому фігури з різними параметрами не змішуються
+    // Фігури без параметрів створюються швидше, ніж читаються з диска, тому на диск не зберігаються
+    private static ShapeData cached(Supplier<ShapeData> generator, ShapeType type, Object... params) {
+        String key = MeshCache.key(type, params);
+        return ShapeCache.SHARED.get(key, () -> {
+            if (params.length == 0) return generator.get();
+            ShapeData shape = MeshCache.find(key);
+            if (shape == null) {
+                shape = generator.get();
+                MeshCache.store(key, shape);
+            }
+            return shape;
+        });
     }
 
-    // Метод зберігнання типу, вершин та граней нової фігури
+    // Метод створює дані фігури з вершин та граней
     // Дані ребер формуються на основі даних граней
-    public static void setNewShape(ShapeType type, List<Point3D> vertices, List<int[]> faces) {
-        Set<String> edgeSet = new HashSet<>(); // хеш для фільтрації дублювань ребер
-        List<Edge> edges = new ArrayList<>(); // список унікальних ребер фігури
-
-        // Цикл формування унікального списку ребер
-        for (int[] face : faces) {
-            for (int i = 0; i < face.length; i++) {
-                int a = face[i];
-                int b = face[(i + 1) % face.length];
-                int min = Math.min(a, b);
-                int max = Math.max(a, b);
-                String key = min + ":" + max;
-                if (edgeSet.add(key)) {
-                    edges.add(new Edge(min, max));
-                }
-            }
+    public static ShapeData createShape(ShapeType type, double[] vertices, int[] faceOffsets, int[] faceIndices) {
+        EdgeExtractor extractor = new EdgeExtractor();
+        extractor.extract(faceOffsets, faceIndices);
+        return new ShapeData(type, vertices, faceOffsets, faceIndices, extractor.edges, extractor.closed);
+    }
+
+    // Варіант createShape для фігур, грані яких задані двовимірним масивом
+    public static ShapeData createShape(ShapeType type, double[] vertices, int[][] faces) {
+        int[] faceOffsets = new int[faces.length + 1];
+        for (int f = 0; f < faces.length; f++) {
+            faceOffsets[f + 1] = faceOffsets[f] + faces[f].length;
         }
-        currentShape = new ShapeData(type, vertices, faces, edges);
+        int[] faceIndices = new int[faceOffsets[faces.length]];
+        for (int f = 0; f < faces.length; f++) {
+            System.arraycopy(faces[f], 0, faceIndices, faceOffsets[f], faces[f].length);
+        }
+        return createShape(type, vertices, faceOffsets, faceIndices);
     }
 
     // Метод генерації КУБА
-    public static void generateCube() {
-        List<Point3D> vertices = Arrays.asList(
-            new Point3D(-1, -1, -1), new Point3D(-1, -1, 1),
-            new Point3D(-1, 1, -1), new Point3D(-1, 1, 1),
-            new Point3D(1, -1, -1), new Point3D(1, -1, 1),
-            new Point3D(1, 1, -1), new Point3D(1, 1, 1)
-        );
+    public static ShapeData generateCube() {
+        double[] vertices = {
+            -1, -1, -1,   -1, -1, 1,
+            -1, 1, -1,    -1, 1, 1,
+            1, -1, -1,    1, -1, 1,
+            1, 1, -1,     1, 1, 1
+        };
 
         int[][] faces = {
             {0, 1, 3, 2}, {4, 6, 7, 5},
             {0, 4, 5, 1}, {2, 3, 7, 6},
             {1, 5, 7, 3}, {0, 2, 6, 4}
-            
         };
-                
-        setNewShape(ShapeType.CUBE, vertices, Arrays.asList(faces));
+
+        return createShape(ShapeType.CUBE, vertices, faces);
     }
 
     // Метод генерації ПІРАМІДИ
-    public static void generatePyramid() {
-        List<Point3D> vertices = Arrays.asList(
-            new Point3D(-1, -1, 0), new Point3D(1, -1, 0),
-            new Point3D(1, 1, 0), new Point3D(-1, 1, 0),
-            new Point3D(0, 0, 2)
-        );
+    public static ShapeData generatePyramid() {
+        double[] vertices = {
+            -1, -1, 0,   1, -1, 0,
+            1, 1, 0,     -1, 1, 0,
+            0, 0, 2
+        };
 
         int[][] faces = {
             {3, 2, 1, 0}, {0, 1, 4}, {1, 2, 4}, {2, 3, 4}, {3, 0, 4}
         };
 
-        setNewShape(ShapeType.PYRAMID, vertices, Arrays.asList(faces));
+        return createShape(ShapeType.PYRAMID, vertices, faces);
     }
 
     // Метод генерації ТЕТРАЕДРА
-    public static void generateTetrahedron() {
-        List<Point3D> vertices = Arrays.asList(
-            new Point3D(1, 1, 1), new Point3D(-1, -1, 1),
-            new Point3D(-1, 1, -1), new Point3D(1, -1, -1)
-        );
+    public static ShapeData generateTetrahedron() {
+        double[] vertices = {
+            1, 1, 1,     -1, -1, 1,
+            -1, 1, -1,   1, -1, -1
+        };
 
         int[][] faces = {
             {0, 2, 1}, {0, 1, 3}, {1, 2, 3}, {2, 0, 3}
         };
 
-        setNewShape(ShapeType.TETRAHEDRON, vertices, Arrays.asList(faces));
+        return createShape(ShapeType.TETRAHEDRON, vertices, faces);
     }
 
     // Метод генерації ОКТАЕДРА
-    public static void generateOctahedron() {
-        List<Point3D> vertices = Arrays.asList(
-            new Point3D(1, 0, 0), new Point3D(-1, 0, 0),
-            new Point3D(0, 1, 0), new Point3D(0, -1, 0),
-            new Point3D(0, 0, 1), new Point3D(0, 0, -1)
-        );
+    public static ShapeData generateOctahedron() {
+        double[] vertices = {
+            1, 0, 0,   -1, 0, 0,
+            0, 1, 0,   0, -1, 0,
+            0, 0, 1,   0, 0, -1
+        };
 
         int[][] faces = {
             {0, 2, 4}, {2, 1, 4}, {1, 3, 4}, {3, 0, 4},
             {0, 5, 2}, {2, 5, 1}, {1, 5, 3}, {3, 5, 0}
         };
 
-        setNewShape(ShapeType.OCTAHEDRON, vertices, Arrays.asList(faces));
+        return createShape(ShapeType.OCTAHEDRON, vertices, faces);
     }
 
     // Метод генерації СФЕРИ
-    public static void generateSphere(int latDiv, int lonDiv, double radius) {
-        List<Point3D> vertices = new ArrayList<>();
-        List<int[]> faces = new ArrayList<>();
-
-        // Верхній полюс
-        vertices.add(new Point3D(0, 0, radius));
-
-        // Генерація вершин
-        for (int i = 1; i < latDiv; i++) {
-            double theta = Math.PI * i / latDiv;
-            for (int j = 0; j < lonDiv; j++) {
-                double phi = 2 * Math.PI * j / lonDiv;
-                double x = radius * Math.sin(theta) * Math.cos(phi);
-                double y = radius * Math.sin(theta) * Math.sin(phi);
-                double z = radius * Math.cos(theta);
-                vertices.add(new Point3D(x, y, z));
-            }
-        }
-
-        // Нижній полюс
-        vertices.add(new Point3D(0, 0, -radius));
-
-        // Грані для верхнього полюсу
-        for (int j = 0; j < lonDiv; j++) {
-            int a = 0;
-            int b = j + 1;
-            int c = (j + 1) % lonDiv + 1;
-            faces.add(new int[] {a, b, c});
-        }
-
-        // Грані між широтами
-        for (int i = 0; i < latDiv - 2; i++) {
-            for (int j = 0; j < lonDiv; j++) {
-                int a = 1 + i * lonDiv + j;
-                int b = 1 + i * lonDiv + (j + 1) % lonDiv;
-                int c = 1 + (i + 1) * lonDiv + (j + 1) % lonDiv;
-                int d = 1 + (i + 1) * lonDiv + j;
-                faces.add(new int[] {d, c, b, a});
-            }
-        }
-
-        // Грані для нижнього полюсу
-        int southPole = vertices.size() - 1;
-        int offset = 1 + (latDiv - 2) * lonDiv;
-        for (int j = 0; j < lonDiv; j++) {
-            int a = offset + j;
-            int b = offset + (j + 1) % lonDiv;
-            faces.add(new int[] {a, southPole, b});
-        }
-
-        setNewShape(ShapeType.SPHERE, vertices, faces);
+    // Сфера - параметрична поверхня з latDiv - 1 рядками паралелей між двома полюсами та lonDiv меридіанами
+    public static ShapeData generateSphere(int latDiv, int lonDiv, double radius) {
+        return new SurfaceGenerator(SurfaceGenerator.Topology.SPHERE, lonDiv, latDiv - 1, true)
+                .parametric(ShapeType.SPHERE, (u, v, out, offset) -> {
+                    double theta = Math.PI * v;
+                    double phi = 2 * Math.PI * u;
+                    out[offset] = radius * Math.sin(theta) * Math.cos(phi);
+                    out[offset + 1] = radius * Math.sin(theta) * Math.sin(phi);
+                    out[offset + 2] = radius * Math.cos(theta);
+                });
     }
 
     // Метод генерації ТОРА
-    public static void generateTorus(int segU, int segV, double R, double r) {
-        List<Point3D> vertices = new ArrayList<>();
-        List<int[]> faces = new ArrayList<>();
-
-        // Генерація вершин
-        for (int i = 0; i < segU; i++) {
-            double u = 2 * Math.PI * i / segU;
-            for (int j = 0; j < segV; j++) {
-                double v = 2 * Math.PI * j / segV;
-                double x = (R + r * Math.cos(v)) * Math.cos(u);
-                double y = (R + r * Math.cos(v)) * Math.sin(u);
-                double z = r * Math.sin(v);
-                vertices.add(new Point3D(x, y, z));
-            }
-        }
-
-        // Генерація граней
-        for (int i = 0; i < segU; i++) {
-            for (int j = 0; j < segV; j++) {
-                int a = i * segV + j;
-                int b = ((i + 1) % segU) * segV + j;
-                int c = ((i + 1) % segU) * segV + (j + 1) % segV;
-                int d = i * segV + (j + 1) % segV;
-                faces.add(new int[] {a, b, c, d});
-            }
-        }
-
-        setNewShape(ShapeType.TORUS, vertices, faces);
+    // Рядки сітки відповідають segU положенням твірного кола навколо осі Z, стовпці - segV точкам на цьому колі
+    public static ShapeData generateTorus(int segU, int segV, double R, double r) {
+        return new SurfaceGenerator(SurfaceGenerator.Topology.TORUS, segV, segU, true)
+                .parametric(ShapeType.TORUS, (u, v, out, offset) -> {
+                    double around = 2 * Math.PI * v; // кут навколо осі Z
+                    double tube = 2 * Math.PI * u; // кут на твірному колі
+                    out[offset] = (R + r * Math.cos(tube)) * Math.cos(around);
+                    out[offset + 1] = (R + r * Math.cos(tube)) * Math.sin(around);
+                    out[offset + 2] = r * Math.sin(tube);
+                });
     }
 
     // Метод генерації ПОВЕРХНІ на основі синуса й косинуса
-    public static void generateSurface(int w, int h, double spacing, double scale) {
-        List<Point3D> vertices = new ArrayList<>();
-        List<int[]> faces = new ArrayList<>();
-
-        // Генерація вершин
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                double px = (x - w / 2.0) * spacing * scale;
-                double py = (y - h / 2.0) * spacing * scale;
-                double z = 0.5 * Math.sin(px * 2) * Math.cos(py * 2)
-                                + 0.3 * Math.sin(px * 4) * Math.cos(py * 3); // псевдо-шум
-                vertices.add(new Point3D(px, py, z));
-            }
-        }
-
-        // Генерація граней
-        for (int y = 0; y < h - 1; y++) {
-            for (int x = 0; x < w - 1; x++) {
-                int a = y * w + x;
-                int b = a + 1;
-                int c = a + w + 1;
-                int d = a + w;
-                faces.add(new int[] {a, b, c, d});
-            }
-        }
-
-        setNewShape(ShapeType.SURFACE, vertices, faces);
+    public static ShapeData generateSurface(int w, int h, double spacing, double scale) {
+        return SurfaceGenerator.heightField(ShapeType.SURFACE,
+                (x, y) -> 0.5 * Math.sin(x * 2) * Math.cos(y * 2) + 0.3 * Math.sin(x * 4) * Math.cos(y * 3), // псевдо-шум
+                w, h, spacing * scale);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
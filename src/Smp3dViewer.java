@@ -4,21 +4,58 @@
  */
 
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Path;
 
 public class Smp3dViewer extends JFrame {
     // Конструктор
-    public Smp3dViewer() {
+    // activeRendering вмикає активний режим малювання з частотою targetFps кадрів за секунду (0 - без обмеження)
+    // terrain - ландшафт, що читається з файлу частинами (null, якщо не вказано)
+    public Smp3dViewer(ShapeFactory.ShapeData mesh, TerrainStreamer terrain, boolean activeRendering, int targetFps) {
         // Налаштовуємо вікно програми
         setTitle("Simple 3D Viewer");
         setSize(800, 600);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        add(new DrawPanel());
+        add(new DrawPanel(mesh, terrain, activeRendering, targetFps));
         setLocationRelativeTo(null);
         setVisible(true);
     }
 
     // Точка входу в програму
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(Smp3dViewer::new);
+    // Аргументи: [--active] [--fps N] [--terrain файл] [--terrain-budget МБ] [шлях до файлу сітки у форматі STL або OBJ]
+    // --active вмикає активний режим малювання, --fps задає для нього частоту кадрів (0 - без обмеження, за замовчуванням 60)
+    // --terrain задає файл ландшафту, створений TerrainFile, --terrain-budget - обсяг пам'яті для його плиток (за замовчуванням 64 МБ)
+    public static void main(String[] args) throws IOException {
+        ShapeFactory.ShapeData mesh = null;
+        boolean activeRendering = false;
+        int targetFps = 60;
+        Path terrainPath = null;
+        long terrainBudget = 64;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--active" -> activeRendering = true;
+                case "--fps" -> targetFps = Integer.parseInt(args[++i]);
+                case "--terrain" -> terrainPath = Path.of(args[++i]);
+                case "--terrain-budget" -> terrainBudget = Long.parseLong(args[++i]);
+                default -> {
+                    long start = System.nanoTime();
+                    mesh = MeshLoader.load(Path.of(args[i]));
+                    System.out.printf("Завантажено %s: %d вершин, %d граней за %d мс%n", args[i], mesh.vertexCount(),
+                            mesh.faceCount(), (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        }
+        TerrainStreamer terrain = null;
+        if (terrainPath != null) {
+            TerrainFile file = new TerrainFile(terrainPath);
+            terrain = new TerrainStreamer(file, terrainBudget << 20);
+            System.out.printf("Відкрито ландшафт %s: %dx%d відліків, %d рівнів, %d плиток%n", terrainPath,
+                    file.width, file.height, file.levels, file.tileCount());
+        }
+        ShapeFactory.ShapeData initial = mesh;
+        TerrainStreamer initialTerrain = terrain;
+        boolean active = activeRendering;
+        int fps = targetFps;
+        SwingUtilities.invokeLater(() -> new Smp3dViewer(initial, initialTerrain, active, fps));
     }
 }
@@ -0,0 +1,253 @@
+/*
+ * SurfaceGenerator
+ * Клас для генерації поверхонь, заданих функцією на прямокутній сітці параметрів:
+ * параметричною функцією (u, v) -> (x, y, z) або функцією висоти z = f(x, y)
+ * Вершина сітки в рядку row та стовпці column має індекс row * columns + column (після полюса, якщо він є),
+ * грань сітки - чотирикутник між сусідніми рядками і стовпцями. Топологія визначає, які краї сітки
+ * з'єднуються між собою (тор, циліндр) і чи стягуються крайні рядки в полюси (сфера)
+ * Масиви вершин, граней та ребер мають наперед відомий розмір, тому заповнюються смугами рядків паралельно
+ * без спільного змінного стану: кожна смуга пише лише у свою частину масивів. Ребра та ознака замкненості
+ * визначаються будовою сітки, тож хеш-таблиця EdgeExtractor не потрібна
+ * Екземпляр не змінюється після створення і може одночасно використовуватись з кількох потоків
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+class SurfaceGenerator {
+    // Топологія сітки
+    // SHEET - відкрита поверхня; CYLINDER - з'єднані перший і останній стовпці;
+    // TORUS - з'єднані також перший і останній рядки; SPHERE - з'єднані стовпці, а над першим
+    // і під останнім рядком розташовані полюси, з'єднані з рядками трикутниками
+    enum Topology { SHEET, CYLINDER, TORUS, SPHERE }
+
+    // Функція, що обчислює координати точки поверхні для параметрів u, v з проміжку [0, 1]
+    // і записує їх у масив out за зміщенням offset
+    @FunctionalInterface
+    interface Parametric {
+        void evaluate(double u, double v, double[] out, int offset);
+    }
+
+    // Функція висоти поверхні над точкою (x, y)
+    @FunctionalInterface
+    interface HeightFunction {
+        double height(double x, double y);
+    }
+
+    // Функція, що обчислює координати вершини сітки за її стовпцем і рядком (для полюсів row = -1 та row = rows)
+    @FunctionalInterface
+    private interface Sampler {
+        void sample(int column, int row, double[] out, int offset);
+    }
+
+    // Мінімальна кількість вершин, починаючи з якої сітка заповнюється паралельно
+    static final int PARALLEL_THRESHOLD = Integer.getInteger("smp3d.generatorParallelThreshold", 50_000);
+    private static final int CHUNK_SIZE = 16384; // Приблизна кількість вершин у смузі, що заповнює одна задача
+
+    final Topology topology;
+    final int columns, rows; // Кількість стовпців і рядків вершин (без полюсів)
+    final boolean flipFaces; // Ознака зворотного порядку обходу вершин граней
+
+    // Конструктор
+    // flipFaces змінює порядок обходу вершин граней на зворотний, тобто напрямок їх нормалей на протилежний
+    SurfaceGenerator(Topology topology, int columns, int rows, boolean flipFaces) {
+        int minColumns = wrapsColumns(topology) ? 3 : 2;
+        int minRows = topology == Topology.TORUS ? 3 : topology == Topology.SPHERE ? 1 : 2;
+        if (columns < minColumns || rows < minRows) {
+            throw new IllegalArgumentException("Замала сітка " + columns + "x" + rows + " для топології " + topology);
+        }
+        if ((long) columns * rows > Integer.MAX_VALUE / 6) {
+            throw new IllegalArgumentException("Завелика сітка " + columns + "x" + rows);
+        }
+        this.topology = topology;
+        this.columns = columns;
+        this.rows = rows;
+        this.flipFaces = flipFaces;
+    }
+
+    // Метод генерує поверхню, задану параметричною функцією
+    // Параметр u змінюється вздовж стовпців, v - вздовж рядків. У з'єднаному напрямку значення 1 не досягається,
+    // бо збігається з 0; для сфери рядки займають внутрішні значення v, а полюси обчислюються при u = 0, v = 0 та v = 1
+    ShapeFactory.ShapeData parametric(ShapeFactory.ShapeType type, Parametric function) {
+        double du = 1.0 / (wrapsColumns(topology) ? columns : columns - 1);
+        double dv = 1.0 / switch (topology) {
+            case TORUS -> rows;
+            case SPHERE -> rows + 1;
+            default -> rows - 1;
+        };
+        int rowShift = topology == Topology.SPHERE ? 1 : 0;
+        return generate(type, (column, row, out, offset) ->
+                function.evaluate(column * du, (row + rowShift) * dv, out, offset));
+    }
+
+    // Метод генерує відкриту поверхню z = function(x, y) на сітці columns x rows з кроком spacing,
+    // центр якої лежить у початку координат
+    static ShapeFactory.ShapeData heightField(ShapeFactory.ShapeType type, HeightFunction function,
+                                              int columns, int rows, double spacing) {
+        SurfaceGenerator generator = new SurfaceGenerator(Topology.SHEET, columns, rows, false);
+        return generator.generate(type, (column, row, out, offset) -> {
+            double x = (column - columns / 2.0) * spacing;
+            double y = (row - rows / 2.0) * spacing;
+            out[offset] = x;
+            out[offset + 1] = y;
+            out[offset + 2] = function.height(x, y);
+        });
+    }
+
+    // Метод заповнює масиви фігури значеннями функції sampler
+    private ShapeFactory.ShapeData generate(ShapeFactory.ShapeType type, Sampler sampler) {
+        return new Job(sampler).run(type);
+    }
+
+    private static boolean wrapsColumns(Topology topology) {
+        return topology != Topology.SHEET;
+    }
+
+    // Дані однієї генерації: масиви, які заповнюються, та їх розмітка
+    // Для кожного виклику generate створюється окремий об'єкт, тому паралельні виклики не заважають один одному
+    private final class Job {
+        private final Sampler sampler;
+        private final boolean wrapColumns = wrapsColumns(topology);
+        private final boolean wrapRows = topology == Topology.TORUS;
+        private final boolean poles = topology == Topology.SPHERE;
+        private final int base = poles ? 1 : 0; // Індекс першої вершини сітки
+        private final int faceColumns = wrapColumns ? columns : columns - 1; // Граней у рядку сітки
+        private final int faceRows = wrapRows ? rows : rows - 1; // Рядків граней сітки
+        private final int fanFaces = poles ? columns : 0; // Трикутників навколо кожного полюса
+        private final int rowEdges; // Ребер на рядок вершин: горизонтальні та вертикальні до наступного рядка
+        private final double[] vertices;
+        private final int[] faceOffsets, faceIndices, edges;
+
+        Job(Sampler sampler) {
+            this.sampler = sampler;
+            int vertexCount = rows * columns + 2 * base;
+            int quads = faceRows * faceColumns;
+            vertices = new double[vertexCount * 3];
+            faceOffsets = new int[quads + 2 * fanFaces + 1];
+            faceIndices = new int[quads * 4 + 2 * fanFaces * 3];
+            rowEdges = faceColumns + columns;
+            int gridEdges = rows * faceColumns + faceRows * columns;
+            edges = new int[(gridEdges + 2 * fanFaces) * 2];
+        }
+
+        // Метод заповнює масиви і створює фігуру
+        ShapeFactory.ShapeData run(ShapeFactory.ShapeType type) {
+            if (rows * columns >= PARALLEL_THRESHOLD) {
+                int band = Math.max(1, CHUNK_SIZE / columns);
+                ForkJoinPool.commonPool().invoke(new BandTask(0, rows, band));
+            } else {
+                fillRows(0, rows);
+            }
+            if (poles) {
+                fillPoles();
+            }
+            return new ShapeFactory.ShapeData(type, vertices, faceOffsets, faceIndices, edges,
+                    topology == Topology.TORUS || topology == Topology.SPHERE);
+        }
+
+        // Індекс вершини сітки в рядку row та стовпці column (з урахуванням з'єднаних країв)
+        private int vertex(int row, int column) {
+            if (column == columns) column = 0;
+            if (row == rows) row = 0;
+            return base + row * columns + column;
+        }
+
+        // Метод заповнює вершини рядків [from, to), грані, що лежать між кожним з них і наступним рядком,
+        // та ребра, що починаються в цих рядках
+        private void fillRows(int from, int to) {
+            int quadIndexStart = fanFaces * 3;
+            for (int row = from; row < to; row++) {
+                for (int column = 0; column < columns; column++) {
+                    sampler.sample(column, row, vertices, vertex(row, column) * 3);
+                }
+
+                // Ребра: горизонтальні в рядку, потім вертикальні до наступного рядка
+                int e = row * rowEdges * 2;
+                for (int column = 0; column < faceColumns; column++) {
+                    edges[e++] = vertex(row, column);
+                    edges[e++] = vertex(row, column + 1);
+                }
+                if (row < faceRows) {
+                    for (int column = 0; column < columns; column++) {
+                        edges[e++] = vertex(row, column);
+                        edges[e++] = vertex(row + 1, column);
+                    }
+
+                    // Чотирикутні грані між рядками row та row + 1
+                    int f = fanFaces + row * faceColumns;
+                    int k = quadIndexStart + row * faceColumns * 4;
+                    for (int column = 0; column < faceColumns; column++) {
+                        int a = vertex(row, column), b = vertex(row, column + 1);
+                        int c = vertex(row + 1, column + 1), d = vertex(row + 1, column);
+                        if (flipFaces) {
+                            faceIndices[k] = d; faceIndices[k + 1] = c; faceIndices[k + 2] = b; faceIndices[k + 3] = a;
+                        } else {
+                            faceIndices[k] = a; faceIndices[k + 1] = b; faceIndices[k + 2] = c; faceIndices[k + 3] = d;
+                        }
+                        k += 4;
+                        faceOffsets[++f] = k;
+                    }
+                }
+            }
+        }
+
+        // Метод заповнює полюси сфери, трикутники навколо них та ребра, що їх з'єднують з крайніми рядками
+        private void fillPoles() {
+            int north = 0, south = rows * columns + 1, last = rows - 1;
+            sampler.sample(0, -1, vertices, north * 3);
+            sampler.sample(0, rows, vertices, south * 3);
+
+            // Трикутники навколо північного полюса займають початок масивів граней, південного - кінець
+            int k = 0;
+            for (int column = 0; column < columns; column++) {
+                int a = vertex(0, column), b = vertex(0, column + 1);
+                faceIndices[k++] = north;
+                faceIndices[k++] = flipFaces ? a : b;
+                faceIndices[k++] = flipFaces ? b : a;
+                faceOffsets[column + 1] = k;
+            }
+            int f = fanFaces + faceRows * faceColumns;
+            k = faceOffsets[f];
+            for (int column = 0; column < columns; column++) {
+                int a = vertex(last, column), b = vertex(last, column + 1);
+                faceIndices[k++] = a;
+                faceIndices[k++] = flipFaces ? south : b;
+                faceIndices[k++] = flipFaces ? b : south;
+                faceOffsets[++f] = k;
+            }
+
+            // Ребра від полюсів записуються після ребер сітки
+            int e = edges.length - fanFaces * 4;
+            for (int column = 0; column < columns; column++) {
+                edges[e++] = north;
+                edges[e++] = vertex(0, column);
+            }
+            for (int column = 0; column < columns; column++) {
+                edges[e++] = vertex(last, column);
+                edges[e++] = south;
+            }
+        }
+
+        // Задача пулу ForkJoin, що ділить діапазон рядків навпіл, доки він не стане не більшим за band рядків
+        @SuppressWarnings("serial")
+        private final class BandTask extends RecursiveAction {
+            private final int from, to, band;
+
+            BandTask(int from, int to, int band) {
+                this.from = from;
+                this.to = to;
+                this.band = band;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from <= band) {
+                    fillRows(from, to);
+                    return;
+                }
+                int mid = (from + to) >>> 1;
+                invokeAll(new BandTask(from, mid, band), new BandTask(mid, to, band));
+            }
+        }
+    }
+}
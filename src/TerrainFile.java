@@ -0,0 +1,291 @@
+/*
+ * TerrainFile
+ * Клас для зберігання великої сітки висот у файлі, поділеної на квадратні плитки, та читання окремих плиток
+ * через відображення файлу в пам'ять
+ *
+ * Сітка має width x height відліків висоти з кроком spacing. Плитка рівня 0 охоплює tileSize x tileSize клітинок
+ * і зберігає (tileSize + 1)^2 відліків, тобто крайні відліки сусідніх плиток збігаються і плитки стикуються
+ * без щілин. Кожен наступний рівень - та сама сітка з удвічі більшим кроком (відлік i рівня level відповідає
+ * відліку i * 2^level рівня 0, обмеженому краєм сітки), останній рівень вміщується в одну плитку
+ *
+ * Формат файлу (порядок байтів little-endian):
+ *   int    сигнатура 'SMPT'
+ *   int    версія формату
+ *   int    кількість відліків по X та по Y
+ *   int    розмір плитки в клітинках
+ *   int    кількість рівнів
+ *   double крок сітки
+ *   float[] відліки плиток: рівні від 0, у межах рівня плитки по рядках, у межах плитки відліки по рядках
+ *
+ * Файл відображається в пам'ять сегментами не більше MAX_SEGMENT_BYTES, жодна плитка не перетинає межу сегмента.
+ * Сегменти відображаються лише при першому зверненні, а сторінки файлу завантажує і витісняє операційна система,
+ * тому розмір файлу не обмежений обсягом пам'яті процесу
+ *
+ * Запуск інструмента створення файлу з процедурним ландшафтом:
+ *   java -cp out TerrainFile [--size 32769x32769] [--tile 64] [--spacing 0.01] [--out terrain.smpt]
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class TerrainFile implements AutoCloseable {
+    private static final int MAGIC = 0x54504D53; // 'SMPT'
+    private static final int VERSION = 1; // Версія формату файлу
+    private static final int HEADER_SIZE = 64;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30; // Найбільший розмір одного відображеного сегмента
+    private static final int WRITE_TILES = 64; // Кількість плиток, які одна задача створення файлу записує за раз
+
+    final int width, height; // Кількість відліків по X та по Y
+    final int tileSize; // Розмір плитки в клітинках
+    final int levels; // Кількість рівнів
+    final double spacing; // Крок сітки рівня 0
+    final int tileSamples; // Кількість відліків у плитці: (tileSize + 1)^2
+    private final long[] levelStart; // Номер першої плитки кожного рівня у файлі
+    private final FileChannel channel;
+    private final int segmentTiles; // Кількість плиток в одному сегменті
+    private final FloatBuffer[] segments; // Відображені сегменти (null, поки сегмент не потрібен)
+
+    // Конструктор відкриває файл для читання і перевіряє його заголовок
+    TerrainFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Некоректний розмір файлу ландшафту: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Невідомий формат або версія файлу ландшафту: " + path);
+            }
+            width = header.getInt(8);
+            height = header.getInt(12);
+            tileSize = header.getInt(16);
+            levels = header.getInt(20);
+            spacing = header.getDouble(24);
+            if (width < 2 || height < 2 || tileSize < 1 || tileSize > 1024 || levels != levelCount(width, height, tileSize)
+                    || !(spacing > 0)) {
+                throw new IOException("Пошкоджений заголовок файлу ландшафту: " + path);
+            }
+            tileSamples = (tileSize + 1) * (tileSize + 1);
+            levelStart = levelStarts(width, height, tileSize, levels);
+            if (channel.size() != HEADER_SIZE + levelStart[levels] * tileSamples * 4) {
+                throw new IOException("Некоректний розмір файлу ландшафту: " + path);
+            }
+            segmentTiles = (int) (MAX_SEGMENT_BYTES / (tileSamples * 4L));
+            segments = new FloatBuffer[(int) ((levelStart[levels] + segmentTiles - 1) / segmentTiles)];
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Кількість клітинок по X (axis = 0) або по Y (axis = 1) на рівні level
+    int cells(int level, int axis) {
+        return levelCells(axis == 0 ? width : height, level);
+    }
+
+    // Кількість плиток по X (axis = 0) або по Y (axis = 1) на рівні level
+    int tiles(int level, int axis) {
+        return tileCount(cells(level, axis), tileSize);
+    }
+
+    // Номер відліку рівня 0, що відповідає відліку sample рівня level по осі axis
+    int baseSample(int level, int axis, int sample) {
+        return (int) Math.min((long) sample << level, (axis == 0 ? width : height) - 1);
+    }
+
+    // Обсяг даних однієї плитки в байтах
+    long tileBytes() {
+        return tileSamples * 4L;
+    }
+
+    // Загальна кількість плиток у файлі
+    long tileCount() {
+        return levelStart[levels];
+    }
+
+    // Метод копіює відліки плитки (level, tileX, tileY) у масив dst довжиною не менше tileSamples
+    // Відображені сегменти лише читаються абсолютними операціями, тому метод можна викликати з кількох потоків
+    void readTile(int level, int tileX, int tileY, float[] dst) throws IOException {
+        long tile = levelStart[level] + (long) tileY * tiles(level, 0) + tileX;
+        segment((int) (tile / segmentTiles)).get((int) (tile % segmentTiles) * tileSamples, dst, 0, tileSamples);
+    }
+
+    // Метод повертає сегмент файлу, відображаючи його в пам'ять при першому зверненні
+    private synchronized FloatBuffer segment(int segment) throws IOException {
+        if (segments[segment] == null) {
+            long first = (long) segment * segmentTiles;
+            long count = Math.min(segmentTiles, levelStart[levels] - first);
+            segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * tileBytes(),
+                    count * tileBytes()).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        }
+        return segments[segment];
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Метод створює файл ландшафту з висотами function(x, y) на сітці width x height з кроком spacing
+    // Плитки всіх рівнів обчислюються паралельно і записуються позиційним записом, тому в пам'яті
+    // одночасно знаходиться лише по кілька плиток на потік. Дані пишуться в тимчасовий файл, який
+    // потім атомарно перейменовується
+    static void create(Path path, int width, int height, int tileSize, double spacing,
+                       SurfaceGenerator.HeightFunction function) throws IOException {
+        if (width < 2 || height < 2 || tileSize < 1 || tileSize > 1024 || !(spacing > 0)) {
+            throw new IllegalArgumentException("Некоректні параметри ландшафту");
+        }
+        int levels = levelCount(width, height, tileSize);
+        long[] starts = levelStarts(width, height, tileSize, levels);
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(tileSize).putInt(levels)
+                        .putDouble(spacing).rewind();
+                out.write(header, 0);
+                ForkJoinPool.commonPool().invoke(new WriteTask(out, width, height, tileSize, spacing, function,
+                        starts, 0, starts[levels]));
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Задача пулу ForkJoin, що ділить діапазон плиток навпіл, доки він не стане не більшим за WRITE_TILES,
+    // і записує плитки цього діапазону одним блоком
+    @SuppressWarnings("serial")
+    private static final class WriteTask extends RecursiveAction {
+        private final FileChannel out;
+        private final int width, height, tileSize;
+        private final double spacing;
+        private final SurfaceGenerator.HeightFunction function;
+        private final long[] starts;
+        private final long from, to;
+
+        WriteTask(FileChannel out, int width, int height, int tileSize, double spacing,
+                  SurfaceGenerator.HeightFunction function, long[] starts, long from, long to) {
+            this.out = out;
+            this.width = width;
+            this.height = height;
+            this.tileSize = tileSize;
+            this.spacing = spacing;
+            this.function = function;
+            this.starts = starts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > WRITE_TILES) {
+                long mid = (from + to) >>> 1;
+                invokeAll(new WriteTask(out, width, height, tileSize, spacing, function, starts, from, mid),
+                        new WriteTask(out, width, height, tileSize, spacing, function, starts, mid, to));
+                return;
+            }
+            int side = tileSize + 1;
+            ByteBuffer buffer = ByteBuffer.allocate((int) (to - from) * side * side * 4).order(ByteOrder.LITTLE_ENDIAN);
+            int level = 0;
+            for (long tile = from; tile < to; tile++) {
+                while (tile >= starts[level + 1]) level++;
+                int tilesX = tileCount(levelCells(width, level), tileSize);
+                long index = tile - starts[level];
+                int tileX = (int) (index % tilesX), tileY = (int) (index / tilesX);
+                for (int j = 0; j < side; j++) {
+                    long row = Math.min((long) (tileY * tileSize + j) << level, height - 1);
+                    for (int i = 0; i < side; i++) {
+                        long column = Math.min((long) (tileX * tileSize + i) << level, width - 1);
+                        buffer.putFloat((float) function.height(column * spacing, row * spacing));
+                    }
+                }
+            }
+            buffer.flip();
+            try {
+                long position = HEADER_SIZE + from * side * side * 4L;
+                while (buffer.hasRemaining()) {
+                    position += out.write(buffer, position);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Кількість клітинок рівня level для сітки з samples відліків
+    private static int levelCells(int samples, int level) {
+        long step = 1L << level;
+        return (int) ((samples - 1 + step - 1) / step);
+    }
+
+    private static int tileCount(int cells, int tileSize) {
+        return Math.max(1, (cells + tileSize - 1) / tileSize);
+    }
+
+    // Кількість рівнів: рівні додаються, доки останній не вміститься в одну плитку
+    private static int levelCount(int width, int height, int tileSize) {
+        int levels = 1;
+        while (tileCount(levelCells(width, levels - 1), tileSize) > 1 || tileCount(levelCells(height, levels - 1), tileSize) > 1) {
+            levels++;
+        }
+        return levels;
+    }
+
+    // Номери перших плиток рівнів; останній елемент - загальна кількість плиток
+    private static long[] levelStarts(int width, int height, int tileSize, int levels) {
+        long[] starts = new long[levels + 1];
+        for (int level = 0; level < levels; level++) {
+            starts[level + 1] = starts[level]
+                    + (long) tileCount(levelCells(width, level), tileSize) * tileCount(levelCells(height, level), tileSize);
+        }
+        return starts;
+    }
+
+    // Висота процедурного ландшафту: сума хвиль різної довжини, повернутих під різними кутами
+    static double proceduralHeight(double x, double y) {
+        return 0.6 * Math.sin(x * 0.11) * Math.cos(y * 0.13)
+                + 0.25 * Math.sin(x * 0.53 + y * 0.31)
+                + 0.1 * Math.sin(x * 1.9 - y * 1.3) * Math.cos(x * 0.7 + y * 2.3)
+                + 0.03 * Math.sin(x * 7.1 + y * 5.3);
+    }
+
+    // Точка входу інструмента створення файлу з процедурним ландшафтом
+    public static void main(String[] args) throws IOException {
+        int width = 32769, height = 32769, tileSize = 64;
+        double spacing = 0.01;
+        Path out = Path.of("terrain.smpt");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--size" -> {
+                    String[] size = args[++i].split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                }
+                case "--tile" -> tileSize = Integer.parseInt(args[++i]);
+                case "--spacing" -> spacing = Double.parseDouble(args[++i]);
+                case "--out" -> out = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Невідомий параметр: " + args[i]);
+            }
+        }
+        long start = System.nanoTime();
+        create(out, width, height, tileSize, spacing, TerrainFile::proceduralHeight);
+        try (TerrainFile file = new TerrainFile(out)) {
+            System.out.printf(Locale.ROOT, "Створено %s: %dx%d відліків, %d рівнів, %d плиток, %.1f МБ за %.1f с%n",
+                    out, width, height, file.levels, file.tileCount(), Files.size(out) / 1048576.0,
+                    (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
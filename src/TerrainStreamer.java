@@ -0,0 +1,398 @@
+/*
+ * TerrainStreamer
+ * Клас для показу ландшафту з файлу TerrainFile частинами: у пам'яті тримаються лише плитки, що потрапляють
+ * у поле зору (з запасом для попереднього завантаження), а з них складається одна сітка для малювання
+ *
+ * Плитки утворюють дерево квадрантів: плитка рівня level ділиться на чотири плитки рівня level - 1.
+ * Плитка уточнюється, доки її клітинка на екрані більша за MIN_CELL_PIXELS пікселів, причому межа зростає
+ * з віддаленням від центру поля зору, тому далекі ділянки показуються грубішими рівнями
+ * Відсутні плитки читає окремий потік у порядку від грубих рівнів до детальних і від центру до країв,
+ * а поки плитка не прочитана, її ділянка показується найближчою прочитаною плиткою грубішого рівня
+ * Прочитані плитки зберігаються в порядку використання (LRU) в межах заданого обсягу; плитки, що вже
+ * не потрібні, витісняються, а їх масиви повторно використовуються для наступних плиток
+ *
+ * Усі методи, крім потоку завантаження, викликаються з одного потоку (потоку, що змінює стан фігури)
+ * Межі рівнів деталізації не зшиваються: на стику плиток різних рівнів можливі вузькі щілини
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+
+class TerrainStreamer {
+    static final double MIN_CELL_PIXELS = 8; // Найменший розмір клітинки на екрані в центрі поля зору, пікселів
+    static final double PREFETCH_MARGIN = 0.25; // Запас навколо поля зору для попереднього завантаження (частка)
+    private static final long TILE_OVERHEAD = 16; // Оцінка розміру заголовка масиву плитки
+    private static final int MIN_BUDGET_TILES = 16; // Найменша кількість плиток, що має вміщатися в обсяг
+    private static final long NOTIFY_NANOS = 100_000_000; // Найбільший інтервал повідомлень про прочитані плитки
+    private static final int LATENCY_SAMPLES = 600; // Кількість останніх завантажень для процентилів
+
+    // Прочитана плитка, яку потік завантаження передає потоку, що викликає update
+    // samples == null означає помилку читання
+    private static final class Loaded {
+        final long key;
+        final float[] samples;
+        final long readNanos;
+
+        Loaded(long key, float[] samples, long readNanos) {
+            this.key = key;
+            this.samples = samples;
+            this.readNanos = readNanos;
+        }
+    }
+
+    final TerrainFile file;
+    private final long budgetBytes; // Найбільший обсяг прочитаних плиток
+    private final long tileBytes; // Обсяг однієї плитки в пам'яті
+    private final int topLevel;
+
+    // Прочитані плитки в порядку використання: першою йде та, що найдовше не використовувалась
+    private final LinkedHashMap<Long, float[]> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private Set<Long> wanted = new HashSet<>(); // Плитки, потрібні для поточного поля зору (не витісняються)
+    private final Set<Long> failed = new HashSet<>(); // Плитки, які не вдалося прочитати
+    private final Map<Long, Long> requestedAt = new HashMap<>(); // Час запиту плиток, що ще читаються, нс
+
+    // Обмін з потоком завантаження
+    private final LinkedBlockingDeque<Long> requests = new LinkedBlockingDeque<>(); // Плитки, що чекають на читання
+    private final ConcurrentLinkedQueue<Loaded> loaded = new ConcurrentLinkedQueue<>(); // Прочитані плитки
+    private final ConcurrentLinkedQueue<float[]> free = new ConcurrentLinkedQueue<>(); // Масиви витіснених плиток
+    private volatile long loading = -1; // Плитка, яку потік завантаження читає зараз
+    private volatile Runnable onLoad; // Дія, що виконується в потоці завантаження після читання плиток
+
+    // Статистика
+    private long loads, hits, misses, evictions, failures;
+    final FrameStats loadLatency = new FrameStats(LATENCY_SAMPLES); // Від запиту плитки до її появи в пам'яті
+    final FrameStats readTimes = new FrameStats(LATENCY_SAMPLES); // Тривалість читання плитки з файлу
+
+    // Сітка, складена з плиток, та параметри, з якими її складено
+    private ShapeFactory.ShapeData shape;
+    private long[] drawn = new long[0];
+    private double drawnX = Double.NaN, drawnY = Double.NaN;
+    private int finestLevel;
+
+    // Конструктор
+    // Плитка найгрубішого рівня читається одразу і не витісняється, тому показати є що з першого кадру
+    TerrainStreamer(TerrainFile file, long budgetBytes) throws IOException {
+        this.file = file;
+        this.tileBytes = file.tileBytes() + TILE_OVERHEAD;
+        if (budgetBytes < tileBytes * MIN_BUDGET_TILES) {
+            throw new IllegalArgumentException("Обсяг пам'яті для плиток менший за " + MIN_BUDGET_TILES + " плиток");
+        }
+        this.budgetBytes = budgetBytes;
+        this.topLevel = file.levels - 1;
+        float[] root = new float[file.tileSamples];
+        file.readTile(topLevel, 0, 0, root);
+        long rootKey = key(topLevel, 0, 0);
+        resident.put(rootKey, root);
+        wanted.add(rootKey);
+        loads++;
+
+        Thread loader = new Thread(this::loadLoop, "terrain-loader");
+        loader.setDaemon(true);
+        loader.setPriority(Thread.MIN_PRIORITY);
+        loader.start();
+    }
+
+    // Метод задає дію, яку потік завантаження виконує, коли прочитав усі запитані плитки
+    // (або частину з них, якщо читання триває довше NOTIFY_NANOS)
+    void setOnLoad(Runnable onLoad) {
+        this.onLoad = onLoad;
+    }
+
+    // Розміри ландшафту
+    double sizeX() {
+        return (file.width - 1) * file.spacing;
+    }
+
+    double sizeY() {
+        return (file.height - 1) * file.spacing;
+    }
+
+    // Метод оновлює набір плиток для поля зору з центром (centerX, centerY) і півшириною halfExtent
+    // pixelsPerUnit - кількість пікселів екрану на одиницю довжини
+    // Повертає true, якщо сітка змінилась і її треба отримати заново методом shape()
+    boolean update(double centerX, double centerY, double halfExtent, double pixelsPerUnit) {
+        centerX = Math.max(0, Math.min(sizeX(), centerX));
+        centerY = Math.max(0, Math.min(sizeY(), centerY));
+        drainLoaded();
+
+        // Обходимо дерево по рівнях від найгрубішого, у межах рівня - від центру до країв
+        double reach = halfExtent * (1 + PREFETCH_MARGIN);
+        Set<Long> previous = wanted;
+        wanted = new HashSet<>();
+        List<Long> order = new ArrayList<>();
+        List<Long> leaves = new ArrayList<>();
+        List<Long> nodes = new ArrayList<>(List.of(key(topLevel, 0, 0)));
+        long wantedBytes = 0;
+        double cx = centerX, cy = centerY;
+        while (!nodes.isEmpty()) {
+            nodes.sort((a, b) -> Double.compare(distance(a, cx, cy), distance(b, cx, cy)));
+            wantedBytes += nodes.size() * tileBytes;
+            List<Long> next = new ArrayList<>();
+            for (long node : nodes) {
+                wanted.add(node);
+                order.add(node);
+                int l = level(node);
+                double cellPixels = file.spacing * (1L << l) * pixelsPerUnit;
+                double limit = MIN_CELL_PIXELS * Math.max(1, 2 * distance(node, cx, cy) / halfExtent);
+                // Плитка уточнюється, лише якщо її дочірні плитки ще вміщуються в обсяг пам'яті
+                if (l == 0 || cellPixels <= limit || wantedBytes + (next.size() + 4) * tileBytes > budgetBytes) {
+                    leaves.add(node);
+                    continue;
+                }
+                int tx = tileX(node), ty = tileY(node);
+                for (int dy = 0; dy < 2; dy++) {
+                    for (int dx = 0; dx < 2; dx++) {
+                        int x = 2 * tx + dx, y = 2 * ty + dy;
+                        if (x < file.tiles(l - 1, 0) && y < file.tiles(l - 1, 1)) {
+                            long child = key(l - 1, x, y);
+                            if (distance(child, cx, cy) <= reach) next.add(child);
+                        }
+                    }
+                }
+            }
+            nodes = next;
+        }
+
+        // Запитуємо відсутні плитки; черга попередніх запитів, що стали непотрібні, відкидається
+        requests.clear();
+        long now = System.nanoTime();
+        long current = loading;
+        for (long node : order) {
+            boolean present = resident.get(node) != null; // Звернення оновлює порядок використання
+            if (!previous.contains(node)) {
+                if (present) hits++; else misses++;
+            }
+            if (!present && !failed.contains(node)) {
+                requestedAt.putIfAbsent(node, now);
+                if (node != current) requests.add(node);
+            }
+        }
+        requestedAt.keySet().removeIf(node -> !wanted.contains(node) && node != current);
+        trim();
+
+        // Кожна ділянка показується плиткою, до якої дійшло уточнення, або її найближчим прочитаним предком
+        Set<Long> shown = new HashSet<>();
+        for (long node : leaves) {
+            while (!resident.containsKey(node)) {
+                node = parent(node);
+            }
+            shown.add(node);
+        }
+        shown.removeIf(node -> {
+            for (long p = node; level(p) < topLevel; ) {
+                p = parent(p);
+                if (shown.contains(p)) return true;
+            }
+            return false;
+        });
+        long[] keys = shown.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (shape != null && Arrays.equals(keys, drawn) && centerX == drawnX && centerY == drawnY) {
+            return false;
+        }
+        shape = build(keys, centerX, centerY);
+        drawn = keys;
+        drawnX = centerX;
+        drawnY = centerY;
+        return true;
+    }
+
+    // Сітка, складена з плиток останнім викликом update (координати відносно центру поля зору)
+    ShapeFactory.ShapeData shape() {
+        return shape;
+    }
+
+    // Метод переносить прочитані плитки до набору прочитаних
+    private void drainLoaded() {
+        long now = System.nanoTime();
+        for (Loaded tile = loaded.poll(); tile != null; tile = loaded.poll()) {
+            Long requested = requestedAt.remove(tile.key);
+            if (tile.samples == null) {
+                failures++;
+                failed.add(tile.key);
+                continue;
+            }
+            loads++;
+            readTimes.record(tile.readNanos);
+            if (requested != null) loadLatency.record(now - requested);
+            if (resident.put(tile.key, tile.samples) != null) {
+                free.add(tile.samples); // Плитку вже прочитано раніше
+            }
+        }
+        trim();
+    }
+
+    // Метод витісняє плитки, що найдовше не використовувались, доки обсяг перевищує встановлений
+    // Плитки, потрібні для поточного поля зору, не витісняються: їх обсяг обмежено під час вибору
+    private void trim() {
+        Iterator<Map.Entry<Long, float[]>> it = resident.entrySet().iterator();
+        while (residentBytes() > budgetBytes && it.hasNext()) {
+            Map.Entry<Long, float[]> entry = it.next();
+            if (wanted.contains(entry.getKey())) continue;
+            free.add(entry.getValue());
+            it.remove();
+            evictions++;
+        }
+        // Запас вільних масивів не перевищує кількості плиток, що можуть бути прочитані до наступного виклику
+        while (free.size() > requests.size() + 1) {
+            free.poll(); // Зайві масиви віддаються збирачу сміття
+        }
+    }
+
+    // Цикл потоку завантаження: плитки читаються по одній у порядку черги
+    private void loadLoop() {
+        long lastNotify = System.nanoTime();
+        try {
+            while (true) {
+                long key = requests.takeFirst();
+                loading = key;
+                float[] samples = free.poll();
+                if (samples == null) samples = new float[file.tileSamples];
+                long start = System.nanoTime();
+                try {
+                    file.readTile(level(key), tileX(key), tileY(key), samples);
+                    loaded.add(new Loaded(key, samples, System.nanoTime() - start));
+                } catch (IOException | RuntimeException e) {
+                    loaded.add(new Loaded(key, null, 0));
+                }
+                loading = -1;
+                Runnable callback = onLoad;
+                long now = System.nanoTime();
+                if (callback != null && (requests.isEmpty() || now - lastNotify >= NOTIFY_NANOS)) {
+                    lastNotify = now;
+                    callback.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Потік завершується
+        }
+    }
+
+    // Метод складає сітку з плиток keys; координати вершин обчислюються відносно точки (centerX, centerY)
+    private ShapeFactory.ShapeData build(long[] keys, double centerX, double centerY) {
+        int vertexCount = 0, faceCount = 0, edgeCount = 0;
+        finestLevel = topLevel;
+        for (long key : keys) {
+            int nx = tileCells(key, 0), ny = tileCells(key, 1);
+            vertexCount += (nx + 1) * (ny + 1);
+            faceCount += nx * ny;
+            edgeCount += nx * (ny + 1) + ny * (nx + 1);
+            finestLevel = Math.min(finestLevel, level(key));
+        }
+        double[] vertices = new double[vertexCount * 3];
+        int[] faceOffsets = new int[faceCount + 1];
+        int[] faceIndices = new int[faceCount * 4];
+        int[] edges = new int[edgeCount * 2];
+        int side = file.tileSize + 1;
+        int v = 0, f = 0, k = 0, e = 0;
+        for (long key : keys) {
+            int l = level(key), nx = tileCells(key, 0), ny = tileCells(key, 1);
+            int firstX = tileX(key) * file.tileSize, firstY = tileY(key) * file.tileSize;
+            float[] samples = resident.get(key);
+            int base = v;
+            for (int j = 0; j <= ny; j++) {
+                double y = file.baseSample(l, 1, firstY + j) * file.spacing - centerY;
+                for (int i = 0; i <= nx; i++) {
+                    vertices[v * 3] = file.baseSample(l, 0, firstX + i) * file.spacing - centerX;
+                    vertices[v * 3 + 1] = y;
+                    vertices[v * 3 + 2] = samples[j * side + i];
+                    v++;
+                }
+            }
+            int row = nx + 1;
+            for (int j = 0; j <= ny; j++) {
+                for (int i = 0; i <= nx; i++) {
+                    int a = base + j * row + i;
+                    if (i < nx) {
+                        edges[e++] = a;
+                        edges[e++] = a + 1;
+                    }
+                    if (j < ny) {
+                        edges[e++] = a;
+                        edges[e++] = a + row;
+                        if (i < nx) {
+                            faceIndices[k++] = a;
+                            faceIndices[k++] = a + 1;
+                            faceIndices[k++] = a + row + 1;
+                            faceIndices[k++] = a + row;
+                            faceOffsets[++f] = k;
+                        }
+                    }
+                }
+            }
+        }
+        return new ShapeFactory.ShapeData(ShapeFactory.ShapeType.MESH, vertices, faceOffsets, faceIndices, edges,
+                false);
+    }
+
+    // Кількість клітинок плитки по осі axis (крайні плитки рівня можуть бути неповними)
+    private int tileCells(long key, int axis) {
+        int first = (axis == 0 ? tileX(key) : tileY(key)) * file.tileSize;
+        return Math.min(file.tileSize, file.cells(level(key), axis) - first);
+    }
+
+    // Відстань від точки (x, y) до прямокутника, який займає плитка
+    private double distance(long key, double x, double y) {
+        int l = level(key);
+        int firstX = tileX(key) * file.tileSize, firstY = tileY(key) * file.tileSize;
+        double x0 = file.baseSample(l, 0, firstX) * file.spacing;
+        double x1 = file.baseSample(l, 0, firstX + tileCells(key, 0)) * file.spacing;
+        double y0 = file.baseSample(l, 1, firstY) * file.spacing;
+        double y1 = file.baseSample(l, 1, firstY + tileCells(key, 1)) * file.spacing;
+        double dx = Math.max(0, Math.max(x0 - x, x - x1));
+        double dy = Math.max(0, Math.max(y0 - y, y - y1));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    // Ключ плитки: рівень, номер рядка та стовпця плиток, упаковані в одне число
+    private static long key(int level, int tileX, int tileY) {
+        return (long) level << 58 | (long) tileY << 29 | tileX;
+    }
+
+    private static int level(long key) {
+        return (int) (key >>> 58);
+    }
+
+    private static int tileX(long key) {
+        return (int) (key & 0x1FFFFFFF);
+    }
+
+    private static int tileY(long key) {
+        return (int) (key >>> 29 & 0x1FFFFFFF);
+    }
+
+    private static long parent(long key) {
+        return key(level(key) + 1, tileX(key) / 2, tileY(key) / 2);
+    }
+
+    long budgetBytes() { return budgetBytes; }
+
+    long residentBytes() { return resident.size() * tileBytes; }
+
+    int residentTiles() { return resident.size(); }
+
+    int queuedTiles() { return requests.size(); }
+
+    int drawnTiles() { return drawn.length; }
+
+    int finestLevel() { return finestLevel; }
+
+    long loads() { return loads; }
+
+    long hits() { return hits; }
+
+    long misses() { return misses; }
+
+    long evictions() { return evictions; }
+
+    long failures() { return failures; }
+}